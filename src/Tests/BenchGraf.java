@@ -0,0 +1,1234 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import m1graf2023.*;
+
+public class BenchGraf {
+
+    public static void main(String[] args) throws InterruptedException {
+        int scale = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+
+        System.out.println("************ GRAPH CONSTRUCTION FROM SUCCESSOR ARRAYS ***********************");
+        benchSuccessorArray(100_000 * scale, 8);
+        benchSuccessorArray(1_000_000 * scale, 8);
+
+        System.out.println("\n************ PARALLEL BULK LOADING (successor array) ***********************");
+        benchBulkLoading(randomSuccessorArray(2_000_000 * scale, 8, 42));
+
+        System.out.println("\n************ EDGE SET DEDUP (multigraph) ***********************");
+        benchEdgeDedup(1_000_000 * scale, 10_000_000 * scale);
+
+        System.out.println("\n************ EDGE LOOKUPS ON A HUB ***********************");
+        benchHubEdges(300_000 * scale, 10_000);
+
+        System.out.println("\n************ UNDIRECTED STORAGE ***********************");
+        benchUndirectedMemory(200_000 * scale, 16);
+
+        System.out.println("\n************ DEGREE REPORT ***********************");
+        benchDegreeReport(new Graf(randomSuccessorArray(200_000 * scale, 8, 7)));
+
+        System.out.println("\n************ CSR SNAPSHOT ***********************");
+        benchCsrMemory(200_000 * scale, 8);
+
+        System.out.println("\n************ NEIGHBOUR ITERATION (BFS from node 1) ***********************");
+        benchNeighbourIteration(new Graf(randomSuccessorArray(200_000 * scale, 8, 3)));
+
+        System.out.println("\n************ BREADTH-FIRST SEARCH ENGINE (64 sources) ***********************");
+        benchBreadthFirstSearch(CsrGraf.fromSuccessorArray(ForkJoinPool.commonPool(),
+                randomSuccessorArray(1_000_000 * scale, 8, 17)));
+
+        System.out.println("\n************ PARALLEL TRAVERSAL ***********************");
+        benchParallelTraversal(Graf.fromSuccessorArray(randomSuccessorArray(1_000_000 * scale, 8, 23)));
+
+        System.out.println("\n************ SHORTEST PATHS (point-to-point queries) ***********************");
+        benchShortestPaths(200_000 * scale, 4, 200);
+
+        System.out.println("\n************ DELTA-STEPPING SSSP ***********************");
+        benchDeltaStepping(randomWeightedGraf(1_000_000 * scale, 8, new Random(31)));
+
+        System.out.println("\n************ STRONGLY CONNECTED COMPONENTS ***********************");
+        benchStronglyConnectedComponents(CsrGraf.fromSuccessorArray(ForkJoinPool.commonPool(),
+                randomSuccessorArray(2_000_000 * scale, 2, 37)));
+        benchStronglyConnectedComponents(CsrGraf.fromSuccessorArray(ForkJoinPool.commonPool(),
+                cycleSuccessorArray(2_000_000 * scale)));
+
+        System.out.println("\n************ TOPOLOGICAL SORT AND CRITICAL PATH ***********************");
+        benchTopologicalSort(randomWeightedDag(1_000_000 * scale, 8, new Random(41)));
+
+        System.out.println("\n************ PAGERANK ***********************");
+        benchPageRank(new Graf(randomSuccessorArray(200_000 * scale, 8, 43)), 10);
+
+        System.out.println("\n************ CONNECTIVITY (union-find) ***********************");
+        benchConnectivity(500_000 * scale, 400_000 * scale, 100_000);
+        benchComponentLabelling(4_000_000 * scale, 8_000_000 * scale);
+
+        System.out.println("\n************ TRIANGLES AND CLUSTERING ***********************");
+        benchTriangles(Graf.fromSuccessorArray(randomClusteredSuccessorArray(200_000 * scale, 8, 50, 59)));
+
+        System.out.println("\n************ CONCURRENT GRAPH (mixed reads and writes) ***********************");
+        benchConcurrentGraf(100_000 * scale, 2_000_000);
+
+        System.out.println("\n************ GRAPH STATISTICS POLLING ***********************");
+        benchStatsPolling(Graf.fromSuccessorArray(randomSuccessorArray(1_000_000 * scale, 8, 71)), 1_000);
+
+        System.out.println("\n************ BATCHED MUTATIONS ***********************");
+        benchBatch(1_000_000 * scale, 4_000_000 * scale);
+
+        System.out.println("\n************ OFF-HEAP STORAGE ***********************");
+        benchOffHeap(1_000_000 * scale, 8);
+
+        System.out.println("\n************ SNAPSHOTS ***********************");
+        benchSnapshots(Graf.fromSuccessorArray(randomSuccessorArray(1_000_000 * scale, 8, 89)), 20, 1_000);
+        benchHubSnapshots(1_000_000 * scale, 1_000);
+
+        System.out.println("\n************ DOT EXPORT AND IMPORT ***********************");
+        benchDotImport(new Graf(randomSuccessorArray(500_000 * scale, 8, 5)));
+
+        System.out.println("\n************ BINARY FORMAT ***********************");
+        benchBinary(new Graf(randomSuccessorArray(500_000 * scale, 8, 5)));
+    }
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    static long allThreadsAllocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long bytes : bean.getThreadAllocatedBytes(bean.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Builds a random successor array (0-terminated successor lists of nodes 1..n).
+     */
+    static int[] randomSuccessorArray(int nbNodes, int outDegree, long seed) {
+        Random random = new Random(seed);
+        int[] values = new int[nbNodes * (outDegree + 1)];
+        int k = 0;
+        for (int u = 1; u <= nbNodes; u++) {
+            for (int i = 0; i < outDegree; i++) {
+                values[k++] = 1 + random.nextInt(nbNodes);
+            }
+            values[k++] = 0;
+        }
+        return values;
+    }
+
+    static void benchSuccessorArray(int nbNodes, int outDegree) {
+        int[] values = randomSuccessorArray(nbNodes, outDegree, 42);
+        long start = System.nanoTime();
+        Graf g = new Graf(values);
+        long elapsed = System.nanoTime() - start;
+        System.out.println("Graf(int...) with " + g.nbNodes() + " nodes, " + g.nbEdges() + " edges: "
+                + elapsed / 1_000_000 + " ms");
+    }
+
+    static void benchBulkLoading(int[] values) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long best = Long.MAX_VALUE;
+            long bestCsr = Long.MAX_VALUE;
+            int nbNodes = 0;
+            for (int run = 0; run < 3; run++) {
+                long start = System.nanoTime();
+                Graf g = Graf.fromSuccessorArray(pool, values);
+                best = Math.min(best, System.nanoTime() - start);
+                nbNodes = g.nbNodes();
+                g = null;
+                start = System.nanoTime();
+                CsrGraf csr = CsrGraf.fromSuccessorArray(pool, values);
+                bestCsr = Math.min(bestCsr, System.nanoTime() - start);
+            }
+            pool.shutdown();
+            System.out.println(threads + " thread(s), " + nbNodes + " nodes, " + (values.length - nbNodes)
+                    + " edges: Graf " + best / 1_000_000 + " ms, CsrGraf " + bestCsr / 1_000_000 + " ms");
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Deduplicates the edges of a multigraph where every edge appears about three times,
+     * half of them with a different weight.
+     */
+    static void benchEdgeDedup(int nbNodes, int nbEdges) {
+        Random random = new Random(9);
+        Node[] nodes = new Node[nbNodes + 1];
+        for (int i = 1; i <= nbNodes; i++) {
+            nodes[i] = new Node(i);
+        }
+        Edge[] edges = new Edge[nbEdges];
+        int distinct = nbEdges / 3;
+        for (int k = 0; k < nbEdges; k++) {
+            Random pair = new Random(random.nextInt(distinct));
+            edges[k] = new Edge(nodes[1 + pair.nextInt(nbNodes)], nodes[1 + pair.nextInt(nbNodes)], random.nextInt(2));
+        }
+        for (int run = 0; run < 3; run++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            Set<Edge> set = new HashSet<>(2 * nbEdges);
+            for (Edge edge : edges) {
+                set.add(edge);
+            }
+            long elapsed = System.nanoTime() - start;
+            allocated = allocatedBytes() - allocated;
+            System.out.println("HashSet dedup of " + nbEdges + " edges into " + set.size() + ": "
+                    + elapsed / 1_000_000 + " ms, " + allocated / (1 << 20) + " MB allocated");
+        }
+    }
+
+    /**
+     * Tests, lists and removes edges of a hub whose out-list holds distinct and parallel edges.
+     */
+    static void benchHubEdges(int hubDegree, int nbQueries) {
+        Random random = new Random(11);
+        int nbTargets = hubDegree / 2;
+        Graf g = new Graf();
+        for (int i = 1; i <= nbTargets + 1; i++) {
+            g.addNode(i);
+        }
+        for (int k = 0; k < hubDegree; k++) {
+            g.addEdge(1, 2 + random.nextInt(nbTargets), random.nextInt(4));
+        }
+        long start = System.nanoTime();
+        int found = 0;
+        for (int q = 0; q < nbQueries; q++) {
+            int target = 2 + random.nextInt(nbTargets + nbTargets / 4);
+            if (g.existsEdge(1, target)) {
+                found++;
+            }
+            found += g.getEdges(1, target).size();
+        }
+        long lookups = System.nanoTime() - start;
+        start = System.nanoTime();
+        int removed = 0;
+        for (int q = 0; q < nbQueries; q++) {
+            int target = 2 + random.nextInt(nbTargets);
+            if (q % 2 == 0 ? g.removeEdge(1, target) : g.removeEdge(1, target, random.nextInt(4))) {
+                removed++;
+            }
+        }
+        long removals = System.nanoTime() - start;
+        System.out.println(nbQueries + " existsEdge + getEdges on a hub of out-degree " + hubDegree + " (" + found
+                + " hits): " + lookups / 1_000_000 + " ms");
+        System.out.println(nbQueries + " removeEdge on the hub (" + removed + " removed): "
+                + removals / 1_000_000 + " ms");
+    }
+
+    /**
+     * Compares an UndirectedGraf with a directed Graf storing every edge in both directions.
+     */
+    static void benchUndirectedMemory(int nbNodes, int outDegree) {
+        int[] values = randomSuccessorArray(nbNodes, outDegree, 13);
+        long base = usedHeap();
+        UndirectedGraf undirected = new UndirectedGraf();
+        fillFromSuccessorArray(undirected, values, false);
+        long undirectedBytes = usedHeap() - base;
+        Graf doubled = new Graf();
+        fillFromSuccessorArray(doubled, values, true);
+        long doubledBytes = usedHeap() - base - undirectedBytes;
+        System.out.println("UndirectedGraf, " + undirected.nbEdges() + " edges: " + undirectedBytes / (1 << 20) + " MB");
+        System.out.println("Graf with both directions, " + doubled.nbEdges() + " edges: " + doubledBytes / (1 << 20) + " MB");
+    }
+
+    private static void fillFromSuccessorArray(Graf g, int[] values, boolean bothDirections) {
+        int u = 1;
+        for (int v : values) {
+            if (v == 0) {
+                u++;
+                continue;
+            }
+            g.addNode(u);
+            g.addNode(v);
+            g.addEdge(u, v);
+            if (bothDirections) {
+                g.addEdge(v, u);
+            }
+        }
+    }
+
+    static void benchDegreeReport(Graf g) {
+        long start = System.nanoTime();
+        long total = 0;
+        for (Node n : g.getAllNodes()) {
+            total += g.inDegree(n) + g.outDegree(n) + g.getInEdges(n).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println("In/out degrees and in-edges of " + g.nbNodes() + " nodes (checksum " + total + "): "
+                + elapsed / 1_000_000 + " ms");
+    }
+
+    static void benchCsrMemory(int nbNodes, int outDegree) {
+        int[] values = randomSuccessorArray(nbNodes, outDegree, 11);
+        long base = usedHeap();
+        Graf g = new Graf(values);
+        long grafBytes = usedHeap() - base;
+        long start = System.nanoTime();
+        CsrGraf csr = g.toCsr();
+        long elapsed = System.nanoTime() - start;
+        long csrBytes = usedHeap() - base - grafBytes;
+        System.out.println("Graf: " + grafBytes / (1 << 20) + " MB, CsrGraf: " + csrBytes / (1 << 20) + " MB for "
+                + g.nbEdges() + "/" + csr.nbEdges() + " edges (snapshot built in " + elapsed / 1_000_000 + " ms)");
+    }
+
+    /**
+     * Breadth-first search over nodes 1..n using only the allocation-free successor iteration.
+     */
+    static class VisitorBfs implements IntConsumer {
+        final int[] dist;
+        final int[] queue;
+        int tail;
+        int level;
+
+        VisitorBfs(int nbNodes) {
+            dist = new int[nbNodes + 1];
+            queue = new int[nbNodes];
+        }
+
+        long run(graf_interface g, int source) {
+            java.util.Arrays.fill(dist, -1);
+            dist[source] = 0;
+            queue[0] = source;
+            tail = 1;
+            long sum = 0;
+            for (int head = 0; head < tail; head++) {
+                int u = queue[head];
+                level = dist[u] + 1;
+                sum += dist[u];
+                g.forEachSuccessor(u, this);
+            }
+            return sum;
+        }
+
+        @Override
+        public void accept(int v) {
+            if (dist[v] < 0) {
+                dist[v] = level;
+                queue[tail++] = v;
+            }
+        }
+    }
+
+    static long listBfs(Graf g, int nbNodes, int source) {
+        int[] dist = new int[nbNodes + 1];
+        java.util.Arrays.fill(dist, -1);
+        int[] queue = new int[nbNodes];
+        dist[source] = 0;
+        queue[0] = source;
+        int tail = 1;
+        long sum = 0;
+        for (int head = 0; head < tail; head++) {
+            int u = queue[head];
+            sum += dist[u];
+            List<Edge> outEdges = g.getOutEdges(u);
+            for (Edge edge : outEdges) {
+                int v = edge.getTo().getId();
+                if (dist[v] < 0) {
+                    dist[v] = dist[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return sum;
+    }
+
+    static void benchNeighbourIteration(Graf g) {
+        int n = g.nbNodes();
+        CsrGraf csr = g.toCsr();
+        VisitorBfs bfs = new VisitorBfs(n);
+        for (int round = 0; round < 5; round++) {
+            listBfs(g, n, 1);
+            bfs.run(g, 1);
+            bfs.run(csr, 1);
+        }
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        long listSum = listBfs(g, n, 1);
+        long listTime = System.nanoTime() - start;
+        long listBytes = allocatedBytes() - bytes;
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        long visitorSum = bfs.run(g, 1);
+        long visitorTime = System.nanoTime() - start;
+        long visitorBytes = allocatedBytes() - bytes;
+
+        bytes = allocatedBytes();
+        start = System.nanoTime();
+        long csrSum = bfs.run(csr, 1);
+        long csrTime = System.nanoTime() - start;
+        long csrBytes = allocatedBytes() - bytes;
+        System.out.println("getOutEdges + iterator:   " + listTime / 1_000 + " us, " + listBytes + " bytes allocated");
+        System.out.println("Graf.forEachSuccessor:    " + visitorTime / 1_000 + " us, " + visitorBytes + " bytes allocated");
+        System.out.println("CsrGraf.forEachSuccessor: " + csrTime / 1_000 + " us, " + csrBytes + " bytes allocated"
+                + (listSum == visitorSum && listSum == csrSum ? "" : " (distance mismatch!)"));
+    }
+
+    static void benchBreadthFirstSearch(CsrGraf csr) {
+        BreadthFirstSearch bfs = new BreadthFirstSearch(csr);
+        int[] sources = new int[BreadthFirstSearch.MAX_SOURCES];
+        Random random = new Random(19);
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = csr.nodeId(random.nextInt(csr.nbNodes()));
+        }
+        int[] distances = new int[csr.nbNodes()];
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            for (int source : sources) {
+                bfs.distances(source, distances, false);
+            }
+            long topDown = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int source : sources) {
+                bfs.distances(source, distances, true);
+            }
+            long directionOptimizing = System.nanoTime() - start;
+            int[][] all = new int[sources.length][csr.nbNodes()];
+            start = System.nanoTime();
+            bfs.multiSourceDistances(sources, all);
+            long multiSource = System.nanoTime() - start;
+            System.out.println(sources.length + " BFS on " + csr.nbNodes() + " nodes, " + csr.nbEdges() + " edges: top-down "
+                    + topDown / 1_000_000 + " ms, direction-optimizing " + directionOptimizing / 1_000_000
+                    + " ms, multi-source " + multiSource / 1_000_000 + " ms");
+        }
+    }
+
+    static void benchParallelTraversal(Graf g) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ParallelTraversal traversal = new ParallelTraversal(g, pool);
+            long bestBfs = Long.MAX_VALUE;
+            long bestReach = Long.MAX_VALUE;
+            int reached = 0;
+            for (int run = 0; run < 3; run++) {
+                long start = System.nanoTime();
+                traversal.bfsDistances(1);
+                bestBfs = Math.min(bestBfs, System.nanoTime() - start);
+                start = System.nanoTime();
+                boolean[] reachable = traversal.reachable(1);
+                bestReach = Math.min(bestReach, System.nanoTime() - start);
+                reached = 0;
+                for (boolean r : reachable) {
+                    reached += r ? 1 : 0;
+                }
+            }
+            pool.shutdown();
+            System.out.println(threads + " thread(s), " + g.nbNodes() + " nodes, " + reached + " reached: BFS "
+                    + bestBfs / 1_000_000 + " ms, reachability " + bestReach / 1_000_000 + " ms");
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Dijkstra on the Graf lists with a PriorityQueue of boxed entries, the baseline of benchShortestPaths.
+     */
+    static long boxedDijkstra(Graf g, Node source, Node target) {
+        Map<Node, Long> distances = new HashMap<>();
+        PriorityQueue<Map.Entry<Node, Long>> queue = new PriorityQueue<>(Map.Entry.comparingByValue());
+        distances.put(source, 0L);
+        queue.add(new AbstractMap.SimpleEntry<>(source, 0L));
+        while (!queue.isEmpty()) {
+            Map.Entry<Node, Long> entry = queue.poll();
+            Node u = entry.getKey();
+            if (entry.getValue() > distances.get(u)) {
+                continue;
+            }
+            if (u.equals(target)) {
+                return entry.getValue();
+            }
+            for (Edge edge : g.getOutEdges(u)) {
+                long dv = entry.getValue() + edge.getWeight();
+                Long known = distances.get(edge.getTo());
+                if (known == null || dv < known) {
+                    distances.put(edge.getTo(), dv);
+                    queue.add(new AbstractMap.SimpleEntry<>(edge.getTo(), dv));
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds a random graph of nodes 1..n whose edges have weights in 1..100.
+     */
+    static Graf randomWeightedGraf(int nbNodes, int outDegree, Random random) {
+        Graf g = new Graf();
+        for (int i = 1; i <= nbNodes; i++) {
+            g.addNode(i);
+        }
+        for (int u = 1; u <= nbNodes; u++) {
+            for (int k = 0; k < outDegree; k++) {
+                g.addEdge(u, 1 + random.nextInt(nbNodes), 1 + random.nextInt(100));
+            }
+        }
+        return g;
+    }
+
+    static void benchShortestPaths(int nbNodes, int outDegree, int nbQueries) {
+        Random random = new Random(29);
+        Graf g = randomWeightedGraf(nbNodes, outDegree, random);
+        ShortestPaths paths = new ShortestPaths(g.toCsr());
+        int[] queries = new int[2 * nbQueries];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = 1 + random.nextInt(nbNodes);
+        }
+        for (int run = 0; run < 2; run++) {
+            long checksum = 0;
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int q = 0; q < nbQueries; q++) {
+                checksum += boxedDijkstra(g, g.getNode(queries[2 * q]), g.getNode(queries[2 * q + 1]));
+            }
+            long boxed = System.nanoTime() - start;
+            long boxedBytes = allocatedBytes() - allocated;
+            allocated = allocatedBytes();
+            start = System.nanoTime();
+            for (int q = 0; q < nbQueries; q++) {
+                checksum -= paths.distance(queries[2 * q], queries[2 * q + 1]);
+            }
+            long dijkstra = System.nanoTime() - start;
+            long dijkstraBytes = allocatedBytes() - allocated;
+            start = System.nanoTime();
+            for (int q = 0; q < nbQueries; q++) {
+                checksum += paths.bidirectionalDistance(queries[2 * q], queries[2 * q + 1]);
+            }
+            long bidirectional = System.nanoTime() - start;
+            System.out.println(nbQueries + " queries on " + nbNodes + " nodes (checksum " + checksum + "): boxed "
+                    + boxed / 1_000_000 + " ms (" + boxedBytes / nbQueries / 1024 + " KB/query), Dijkstra "
+                    + dijkstra / 1_000_000 + " ms (" + dijkstraBytes / nbQueries + " B/query), bidirectional "
+                    + bidirectional / 1_000_000 + " ms");
+        }
+    }
+
+    static void benchDeltaStepping(Graf g) {
+        long start = System.nanoTime();
+        long[] expected = new ShortestPaths(g.toCsr()).distances(1);
+        System.out.println("Sequential Dijkstra on " + g.nbNodes() + " nodes, " + g.nbEdges() + " edges: "
+                + (System.nanoTime() - start) / 1_000_000 + " ms (CSR snapshot included)");
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            DeltaStepping solver = new DeltaStepping(g, pool);
+            long best = Long.MAX_VALUE;
+            boolean same = true;
+            for (int run = 0; run < 3; run++) {
+                start = System.nanoTime();
+                long[] distances = solver.distances(1);
+                best = Math.min(best, System.nanoTime() - start);
+                same &= Arrays.equals(expected, distances);
+            }
+            pool.shutdown();
+            System.out.println(threads + " thread(s), delta " + solver.getDelta() + ": " + best / 1_000_000 + " ms"
+                    + (same ? "" : " (DISTANCES DIFFER)"));
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Successor array of a single cycle 1 -> 2 -> ... -> n -> 1, whose depth-first search is n deep.
+     */
+    static int[] cycleSuccessorArray(int nbNodes) {
+        int[] values = new int[2 * nbNodes];
+        for (int i = 0; i < nbNodes; i++) {
+            values[2 * i] = i + 2 > nbNodes ? 1 : i + 2;
+        }
+        return values;
+    }
+
+    static void benchStronglyConnectedComponents(CsrGraf csr) {
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            StronglyConnectedComponents scc = new StronglyConnectedComponents(csr);
+            long tarjan = System.nanoTime() - start;
+            start = System.nanoTime();
+            Graf condensation = scc.condensation();
+            long condense = System.nanoTime() - start;
+            int largest = 0;
+            int[] sizes = new int[scc.count() + 1];
+            for (int c : scc.components()) {
+                largest = Math.max(largest, ++sizes[c]);
+            }
+            System.out.println(csr.nbNodes() + " nodes, " + csr.nbEdges() + " edges: " + scc.count()
+                    + " components (largest " + largest + ") in " + tarjan / 1_000_000 + " ms, condensation with "
+                    + condensation.nbEdges() + " edges in " + condense / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * Builds a random weighted DAG: every edge goes from a node to a larger one.
+     */
+    static Graf randomWeightedDag(int nbNodes, int outDegree, Random random) {
+        Graf g = new Graf();
+        for (int i = 1; i <= nbNodes; i++) {
+            g.addNode(i);
+        }
+        for (int u = 1; u < nbNodes; u++) {
+            for (int k = 0; k < outDegree; k++) {
+                g.addEdge(u, u + 1 + random.nextInt(nbNodes - u), 1 + random.nextInt(100));
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Kahn's algorithm on the Graf lists with a HashMap of remaining in-degrees, the baseline of benchTopologicalSort.
+     */
+    static int listTopologicalSort(Graf g) {
+        Map<Node, Integer> inDegrees = new HashMap<>();
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        for (Node n : g.getAllNodes()) {
+            int inDegree = g.inDegree(n);
+            inDegrees.put(n, inDegree);
+            if (inDegree == 0) {
+                queue.add(n);
+            }
+        }
+        int sorted = 0;
+        while (!queue.isEmpty()) {
+            Node u = queue.poll();
+            sorted++;
+            for (Edge edge : g.getOutEdges(u)) {
+                if (inDegrees.merge(edge.getTo(), -1, Integer::sum) == 0) {
+                    queue.add(edge.getTo());
+                }
+            }
+        }
+        return sorted;
+    }
+
+    static void benchTopologicalSort(Graf g) {
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            int listSorted = listTopologicalSort(g);
+            long list = System.nanoTime() - start;
+            start = System.nanoTime();
+            CsrGraf csr = g.toCsr();
+            long snapshot = System.nanoTime() - start;
+            start = System.nanoTime();
+            TopologicalSort sort = new TopologicalSort(csr);
+            long kahn = System.nanoTime() - start;
+            start = System.nanoTime();
+            int[] critical = sort.longestPath();
+            long longest = System.nanoTime() - start;
+            System.out.println(g.nbNodes() + " nodes, " + g.nbEdges() + " edges: list Kahn " + list / 1_000_000
+                    + " ms, CSR snapshot " + snapshot / 1_000_000 + " ms + Kahn " + kahn / 1_000_000
+                    + " ms, longest path of " + critical.length + " nodes " + longest / 1_000_000 + " ms"
+                    + (sort.isAcyclic() && listSorted == g.nbNodes() ? "" : " (NOT SORTED)"));
+        }
+    }
+
+    /**
+     * PageRank iterations over getInEdges with boxed ranks, the baseline of benchPageRank.
+     */
+    static Map<Node, Double> listPageRank(Graf g, double damping, int nbIterations) {
+        List<Node> nodes = g.getAllNodes();
+        Map<Node, Double> ranks = new HashMap<>();
+        for (Node n : nodes) {
+            ranks.put(n, 1.0 / nodes.size());
+        }
+        for (int i = 0; i < nbIterations; i++) {
+            double dangling = 0;
+            for (Node n : nodes) {
+                if (g.outDegree(n) == 0) {
+                    dangling += ranks.get(n);
+                }
+            }
+            Map<Node, Double> next = new HashMap<>();
+            for (Node n : nodes) {
+                double sum = 0;
+                for (Edge edge : g.getInEdges(n)) {
+                    sum += ranks.get(edge.getFrom()) / g.outDegree(edge.getFrom());
+                }
+                next.put(n, damping * sum + (damping * dangling + 1 - damping) / nodes.size());
+            }
+            ranks = next;
+        }
+        return ranks;
+    }
+
+    static void benchPageRank(Graf g, int nbIterations) {
+        long start = System.nanoTime();
+        Map<Node, Double> expected = listPageRank(g, 0.85, nbIterations);
+        long list = System.nanoTime() - start;
+        CsrGraf csr = g.toCsr();
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(g.nbNodes() + " nodes, " + g.nbEdges() + " edges, " + nbIterations
+                + " iterations: getInEdges loop " + list / 1_000_000 + " ms");
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            PageRank pageRank = new PageRank(csr, pool);
+            long best = Long.MAX_VALUE;
+            double[] ranks = null;
+            for (int run = 0; run < 3; run++) {
+                start = System.nanoTime();
+                ranks = pageRank.ranks(0.85, 0, nbIterations);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            double error = 0;
+            for (Node n : g.getAllNodes()) {
+                error = Math.max(error, Math.abs(ranks[pageRank.nodeIndex(n.getId())] - expected.get(n)));
+            }
+            // The result copy is allocated by both runs: the difference is what the extra iterations allocate
+            long bytes = allThreadsAllocatedBytes();
+            pageRank.ranks(0.85, 0, nbIterations);
+            long shortRun = allThreadsAllocatedBytes() - bytes;
+            bytes = allThreadsAllocatedBytes();
+            pageRank.ranks(0.85, 0, 2 * nbIterations);
+            long longRun = allThreadsAllocatedBytes() - bytes;
+            start = System.nanoTime();
+            pageRank.ranks(0.85, 1e-9, 1000);
+            long converged = System.nanoTime() - start;
+            pool.shutdown();
+            System.out.println(threads + " thread(s): " + best / 1_000_000 + " ms (max error " + error + ", "
+                    + Math.max(0, longRun - shortRun) / nbIterations + " bytes/iteration), tolerance 1e-9 reached in "
+                    + pageRank.getIterations() + " iterations, " + converged / 1_000_000 + " ms");
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Checks if two nodes are connected with a BFS over the incident edges, the baseline of benchConnectivity.
+     */
+    static boolean listConnected(Graf g, Node u, Node v) {
+        Set<Node> visited = new HashSet<>();
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        visited.add(u);
+        queue.add(u);
+        while (!queue.isEmpty()) {
+            Node n = queue.poll();
+            if (n.equals(v)) {
+                return true;
+            }
+            for (Edge edge : g.getIncidentEdges(n)) {
+                Node other = edge.getFrom().equals(n) ? edge.getTo() : edge.getFrom();
+                if (visited.add(other)) {
+                    queue.add(other);
+                }
+            }
+        }
+        return false;
+    }
+
+    static void benchConnectivity(int nbNodes, int nbEdges, int nbQueries) {
+        for (boolean tracked : new boolean[]{false, true}) {
+            Graf g = new Graf();
+            for (int i = 1; i <= nbNodes; i++) {
+                g.addNode(i);
+            }
+            if (tracked) {
+                g.connectivity();
+            }
+            Random random = new Random(47);
+            long start = System.nanoTime();
+            for (int i = 0; i < nbEdges; i++) {
+                g.addEdge(1 + random.nextInt(nbNodes), 1 + random.nextInt(nbNodes));
+            }
+            long insertion = System.nanoTime() - start;
+            System.out.print(nbEdges + " addEdge " + (tracked ? "with" : "without") + " connectivity: "
+                    + insertion / 1_000_000 + " ms");
+            if (!tracked) {
+                int nbListQueries = Math.max(1, nbQueries / 10_000);
+                start = System.nanoTime();
+                for (int i = 0; i < nbListQueries; i++) {
+                    listConnected(g, g.getNode(1 + random.nextInt(nbNodes)), g.getNode(1 + random.nextInt(nbNodes)));
+                }
+                System.out.println(", BFS query " + (System.nanoTime() - start) / nbListQueries / 1_000 + " us");
+                continue;
+            }
+            Connectivity connectivity = g.connectivity();
+            int connected = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < nbQueries; i++) {
+                connected += connectivity.connected(1 + random.nextInt(nbNodes), 1 + random.nextInt(nbNodes)) ? 1 : 0;
+            }
+            long queries = System.nanoTime() - start;
+            Edge removed = g.getAllEdges().get(0);
+            g.removeEdge(removed.getFrom(), removed.getTo());
+            start = System.nanoTime();
+            int count = connectivity.count();
+            long rebuild = System.nanoTime() - start;
+            System.out.println(", " + nbQueries + " queries " + queries / 1_000_000 + " ms (" + connected
+                    + " connected), " + count + " components rebuilt after a removal in " + rebuild / 1_000_000 + " ms");
+        }
+    }
+
+    static void benchComponentLabelling(int nbNodes, int nbEdges) {
+        Random random = new Random(53);
+        int[] sources = new int[nbEdges];
+        int[] targets = new int[nbEdges];
+        for (int i = 0; i < nbEdges; i++) {
+            sources[i] = random.nextInt(nbNodes);
+            targets[i] = random.nextInt(nbNodes);
+        }
+        long start = System.nanoTime();
+        UnionFind sets = new UnionFind(nbNodes);
+        for (int i = 0; i < nbEdges; i++) {
+            sets.union(sources[i], targets[i]);
+        }
+        System.out.println(nbNodes + " nodes, " + nbEdges + " edges: sequential union-find "
+                + (System.nanoTime() - start) / 1_000_000 + " ms, " + sets.count() + " components");
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long best = Long.MAX_VALUE;
+            int count = 0;
+            for (int run = 0; run < 3; run++) {
+                start = System.nanoTime();
+                ConcurrentUnionFind concurrent = new ConcurrentUnionFind(nbNodes);
+                concurrent.unionAll(pool, sources, targets);
+                int[] labels = concurrent.labels(pool);
+                best = Math.min(best, System.nanoTime() - start);
+                count = 0;
+                for (int v = 0; v < nbNodes; v++) {
+                    count += labels[v] == v ? 1 : 0;
+                }
+            }
+            pool.shutdown();
+            System.out.println(threads + " thread(s): concurrent union-find and labels " + best / 1_000_000 + " ms"
+                    + (count == sets.count() ? "" : " (COMPONENT COUNT DIFFERS)"));
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Builds a successor array whose edges join nodes at most window apart, which closes many triangles.
+     */
+    static int[] randomClusteredSuccessorArray(int nbNodes, int outDegree, int window, long seed) {
+        Random random = new Random(seed);
+        int[] values = new int[nbNodes * (outDegree + 1)];
+        int k = 0;
+        for (int u = 1; u <= nbNodes; u++) {
+            for (int i = 0; i < outDegree; i++) {
+                int v = u - window + random.nextInt(2 * window + 1);
+                values[k++] = Math.max(1, Math.min(nbNodes, v));
+            }
+            k++;
+        }
+        return values;
+    }
+
+    /**
+     * Counts the triangles through every node with neighbour hash sets, the baseline of benchTriangles.
+     */
+    static long listTriangles(Graf g) {
+        Map<Node, Set<Node>> neighbours = new HashMap<>();
+        for (Node n : g.getAllNodes()) {
+            Set<Node> set = new HashSet<>();
+            for (Edge edge : g.getIncidentEdges(n)) {
+                set.add(edge.getFrom());
+                set.add(edge.getTo());
+            }
+            set.remove(n);
+            neighbours.put(n, set);
+        }
+        long total = 0;
+        for (Node u : g.getAllNodes()) {
+            Set<Node> around = neighbours.get(u);
+            for (Node v : around) {
+                for (Node w : neighbours.get(v)) {
+                    if (around.contains(w)) {
+                        total++;
+                    }
+                }
+            }
+        }
+        return total / 6;
+    }
+
+    static void benchTriangles(Graf g) {
+        long start = System.nanoTime();
+        long expected = listTriangles(g);
+        long list = System.nanoTime() - start;
+        CsrGraf csr = g.toCsr();
+        start = System.nanoTime();
+        Triangles sequential = new Triangles(csr);
+        long merge = System.nanoTime() - start;
+        System.out.println(g.nbNodes() + " nodes, " + g.nbEdges() + " edges, " + sequential.count()
+                + " triangles (average clustering " + String.format("%.3f", sequential.averageClusteringCoefficient())
+                + "): hash sets " + list / 1_000_000 + " ms, sorted merge " + merge / 1_000_000 + " ms"
+                + (expected == sequential.count() ? "" : " (COUNT DIFFERS)"));
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long best = Long.MAX_VALUE;
+            long count = 0;
+            for (int run = 0; run < 3; run++) {
+                start = System.nanoTime();
+                count = new Triangles(csr, pool).count();
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+            System.out.println(threads + " thread(s): " + best / 1_000_000 + " ms"
+                    + (count == expected ? "" : " (COUNT DIFFERS)"));
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Runs a mix of existsEdge/outDegree reads and addEdge/removeEdge writes on random nodes from
+     * several threads, and returns the throughput in operations per second.
+     */
+    static long mixedLoad(graf_interface g, Runnable lock, Runnable unlock, Runnable writeLock, Runnable writeUnlock,
+                          int nbNodes, int nbOperations, int threads, int readPercent) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = 61 + t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < nbOperations / threads; i++) {
+                    int u = 1 + random.nextInt(nbNodes);
+                    int v = 1 + random.nextInt(nbNodes);
+                    int op = random.nextInt(100);
+                    if (op < readPercent) {
+                        lock.run();
+                        try {
+                            if (!g.existsEdge(u, v)) {
+                                g.outDegree(u);
+                            }
+                        } finally {
+                            unlock.run();
+                        }
+                    } else {
+                        writeLock.run();
+                        try {
+                            if ((op & 1) == 0) {
+                                g.addEdge(u, v);
+                            } else {
+                                g.removeEdge(u, v);
+                            }
+                        } finally {
+                            writeUnlock.run();
+                        }
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return nbOperations * 1_000_000_000L / (System.nanoTime() - start);
+    }
+
+    static void benchConcurrentGraf(int nbNodes, int nbOperations) throws InterruptedException {
+        Runnable none = () -> {
+        };
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int readPercent : new int[]{50, 90, 99}) {
+            for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+                Graf g = new Graf(randomSuccessorArray(nbNodes, 4, 67));
+                java.util.concurrent.locks.ReentrantReadWriteLock global = new java.util.concurrent.locks.ReentrantReadWriteLock();
+                long locked = mixedLoad(g, global.readLock()::lock, global.readLock()::unlock,
+                        global.writeLock()::lock, global.writeLock()::unlock, nbNodes, nbOperations, threads, readPercent);
+                ConcurrentGraf concurrent = new ConcurrentGraf();
+                for (int u = 1; u <= nbNodes; u++) {
+                    concurrent.addNode(u);
+                }
+                for (Edge edge : g.getAllEdges()) {
+                    concurrent.addEdge(edge.getFrom().getId(), edge.getTo().getId());
+                }
+                long striped = mixedLoad(concurrent, none, none, none, none, nbNodes, nbOperations, threads, readPercent);
+                System.out.println(readPercent + "% reads, " + threads + " thread(s): Graf behind one lock "
+                        + locked / 1_000 + " kops/s, ConcurrentGraf " + striped / 1_000 + " kops/s");
+                if (threads == cores) {
+                    break;
+                }
+            }
+        }
+    }
+
+    static void benchStatsPolling(Graf g, int nbPolls) {
+        // What a dashboard poll cost when every figure was recomputed from the lists
+        long start = System.nanoTime();
+        long checksum = 0;
+        int nbScans = 3;
+        for (int i = 0; i < nbScans; i++) {
+            int edges = 0;
+            int smallest = Integer.MAX_VALUE;
+            int largest = Integer.MIN_VALUE;
+            Map<Integer, Integer> histogram = new HashMap<>();
+            for (Node n : g.getAllNodes()) {
+                edges += g.getOutEdges(n).size();
+                smallest = Math.min(smallest, n.getId());
+                largest = Math.max(largest, n.getId());
+                histogram.merge(g.degree(n), 1, Integer::sum);
+            }
+            checksum += edges + smallest + largest + histogram.size();
+        }
+        long scan = (System.nanoTime() - start) / nbScans;
+        GrafStats stats = g.stats();
+        start = System.nanoTime();
+        for (int i = 0; i < nbPolls; i++) {
+            checksum += stats.nbEdges() + stats.smallestNodeId() + stats.largestNodeId() + stats.degreeHistogram().length;
+        }
+        long poll = (System.nanoTime() - start) / nbPolls;
+        start = System.nanoTime();
+        for (int i = 0; i < nbPolls; i++) {
+            g.removeNode(1 + i);
+            g.addNode(1 + i);
+            g.addEdge(1 + i, 2 + i);
+        }
+        long mutations = (System.nanoTime() - start) / nbPolls;
+        System.out.println(g.nbNodes() + " nodes, " + g.nbEdges() + " edges (checksum " + checksum % 10 + "): scan "
+                + scan / 1_000 + " us/poll, GrafStats " + poll + " ns/poll, removeNode+addNode+addEdge "
+                + mutations / 1_000 + " us, max degree " + stats.maxDegree());
+    }
+
+    static void benchBatch(int nbNodes, int nbDeltas) {
+        Random random = new Random(73);
+        int[] from = new int[nbDeltas];
+        int[] to = new int[nbDeltas];
+        int[] weights = new int[nbDeltas];
+        for (int i = 0; i < nbDeltas; i++) {
+            from[i] = 1 + random.nextInt(nbNodes);
+            to[i] = 1 + random.nextInt(nbNodes);
+            weights[i] = random.nextInt(100);
+        }
+        Graf perCall = new Graf();
+        Graf batched = new Graf();
+        for (int id = 1; id <= nbNodes; id++) {
+            perCall.addNode(id);
+            batched.addNode(id);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < nbDeltas; i++) {
+            perCall.addEdge(from[i], to[i], weights[i]);
+        }
+        long addCalls = System.nanoTime() - start;
+        start = System.nanoTime();
+        new GrafBatch(batched).addEdges(from, to, weights).apply();
+        long addBatch = System.nanoTime() - start;
+
+        // Remove every other delta, shuffled
+        int nbRemovals = nbDeltas / 2;
+        int[] removedFrom = new int[nbRemovals];
+        int[] removedTo = new int[nbRemovals];
+        for (int i = 0; i < nbRemovals; i++) {
+            int k = random.nextInt(nbDeltas);
+            removedFrom[i] = from[k];
+            removedTo[i] = to[k];
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < nbRemovals; i++) {
+            perCall.removeEdge(removedFrom[i], removedTo[i]);
+        }
+        long removeCalls = System.nanoTime() - start;
+        start = System.nanoTime();
+        new GrafBatch(batched).removeEdges(removedFrom, removedTo).apply();
+        long removeBatch = System.nanoTime() - start;
+        System.out.println(nbNodes + " nodes, " + nbDeltas + " insertions: addEdge " + addCalls / 1_000_000
+                + " ms, GrafBatch " + addBatch / 1_000_000 + " ms; " + nbRemovals + " removals: removeEdge "
+                + removeCalls / 1_000_000 + " ms, GrafBatch " + removeBatch / 1_000_000 + " ms; "
+                + perCall.nbEdges() + " = " + batched.nbEdges() + " edges left");
+    }
+
+    static void benchOffHeap(int nbNodes, int outDegree) {
+        int[] values = randomSuccessorArray(nbNodes, outDegree, 79);
+        long base = usedHeap();
+        long gcBase = gcMillis();
+        long start = System.nanoTime();
+        Graf graf = new Graf();
+        fillFromSuccessorArray(graf, values, false);
+        long grafBuild = System.nanoTime() - start;
+        long grafGc = gcMillis() - gcBase;
+        long grafBytes = usedHeap() - base;
+        start = System.nanoTime();
+        long grafSum = sumSuccessors(graf, nbNodes);
+        long grafSweep = System.nanoTime() - start;
+        System.out.println("Graf, " + graf.nbEdges() + " edges: build " + grafBuild / 1_000_000 + " ms (GC "
+                + grafGc + " ms), heap " + grafBytes / (1 << 20) + " MB, successor sweep " + grafSweep / 1_000_000 + " ms");
+        graf = null;
+
+        base = usedHeap();
+        long mappedBase = mappedBytes();
+        gcBase = gcMillis();
+        start = System.nanoTime();
+        OffHeapGraf offHeap = new OffHeapGraf();
+        int u = 1;
+        for (int v : values) {
+            if (v == 0) {
+                u++;
+                continue;
+            }
+            offHeap.addNode(u);
+            offHeap.addNode(v);
+            offHeap.addEdge(u, v);
+        }
+        long offHeapBuild = System.nanoTime() - start;
+        long offHeapGc = gcMillis() - gcBase;
+        long offHeapBytes = Math.max(0, usedHeap() - base);
+        start = System.nanoTime();
+        long offHeapSum = sumSuccessors(offHeap, nbNodes);
+        long offHeapSweep = System.nanoTime() - start;
+        System.out.println("OffHeapGraf, " + offHeap.nbEdges() + " edges: build " + offHeapBuild / 1_000_000
+                + " ms (GC " + offHeapGc + " ms), heap " + offHeapBytes / (1 << 20) + " MB, mapped "
+                + (mappedBytes() - mappedBase) / (1 << 20) + " MB, successor sweep " + offHeapSweep / 1_000_000
+                + " ms" + (offHeapSum == grafSum ? "" : " (sums differ)"));
+        offHeap.close();
+    }
+
+    private static long sumSuccessors(graf_interface g, int nbNodes) {
+        long[] sum = new long[1];
+        for (int id = 1; id <= nbNodes; id++) {
+            g.forEachSuccessor(id, v -> sum[0] += v);
+        }
+        return sum[0];
+    }
+
+    static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += collector.getCollectionTime();
+        }
+        return millis;
+    }
+
+    static long mappedBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("mapped")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    static void benchSnapshots(Graf g, int nbRounds, int nbChanges) {
+        // What a consistent read-only copy cost before: an O(E) copy of every list
+        long start = System.nanoTime();
+        CsrGraf copy = g.toCsr();
+        long copyTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        GrafSnapshot first = g.snapshot();
+        long firstTime = System.nanoTime() - start;
+        Random random = new Random(83);
+        int n = g.nbNodes();
+        long snapshotTime = 0;
+        GrafSnapshot last = first;
+        for (int round = 0; round < nbRounds; round++) {
+            for (int i = 0; i < nbChanges; i++) {
+                int u = 1 + random.nextInt(n);
+                int v = 1 + random.nextInt(n);
+                if (random.nextBoolean()) {
+                    g.addEdge(u, v);
+                } else {
+                    g.removeEdge(u, g.getOutEdges(g.getNode(u)).isEmpty() ? v : g.getOutEdges(g.getNode(u)).get(0).getTo().getId());
+                }
+            }
+            start = System.nanoTime();
+            last = g.snapshot();
+            snapshotTime += System.nanoTime() - start;
+        }
+        System.out.println(g.nbNodes() + " nodes, " + g.nbEdges() + " edges: toCsr copy " + copyTime / 1_000_000
+                + " ms (" + copy.nbEdges() + " edges), first snapshot " + firstTime / 1_000_000 + " ms, then "
+                + snapshotTime / nbRounds / 1_000 + " us per snapshot after " + nbChanges + " changes (version "
+                + last.version() + ", first still has " + first.nbEdges() + " edges)");
+    }
+
+    static void benchHubSnapshots(int degree, int nbRounds) {
+        // One node linked to every other: a snapshot copying whole lists would copy its lists
+        Graf g = new Graf();
+        Node hub = new Node(0);
+        for (int i = 1; i <= degree; i++) {
+            g.addEdge(hub, new Node(i), 0);
+            g.addEdge(new Node(i), hub, 0);
+        }
+        long start = System.nanoTime();
+        g.snapshot();
+        long firstTime = System.nanoTime() - start;
+        Random random = new Random(97);
+        long snapshotTime = 0;
+        for (int round = 0; round < nbRounds; round++) {
+            g.addEdge(0, 1 + random.nextInt(degree));
+            g.addEdge(1 + random.nextInt(degree), 0);
+            start = System.nanoTime();
+            g.snapshot();
+            snapshotTime += System.nanoTime() - start;
+        }
+        System.out.println("hub of degree " + g.degree(hub) + ": first snapshot " + firstTime / 1_000_000
+                + " ms, then " + snapshotTime / nbRounds / 1_000 + " us per snapshot after an edge in and an edge out of the hub");
+    }
+
+    static void benchDotImport(Graf g) {
+        try {
+            File file = File.createTempFile("bench", ".gv");
+            file.deleteOnExit();
+            String name = file.getPath().substring(0, file.getPath().length() - 3);
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            g.toDotFile(name);
+            long elapsed = System.nanoTime() - start;
+            System.out.println("toDotFile: " + file.length() / (1 << 20) + " MB in " + elapsed / 1_000_000 + " ms, "
+                    + (allocatedBytes() - bytes) / (1 << 10) + " KB allocated");
+            start = System.nanoTime();
+            Graf read = Graf.fromDotFile(name);
+            elapsed = System.nanoTime() - start;
+            System.out.println("fromDotFile: " + read.nbEdges() + " edges, " + file.length() / (1 << 20) + " MB in "
+                    + elapsed / 1_000_000 + " ms (" + file.length() * 1000L / Math.max(1, elapsed) + " MB/s)");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static void benchBinary(Graf g) {
+        try {
+            File file = File.createTempFile("bench", ".grf");
+            file.deleteOnExit();
+            String name = file.getPath().substring(0, file.getPath().length() - 4);
+            long start = System.nanoTime();
+            g.toBinaryFile(name);
+            long elapsed = System.nanoTime() - start;
+            System.out.println("toBinaryFile: " + file.length() / (1 << 20) + " MB in " + elapsed / 1_000_000 + " ms");
+            start = System.nanoTime();
+            CsrGraf csr = CsrGraf.fromBinaryFile(file.getPath());
+            elapsed = System.nanoTime() - start;
+            System.out.println("CsrGraf.fromBinaryFile: " + csr.nbEdges() + " edges in " + elapsed / 1_000_000 + " ms");
+            start = System.nanoTime();
+            Graf read = Graf.fromBinaryFile(name);
+            elapsed = System.nanoTime() - start;
+            System.out.println("Graf.fromBinaryFile: " + read.nbEdges() + " edges in " + elapsed / 1_000_000 + " ms");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
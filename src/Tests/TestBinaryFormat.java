@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks that graphs saved in the binary format load back unchanged, and that corrupted files
+ * are rejected.
+ */
+public class TestBinaryFormat {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Describes the edges of a graph, sorted, with the names of their ends.
+     */
+    private static List<String> describe(graf_interface g) {
+        List<String> edges = new ArrayList<>();
+        for (Node n : g.getAllNodes()) {
+            edges.add(n.getId() + "(" + n.getName() + ")");
+            for (Edge edge : g.getOutEdges(n.getId())) {
+                edges.add(edge.getFrom().getId() + ">" + edge.getTo().getId() + "/" + edge.getWeight());
+            }
+        }
+        Collections.sort(edges);
+        return edges;
+    }
+
+    /**
+     * Describes the row of a CSR graph at a dense index, in order, with the weights.
+     */
+    private static String row(CsrGraf g, int index) {
+        StringBuilder sb = new StringBuilder();
+        for (Edge edge : g.getOutEdges(g.nodeId(index))) {
+            sb.append(edge.getTo().getId()).append('/').append(edge.getWeight()).append(',');
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("graf");
+        String base = directory.resolve("graph").toString();
+
+        System.out.println(">>>>>>>> Round trip of a random weighted graph");
+        Random random = new Random(7);
+        Graf g = new Graf();
+        for (int i = 0; i < 2000; i++) {
+            g.addEdge(new Node(random.nextInt(500) - 20), new Node(random.nextInt(500) - 20), random.nextInt(5));
+        }
+        g.addNode(1000);
+        g.toBinaryFile(base);
+        Graf loaded = Graf.fromBinaryFile(base);
+        check(loaded.isDirected() && describe(loaded).equals(describe(g)), "same nodes and edges after loading");
+        CsrGraf csr = CsrGraf.fromBinaryFile(base + ".grf");
+        check(describe(csr).equals(describe(g)), "same nodes and edges in CSR form");
+
+        System.out.println(">>>>>>>> Round trip of an undirected graph");
+        UndirectedGraf u = new UndirectedGraf();
+        u.addEdge(new Node(1), new Node(2), 0);
+        u.addEdge(new Node(2), new Node(3), 0);
+        u.addEdge(new Node(3), new Node(3), 0);
+        u.toBinaryFile(base);
+        loaded = Graf.fromBinaryFile(base);
+        check(!loaded.isDirected() && describe(loaded).equals(describe(u)), "loaded as an UndirectedGraf");
+        for (int i = 0; i < 300; i++) {
+            u.addEdge(new Node(random.nextInt(40)), new Node(random.nextInt(40)), random.nextInt(3));
+        }
+        u.addNode(100);
+        u.toBinaryFile(base);
+        csr = CsrGraf.fromBinaryFile(base + ".grf");
+        CsrGraf expected = u.toCsr();
+        boolean sameRows = csr.nbNodes() == expected.nbNodes();
+        for (int i = 0; sameRows && i < csr.nbNodes(); i++) {
+            sameRows = csr.nodeId(i) == expected.nodeId(i)
+                    && row(csr, i).equals(row(expected, i));
+        }
+        check(sameRows, "same rows in CSR form as UndirectedGraf.toCsr(), self-loops and multi-edges included");
+
+        System.out.println(">>>>>>>> A row of targets out of order");
+        g = new Graf();
+        g.addEdge(new Node(1), new Node(2), 0);
+        g.addEdge(new Node(1), new Node(3), 0);
+        g.toBinaryFile(base);
+        // Header of 24 bytes, 3 ids and 4 offsets, then the targets of node 1: indices 1 and 2
+        try (RandomAccessFile file = new RandomAccessFile(base + ".grf", "rw")) {
+            file.seek(24 + 4 * 3 + 4 * 4);
+            file.writeInt(Integer.reverseBytes(2));
+            file.writeInt(Integer.reverseBytes(1));
+        }
+        try {
+            CsrGraf.fromBinaryFile(base + ".grf");
+            check(false, "unsorted row rejected");
+        } catch (IOException e) {
+            check(e.getMessage().endsWith("edge targets of node 1 are not sorted"), "unsorted row rejected");
+        }
+
+        Files.deleteIfExists(directory.resolve("graph.grf"));
+        Files.deleteIfExists(directory);
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks the distances of BreadthFirstSearch, from one source in both directions of search and
+ * from up to 64 sources at once, against a plain queue-based search.
+ */
+public class TestBreadthFirstSearch {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Computes the distances from a node by dense index, -1 for the nodes not reached.
+     */
+    static int[] distances(CsrGraf graph, int sourceId) {
+        int[] distances = new int[graph.nbNodes()];
+        Arrays.fill(distances, -1);
+        int source = graph.nodeIndex(sourceId);
+        if (source < 0) {
+            return distances;
+        }
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        distances[source] = 0;
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            graph.forEachSuccessor(graph.nodeId(u), targetId -> {
+                int v = graph.nodeIndex(targetId);
+                if (distances[v] < 0) {
+                    distances[v] = distances[u] + 1;
+                    queue.add(v);
+                }
+            });
+        }
+        return distances;
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 300 random graphs, directed and undirected, up to 5000 nodes");
+        Random random = new Random(12);
+        for (int run = 0; run < 300; run++) {
+            int nbNodes = 1 + random.nextInt(run < 250 ? 50 : 5000);
+            int degree = 1 + random.nextInt(12);
+            Graf g = run % 3 == 0 ? new UndirectedGraf() : new Graf();
+            for (int i = 1; i <= nbNodes; i++) {
+                g.addNode(3 * i);
+            }
+            for (int k = 0; k < nbNodes * degree / 2; k++) {
+                g.addEdge(3 * (1 + random.nextInt(nbNodes)), 3 * (1 + random.nextInt(nbNodes)));
+            }
+            CsrGraf csr = g.toCsr();
+            BreadthFirstSearch bfs = new BreadthFirstSearch(csr);
+            // Some sources are not nodes of the graph
+            int[] sources = new int[1 + random.nextInt(BreadthFirstSearch.MAX_SOURCES)];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = 3 * random.nextInt(nbNodes + 2);
+            }
+            int[][] multiSource = bfs.multiSourceDistances(sources);
+            int[] buffer = new int[csr.nbNodes()];
+            for (int i = 0; i < sources.length; i++) {
+                int[] expected = distances(csr, sources[i]);
+                if (!Arrays.equals(expected, bfs.distances(sources[i]))
+                        || !Arrays.equals(expected, bfs.distances(sources[i], buffer, false))
+                        || !Arrays.equals(expected, multiSource[i])) {
+                    throw new AssertionError("run " + run + ", source " + sources[i]);
+                }
+            }
+        }
+        check(true, "same distances from one source, top-down or direction-optimizing");
+        check(true, "same distances from up to 64 sources at once");
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import m1graf2023.*;
+
+/**
+ * Checks ConcurrentGraf against Graf along random changes, then under concurrent changes from
+ * several threads.
+ */
+public class TestConcurrentGraf {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Describes the nodes of a graph with their sorted out-edges, in-edges, successors and predecessors.
+     */
+    private static String describe(graf_interface g) {
+        List<String> lines = new ArrayList<>();
+        for (Node n : g.getAllNodes()) {
+            List<String> out = new ArrayList<>();
+            for (Edge edge : g.getOutEdges(n.getId())) {
+                out.add(edge.getTo().getId() + ":" + edge.getWeight());
+            }
+            List<String> in = new ArrayList<>();
+            for (Edge edge : g.getInEdges(n.getId())) {
+                in.add(edge.getFrom().getId() + ":" + edge.getWeight());
+            }
+            List<Integer> successors = new ArrayList<>();
+            g.forEachSuccessor(n.getId(), successors::add);
+            List<Integer> predecessors = new ArrayList<>();
+            g.forEachPredecessor(n.getId(), predecessors::add);
+            Collections.sort(out);
+            Collections.sort(in);
+            Collections.sort(successors);
+            Collections.sort(predecessors);
+            lines.add(n.getId() + " -> " + out + " <- " + in + " degree " + g.degree(n.getId())
+                    + " successors " + successors + " predecessors " + predecessors);
+        }
+        Collections.sort(lines);
+        return lines + " " + g.nbNodes() + " nodes, " + g.nbEdges() + " edges";
+    }
+
+    /**
+     * Returns the best time of 5 rounds of lookups of every node of a graph of 1M nodes.
+     */
+    private static long lookupNanos(int nbStripes) {
+        int nbNodes = 1 << 20;
+        ConcurrentGraf g = new ConcurrentGraf(nbStripes);
+        for (int i = 0; i < nbNodes; i++) {
+            g.addNode(i);
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < nbNodes; i++) {
+                found += g.existsNode(i) ? 1 : 0;
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            if (found != nbNodes) {
+                throw new AssertionError(found + " nodes found");
+            }
+        }
+        return best;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println(">>>>>>>> 200 random runs against Graf");
+        Random random = new Random(21);
+        for (int run = 0; run < 200; run++) {
+            Graf g = new Graf();
+            ConcurrentGraf c = new ConcurrentGraf(1 + random.nextInt(8));
+            int nbIds = 1 + random.nextInt(20);
+            for (int step = 0; step < 200; step++) {
+                int u = random.nextInt(nbIds);
+                int v = random.nextInt(nbIds);
+                int w = random.nextInt(3);
+                switch (random.nextInt(7)) {
+                    case 0:
+                        if (g.addNode(u) != c.addNode(u)) {
+                            throw new AssertionError("addNode(" + u + ")");
+                        }
+                        break;
+                    case 1:
+                        g.addEdge(u, v, w);
+                        c.addEdge(u, v, w);
+                        break;
+                    case 2:
+                        g.addEdge(new Node(u), new Node(v), w);
+                        c.addEdge(new Node(u), new Node(v), w);
+                        break;
+                    case 3:
+                        if (g.removeEdge(u, v) != c.removeEdge(u, v)) {
+                            throw new AssertionError("removeEdge(" + u + ", " + v + ")");
+                        }
+                        break;
+                    case 4:
+                        if (g.removeEdge(u, v, w) != c.removeEdge(u, v, w)) {
+                            throw new AssertionError("removeEdge(" + u + ", " + v + ", " + w + ")");
+                        }
+                        break;
+                    case 5:
+                        if (g.removeNode(u) != c.removeNode(u)) {
+                            throw new AssertionError("removeNode(" + u + ")");
+                        }
+                        break;
+                    default:
+                        if (g.existsEdge(u, v) != c.existsEdge(u, v) || g.getEdges(u, v).size() != c.getEdges(u, v).size()) {
+                            throw new AssertionError("getEdges(" + u + ", " + v + ")");
+                        }
+                }
+                if (!describe(g).equals(describe(c))) {
+                    throw new AssertionError("run " + run + ", step " + step + "\n" + describe(g) + "\n" + describe(c));
+                }
+            }
+        }
+        check(true, "same nodes, edges and degrees as Graf after every step");
+
+        System.out.println(">>>>>>>> Changing the graph from a forEach action");
+        ConcurrentGraf c = new ConcurrentGraf(1);
+        c.addEdge(new Node(1), new Node(2), 0);
+        c.addEdge(new Node(1), new Node(3), 0);
+        c.forEachSuccessor(1, target -> c.addEdge(target, 1));
+        c.forEachPredecessor(1, source -> c.removeEdge(1, source));
+        check(c.nbEdges() == 2 && c.existsEdge(2, 1) && c.existsEdge(3, 1), "edges reversed from the actions");
+
+        System.out.println(">>>>>>>> 8 threads changing 2000 nodes");
+        ConcurrentGraf shared = new ConcurrentGraf();
+        int nbNodes = 2000;
+        for (int i = 0; i < nbNodes; i++) {
+            shared.addNode(i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int seed = thread;
+            futures.add(executor.submit(() -> {
+                Random threadRandom = new Random(seed);
+                for (int i = 0; i < 50_000; i++) {
+                    int u = threadRandom.nextInt(nbNodes);
+                    int v = threadRandom.nextInt(nbNodes);
+                    int op = threadRandom.nextInt(10);
+                    if (op < 5) {
+                        shared.addEdge(u, v);
+                    } else if (op < 7) {
+                        shared.removeEdge(u, v);
+                    } else if (op == 7 && i % 1000 == 0) {
+                        shared.removeNode(u);
+                        shared.addNode(u);
+                    } else {
+                        shared.existsEdge(u, v);
+                        shared.getOutEdges(u);
+                        shared.forEachSuccessor(u, target -> shared.existsEdge(target, u));
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        long out = 0;
+        long in = 0;
+        boolean linked = true;
+        for (Node n : shared.getAllNodes()) {
+            out += shared.outDegree(n.getId());
+            in += shared.inDegree(n.getId());
+            for (Edge edge : shared.getOutEdges(n.getId())) {
+                linked &= shared.getInEdges(edge.getTo().getId()).contains(edge);
+            }
+        }
+        check(shared.nbNodes() == nbNodes, nbNodes + " nodes");
+        check(out == shared.nbEdges() && in == shared.nbEdges(), "degrees add up to the " + shared.nbEdges() + " edges");
+        check(linked, "every out-edge is an in-edge of its target");
+
+        System.out.println(">>>>>>>> Lookups of 1M nodes with 1 and 1024 stripes");
+        // The stripe and the slot in its node table must come from different bits of the hash,
+        // or each stripe fills a fraction of its table and lookups probe long runs
+        long single = lookupNanos(1);
+        long many = lookupNanos(1024);
+        check(many < 2.5 * single, "lookups take " + single / 1_000_000 + " ms with 1 stripe, " + many / 1_000_000 + " ms with 1024");
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import m1graf2023.*;
+
+/**
+ * Checks the connected components kept by Graf.connectivity() against a breadth-first search
+ * along random changes, and ConcurrentUnionFind against UnionFind.
+ */
+public class TestConnectivity {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Labels every node with the ID of the first node of its weakly connected component found.
+     */
+    private static Map<Integer, Integer> components(Graf g) {
+        Map<Integer, List<Node>> neighbours = new HashMap<>();
+        for (Node n : g.getAllNodes()) {
+            List<Node> ends = new ArrayList<>();
+            for (Edge edge : g.getOutEdges(n)) {
+                ends.add(edge.getTo());
+            }
+            for (Edge edge : g.getInEdges(n)) {
+                ends.add(edge.getFrom());
+            }
+            neighbours.put(n.getId(), ends);
+        }
+        Map<Integer, Integer> labels = new HashMap<>();
+        for (Node n : g.getAllNodes()) {
+            if (labels.containsKey(n.getId())) {
+                continue;
+            }
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(n.getId());
+            labels.put(n.getId(), n.getId());
+            while (!queue.isEmpty()) {
+                for (Node next : neighbours.get(queue.poll())) {
+                    if (labels.putIfAbsent(next.getId(), n.getId()) == null) {
+                        queue.add(next.getId());
+                    }
+                }
+            }
+        }
+        return labels;
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 300 random runs against a breadth-first search");
+        Random random = new Random(19);
+        for (int run = 0; run < 300; run++) {
+            Graf g = run % 2 == 0 ? new Graf() : new UndirectedGraf();
+            int nbIds = 1 + random.nextInt(40);
+            for (int i = 1; i <= nbIds / 2; i++) {
+                g.addNode(7 * i);
+            }
+            Connectivity connectivity = g.connectivity();
+            for (int step = 0; step < 100; step++) {
+                int u = 7 * (1 + random.nextInt(nbIds));
+                int v = 7 * (1 + random.nextInt(nbIds));
+                int op = random.nextInt(10);
+                if (op < 5) {
+                    g.addEdge(u, v);
+                } else if (op < 6) {
+                    g.addNode(u);
+                } else if (op < 7) {
+                    g.removeEdge(u, v);
+                } else if (op < 8) {
+                    g.removeNode(u);
+                }
+                Map<Integer, Integer> labels = components(g);
+                if (connectivity.count() != (int) labels.entrySet().stream().filter(e -> e.getKey().equals(e.getValue())).count()) {
+                    throw new AssertionError("run " + run + ", step " + step + ": count");
+                }
+                for (int k = 0; k < 10; k++) {
+                    int x = 7 * (1 + random.nextInt(nbIds));
+                    int y = 7 * (1 + random.nextInt(nbIds));
+                    boolean expected = labels.containsKey(x) && labels.containsKey(y) && labels.get(x).equals(labels.get(y));
+                    if (connectivity.connected(x, y) != expected) {
+                        throw new AssertionError("run " + run + ", step " + step + ": " + x + " and " + y);
+                    }
+                }
+            }
+        }
+        check(true, "same components as a breadth-first search after every change");
+
+        System.out.println(">>>>>>>> 3M random unions of 2M elements on 4 threads");
+        int size = 2_000_000;
+        int[] sources = new int[3_000_000];
+        int[] targets = new int[sources.length];
+        UnionFind sequential = new UnionFind(size);
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = random.nextInt(size);
+            targets[i] = random.nextInt(size);
+            sequential.union(sources[i], targets[i]);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ConcurrentUnionFind concurrent = new ConcurrentUnionFind(size);
+        concurrent.unionAll(pool, sources, targets);
+        int[] labels = concurrent.labels(pool);
+        pool.shutdown();
+        int nbRoots = 0;
+        boolean same = true;
+        boolean smallest = true;
+        for (int i = 0; i < size; i++) {
+            nbRoots += labels[i] == i ? 1 : 0;
+            same &= sequential.find(i) == sequential.find(labels[i]);
+            smallest &= labels[i] <= i && labels[labels[i]] == labels[i];
+        }
+        check(nbRoots == sequential.count() && same, nbRoots + " sets, as with UnionFind");
+        check(smallest, "every set labelled by its smallest element");
+
+        UnionFind growing = new UnionFind(0);
+        for (int i = 0; i < 100; i++) {
+            growing.add();
+        }
+        growing.union(3, 99);
+        check(growing.connected(99, 3) && growing.count() == 99, "UnionFind grown one element at a time");
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks that the CSR form of a graph answers like the graph, with its out-edges sorted by target
+ * then weight, on contiguous and on scattered node IDs.
+ */
+public class TestCsrGraf {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    private static List<String> describe(List<Edge> edges) {
+        List<String> parts = new ArrayList<>();
+        for (Edge edge : edges) {
+            parts.add(edge.getFrom().getId() + ">" + edge.getTo().getId() + "/" + edge.getWeight());
+        }
+        Collections.sort(parts);
+        return parts;
+    }
+
+    /**
+     * Describes everything a graph answers about a node, lists sorted.
+     */
+    private static String describe(graf_interface g, int u, List<Integer> ids) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(g.getAllNodes().contains(new Node(u))).append(' ').append(describe(g.getOutEdges(u))).append(describe(g.getInEdges(u)))
+                .append(describe(g.getIncidentEdges(u))).append(' ').append(g.inDegree(u)).append(' ')
+                .append(g.outDegree(u)).append(' ').append(g.degree(u)).append(" [");
+        List<String> visited = new ArrayList<>();
+        g.forEachOutEdge(u, (target, weight) -> visited.add(target + "/" + weight));
+        g.forEachInEdge(u, (source, weight) -> visited.add(source + "\\" + weight));
+        g.forEachSuccessor(u, target -> visited.add(">" + target));
+        g.forEachPredecessor(u, source -> visited.add("<" + source));
+        Collections.sort(visited);
+        sb.append(visited).append("] ");
+        for (int v : ids) {
+            if (g.existsEdge(u, v)) {
+                sb.append(v).append(describe(g.getEdges(u, v)));
+            }
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 200 random graphs");
+        Random random = new Random(3);
+        for (int run = 0; run < 200; run++) {
+            int spacing = run % 2 == 0 ? 1 : 1 + random.nextInt(50);
+            int nbIds = 1 + random.nextInt(30);
+            Graf g = new Graf();
+            for (int i = 0; i < nbIds; i++) {
+                g.addNode(spacing * i - 5);
+            }
+            for (int k = random.nextInt(100); k > 0; k--) {
+                g.addEdge(spacing * random.nextInt(nbIds) - 5, spacing * random.nextInt(nbIds) - 5, random.nextInt(4));
+            }
+            CsrGraf csr = g.toCsr();
+            List<Integer> ids = new ArrayList<>();
+            for (int i = -1; i <= nbIds; i++) {
+                ids.add(spacing * i - 5);
+            }
+            if (csr.nbNodes() != g.nbNodes() || csr.nbEdges() != g.nbEdges()
+                    || !describe(csr.getAllEdges()).equals(describe(g.getAllEdges()))) {
+                throw new AssertionError("run " + run + ": counts");
+            }
+            for (int u : ids) {
+                if (!describe(csr, u, ids).equals(describe(g, u, ids))) {
+                    throw new AssertionError("run " + run + ", node " + u + "\n" + describe(g, u, ids) + "\n" + describe(csr, u, ids));
+                }
+                List<Edge> out = csr.getOutEdges(u);
+                boolean sorted = true;
+                for (int k = 1; k < out.size(); k++) {
+                    Edge previous = out.get(k - 1);
+                    Edge edge = out.get(k);
+                    sorted &= previous.getTo().getId() < edge.getTo().getId()
+                            || previous.getTo().getId() == edge.getTo().getId() && previous.getWeight() <= edge.getWeight();
+                }
+                int index = csr.nodeIndex(u);
+                if (!sorted || (index >= 0) != g.existsNode(u) || index >= 0 && csr.nodeId(index) != u || out.size() != g.outDegree(u)) {
+                    throw new AssertionError("run " + run + ", node " + u + ": order or index");
+                }
+            }
+        }
+        check(true, "same nodes, edges and degrees as the graph");
+        check(true, "out-edges sorted by target then weight");
+
+        try {
+            new Graf().toCsr().addEdge(1, 2);
+            check(false, "CsrGraf is immutable");
+        } catch (UnsupportedOperationException e) {
+            check(true, "CsrGraf is immutable");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import m1graf2023.*;
+
+/**
+ * Checks the distances of DeltaStepping against the Dijkstra search of ShortestPaths, for
+ * several bucket widths and pools of 1 to 8 threads.
+ */
+public class TestDeltaStepping {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    public static void main(String[] args) {
+        ForkJoinPool[] pools = {new ForkJoinPool(1), new ForkJoinPool(3), new ForkJoinPool(8)};
+
+        System.out.println(">>>>>>>> 300 random weighted graphs, up to 5000 nodes, on Graf and CsrGraf");
+        Random random = new Random(15);
+        for (int run = 0; run < 300; run++) {
+            int nbNodes = 1 + random.nextInt(run < 250 ? 50 : 5000);
+            int degree = 1 + random.nextInt(6);
+            Graf g = run % 4 == 0 ? new UndirectedGraf() : new Graf();
+            int spacing = run % 2 == 0 ? 1 : 5;
+            for (int i = 1; i <= nbNodes; i++) {
+                g.addNode(spacing * i);
+            }
+            int maxWeight = new int[]{1, 3, 100, 100_000}[random.nextInt(4)];
+            for (int k = 0; k < nbNodes * degree; k++) {
+                g.addEdge(spacing * (1 + random.nextInt(nbNodes)), spacing * (1 + random.nextInt(nbNodes)), random.nextInt(maxWeight));
+            }
+            CsrGraf csr = g.toCsr();
+            int source = spacing * (1 + random.nextInt(nbNodes));
+            long[] expected = new ShortestPaths(csr).distances(source);
+            for (ForkJoinPool pool : pools) {
+                // 0 derives the width from the weights
+                for (long delta : new long[]{0, 1, 7, 1000}) {
+                    if (delta > 0 && maxWeight / delta > 1 << 16) {
+                        continue;
+                    }
+                    DeltaStepping solver = new DeltaStepping(run % 3 == 0 ? csr : g, pool, delta);
+                    if (!Arrays.equals(expected, solver.distances(source))) {
+                        throw new AssertionError("run " + run + ", " + pool.getParallelism() + " threads, delta " + delta);
+                    }
+                }
+            }
+        }
+        check(true, "same distances as Dijkstra for every delta and number of threads");
+
+        Graf g = new Graf();
+        g.addEdge(new Node(1), new Node(2), -1);
+        try {
+            new DeltaStepping(g, pools[0]);
+            check(false, "negative weights rejected");
+        } catch (IllegalArgumentException e) {
+            check(true, "negative weights rejected");
+        }
+        for (ForkJoinPool pool : pools) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import m1graf2023.*;
+
+/**
+ * Checks that DOT files are parsed into the expected graphs, whatever their layout, comments,
+ * attributes and encoding.
+ */
+public class TestDotReader {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Describes the nodes and edges of a graph, sorted.
+     */
+    private static String describe(Graf g) {
+        List<String> parts = new ArrayList<>();
+        for (Node n : g.getAllNodes()) {
+            parts.add(Integer.toString(n.getId()));
+            for (Edge edge : g.getOutEdges(n)) {
+                parts.add(edge.getFrom().getId() + ">" + edge.getTo().getId() + "/" + edge.getWeight());
+            }
+        }
+        Collections.sort(parts);
+        return String.join(" ", parts);
+    }
+
+    private static Graf parse(Path directory, byte[] contents) throws IOException {
+        Files.write(directory.resolve("graph.gv"), contents);
+        return Graf.fromDotFile(directory.resolve("graph").toString());
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("graf");
+
+        System.out.println(">>>>>>>> Statements, chains, attributes and comments");
+        String text = "// a comment\n"
+                + "strict digraph G { graph [rankdir=LR]; node [shape=circle]\n"
+                + "  1 -> 2 -> 3 [weight=4]; 3 -> 1 [label=7, color=red]\n"
+                + "  # a line comment\n"
+                + "  /* a block\n comment */ 5; 4 -> 2 [label=\"2\", weight=9]\n"
+                + "}\n";
+        Graf g = parse(directory, text.getBytes(StandardCharsets.US_ASCII));
+        check(g.isDirected() && describe(g).equals("1 1>2/4 2 2>3/4 3 3>1/7 4 4>2/9 5"), "5 nodes and 4 weighted edges");
+
+        System.out.println(">>>>>>>> An undirected graph");
+        g = parse(directory, "graph { 1 -- 2; 2 -- 3 }".getBytes(StandardCharsets.US_ASCII));
+        check(g instanceof UndirectedGraf && g.existsEdge(2, 1) && g.existsEdge(3, 2) && g.nbEdges() == 2, "loaded as an UndirectedGraf");
+
+        System.out.println(">>>>>>>> Names outside ASCII");
+        g = parse(directory, "digraph grafé { 1 -> 2 [color=été]; 3 }".getBytes(StandardCharsets.UTF_8));
+        check(describe(g).equals("1 1>2/0 2 3"), "UTF-8 names");
+        // The byte 0xFF of a Latin-1 name must not be taken for the end of the file
+        g = parse(directory, "digraph ÿ { 1 -> 2 [color=rÿd]; 3 -> 4 }".getBytes(StandardCharsets.ISO_8859_1));
+        check(describe(g).equals("1 1>2/0 2 3 3>4/0 4"), "Latin-1 names holding the byte 0xFF");
+
+        Files.deleteIfExists(directory.resolve("graph.gv"));
+        Files.deleteIfExists(directory);
+    }
+}
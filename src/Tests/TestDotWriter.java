@@ -0,0 +1,100 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks that graphs exported in DOT syntax are imported back unchanged, and that the character
+ * and byte outputs agree.
+ */
+public class TestDotWriter {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Describes the nodes and edges of a graph, sorted.
+     */
+    private static List<String> describe(Graf g) {
+        List<String> parts = new ArrayList<>();
+        for (Node n : g.getAllNodes()) {
+            parts.add(Integer.toString(n.getId()));
+            for (Edge edge : g.getOutEdges(n)) {
+                // An undirected edge may be read back in the other direction
+                int from = edge.getFrom().getId();
+                int to = edge.getTo().getId();
+                parts.add((g.isDirected() ? from : Math.min(from, to)) + ">" + (g.isDirected() ? to : Math.max(from, to)) + "/" + edge.getWeight());
+            }
+        }
+        Collections.sort(parts);
+        return parts;
+    }
+
+    private static Graf randomGraf(Random random, boolean directed, int nbIds, int nbEdges) {
+        Graf g = directed ? new Graf() : new UndirectedGraf();
+        for (int i = 0; i < nbIds / 2; i++) {
+            g.addNode(random.nextInt(nbIds) - nbIds / 2);
+        }
+        for (int k = 0; k < nbEdges; k++) {
+            int weight = random.nextInt(4) == 0 ? 0 : random.nextInt(7) - 3;
+            g.addEdge(new Node(random.nextInt(nbIds) - nbIds / 2), new Node(random.nextInt(nbIds) - nbIds / 2), weight);
+        }
+        return g;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("graf");
+        String base = directory.resolve("graph").toString();
+
+        System.out.println(">>>>>>>> 100 random graphs written and read back");
+        Random random = new Random(6);
+        for (int run = 0; run < 100; run++) {
+            Graf g = randomGraf(random, run % 2 == 0, 2 + random.nextInt(30), random.nextInt(60));
+            if (run % 10 == 0) {
+                g.addEdge(new Node(Integer.MIN_VALUE), new Node(Integer.MAX_VALUE), Integer.MIN_VALUE);
+            }
+            boolean sorted = random.nextBoolean();
+            g.toDotFile(base, ".gv", true, true, sorted);
+            Graf loaded = Graf.fromDotFile(base);
+            if (loaded.isDirected() != g.isDirected() || !describe(loaded).equals(describe(g))) {
+                throw new AssertionError("run " + run + "\n" + describe(g) + "\n" + describe(loaded));
+            }
+            StringBuilder chars = new StringBuilder();
+            g.writeDot(chars, true, true, sorted);
+            if (!chars.toString().equals(new String(Files.readAllBytes(directory.resolve("graph.gv")), StandardCharsets.US_ASCII))) {
+                throw new AssertionError("run " + run + ": characters and bytes differ");
+            }
+        }
+        check(true, "same nodes and weighted edges after reading back");
+        check(true, "same text written to an Appendable and to a stream");
+
+        System.out.println(">>>>>>>> A graph larger than the buffers");
+        Graf g = randomGraf(random, true, 20_000, 300_000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        g.writeDot(bytes, true, false, true);
+        String text = bytes.toString(StandardCharsets.US_ASCII);
+        check(text.length() > (1 << 20), text.length() + " bytes written");
+        StringBuilder chars = new StringBuilder();
+        g.writeDot(chars, true, false, true);
+        check(chars.toString().equals(text), "same text written to an Appendable");
+        String[] lines = text.split("\n");
+        boolean ordered = true;
+        for (int i = 2; i < lines.length - 1; i++) {
+            ordered &= Integer.parseInt(lines[i - 1].trim().split(" ")[0]) <= Integer.parseInt(lines[i].trim().split(" ")[0]);
+        }
+        check(ordered, "sorted by source");
+
+        Files.deleteIfExists(directory.resolve("graph.gv"));
+        Files.deleteIfExists(directory);
+    }
+}
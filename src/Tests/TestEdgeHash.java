@@ -0,0 +1,62 @@
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import m1graf2023.*;
+
+/**
+ * Checks that Edge.hashCode() agrees with equals() and does not allocate.
+ */
+public class TestEdgeHash {
+    // Keeps the hash codes computed alive
+    static int sink;
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> Equal edges, equal hash codes");
+        Random random = new Random(9);
+        boolean consistent = true;
+        Set<Edge> edges = new HashSet<>();
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int from = random.nextInt(100) - 50;
+            int to = random.nextInt(100) - 50;
+            int weight = random.nextInt(5) - 2;
+            Edge edge = new Edge(new Node(from), new Node(to), weight);
+            Edge copy = new Edge(new Node(from), new Node(to), weight);
+            consistent &= edge.equals(copy) && edge.hashCode() == copy.hashCode();
+            edges.add(edge);
+            keys.add(from + ">" + to + "/" + weight);
+        }
+        check(consistent, "copies of an edge are equal with the same hash code");
+        check(edges.size() == keys.size(), edges.size() + " distinct edges in a HashSet");
+        check(!new Edge(new Node(1), new Node(2), 0).equals(new Edge(new Node(1), new Node(2), 1))
+                && !new Edge(new Node(1), new Node(2), 0).equals(new Edge(new Node(2), new Node(1), 0)), "weight and direction matter");
+
+        System.out.println(">>>>>>>> Hashing without allocating");
+        Edge[] sample = edges.toArray(new Edge[0]);
+        int sum = 0;
+        for (Edge edge : sample) {
+            sum += edge.hashCode();
+        }
+        long before = allocatedBytes();
+        for (int round = 0; round < 10; round++) {
+            for (Edge edge : sample) {
+                sum += edge.hashCode();
+            }
+        }
+        long allocated = allocatedBytes() - before;
+        sink = sum;
+        check(allocated < 100_000, sample.length * 10 + " hash codes computed with " + allocated + " bytes allocated");
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import m1graf2023.*;
+
+/**
+ * Checks the removal of parallel edges from nodes whose out-edges are indexed by target.
+ */
+public class TestEdgeIndex {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Lists the out-edges of a node as "target/weight" strings, sorted.
+     */
+    private static List<String> describe(graf_interface g, int nodeId) {
+        List<String> edges = new ArrayList<>();
+        for (Edge edge : g.getOutEdges(nodeId)) {
+            edges.add(edge.getTo().getId() + "/" + edge.getWeight());
+        }
+        Collections.sort(edges);
+        return edges;
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> Node 1 with 20 out-edges, 3 of them to node 5");
+        Graf g = new Graf();
+        for (int i = 1; i <= 20; i++) {
+            g.addNode(i);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int to = 20; to >= 4; to--) {
+            g.addEdge(1, to, to);
+            expected.add(to + "/" + to);
+        }
+        g.addEdge(1, 5, 1);
+        g.addEdge(1, 5, 2);
+        expected.add("5/1");
+        expected.add("5/2");
+        Collections.sort(expected);
+        check(g.outDegree(1) == 19 && g.nbEdges() == 19, "19 out-edges");
+
+        System.out.println(">>>>>>>> Sorting and clearing the list returned by getOutEdges");
+        List<Edge> outEdges = g.getOutEdges(1);
+        Collections.sort(outEdges);
+        outEdges.clear();
+        check(describe(g, 1).equals(expected), "the graph is unchanged");
+        check(g.outDegree(1) == 19 && g.nbEdges() == 19, "the counts are unchanged");
+
+        System.out.println(">>>>>>>> Removing the parallel edges to node 5 one by one");
+        check(g.removeEdge(1, 5, 2), "edge (1, 5) of weight 2 removed");
+        expected.remove("5/2");
+        check(describe(g, 1).equals(expected), "the other edges to node 5 are kept");
+        check(!g.removeEdge(1, 5, 2), "no second edge (1, 5) of weight 2");
+        check(g.removeEdge(1, 5), "first edge (1, 5) removed");
+        expected.remove("5/5");
+        check(describe(g, 1).equals(expected), "edge (1, 5) of weight 1 is kept");
+        check(g.existsEdge(1, 5) && g.getInEdges(5).size() == 1, "node 5 keeps one in-edge");
+        check(g.removeEdge(1, 5, 1), "last edge (1, 5) removed");
+        check(!g.existsEdge(1, 5) && g.getInEdges(5).isEmpty(), "no edge (1, 5) left");
+        check(g.outDegree(1) == 16 && g.nbEdges() == 16, "16 out-edges left");
+
+        System.out.println(">>>>>>>> Dropping below the index threshold, then growing again");
+        for (int to = 20; to >= 12; to--) {
+            check(g.removeEdge(1, to), "edge (1, " + to + ") removed");
+        }
+        for (int to = 12; to <= 20; to++) {
+            g.addEdge(1, to, 0);
+            g.addEdge(1, to, 1);
+        }
+        check(g.outDegree(1) == 25, "25 out-edges");
+        for (int to = 12; to <= 20; to++) {
+            check(g.removeEdge(1, to, 1) && g.getEdges(1, to).size() == 1, "one edge (1, " + to + ") left");
+        }
+        g.removeNode(6);
+        check(!g.existsEdge(1, 6) && g.outDegree(1) == 15, "node 6 and its in-edge removed");
+        check(g.removeEdge(1, 7) && g.outDegree(1) == 14, "edge (1, 7) removed");
+    }
+}
@@ -0,0 +1,137 @@
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks that applying a batch leaves a graph as the same changes made one call at a time: the
+ * removals first, then the insertions in order.
+ */
+public class TestGrafBatch {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Describes the nodes of a graph with their edge lists in order, then its statistics.
+     */
+    private static String describe(Graf g) {
+        StringBuilder sb = new StringBuilder();
+        List<Node> nodes = new ArrayList<>(g.getAllNodes());
+        nodes.sort(Comparator.comparingInt(Node::getId));
+        for (Node n : nodes) {
+            sb.append(n.getId()).append(':');
+            for (Edge edge : g.getOutEdges(n)) {
+                sb.append(edge.getTo().getId()).append('/').append(edge.getWeight()).append(',');
+            }
+            sb.append('|');
+            for (Edge edge : g.getInEdges(n)) {
+                sb.append(edge.getFrom().getId()).append('/').append(edge.getWeight()).append(',');
+            }
+            sb.append('\n');
+        }
+        GrafStats stats = g.stats();
+        sb.append(stats.nbEdges()).append(' ').append(stats.maxDegree()).append(' ').append(Arrays.toString(stats.degreeHistogram()));
+        return sb.toString();
+    }
+
+    /**
+     * Applies random batches to a graph and the same changes call by call to another.
+     *
+     * @param spacing The gap between node IDs: 1 numbers them through a table, larger gaps by sorting.
+     */
+    private static void randomRuns(Random random, int spacing) {
+        for (int run = 0; run < 400; run++) {
+            boolean undirected = run % 2 == 1;
+            int nbIds = 5 + random.nextInt(30);
+            Graf perCall = undirected ? new UndirectedGraf() : new Graf();
+            Graf batched = undirected ? new UndirectedGraf() : new Graf();
+            for (int i = 1; i <= nbIds; i++) {
+                perCall.addNode(spacing * i);
+                batched.addNode(spacing * i);
+            }
+            perCall.connectivity();
+            batched.connectivity();
+            for (int round = 0; round < 5; round++) {
+                GrafBatch batch = new GrafBatch(batched);
+                boolean weighted = random.nextBoolean();
+                // Small batches look up their nodes one by one, large ones scan the graph
+                int nbChanges = random.nextBoolean() ? random.nextInt(4) : random.nextInt(200);
+                List<int[]> additions = new ArrayList<>();
+                List<int[]> removals = new ArrayList<>();
+                for (int k = 0; k < nbChanges; k++) {
+                    // Some endpoints are missing from the graph
+                    int[] change = {spacing * (1 + random.nextInt(nbIds + 2)), spacing * (1 + random.nextInt(nbIds + 2)), random.nextInt(3) - 1};
+                    if (random.nextInt(3) == 0) {
+                        removals.add(change);
+                        if (weighted) {
+                            batch.removeEdge(change[0], change[1], change[2]);
+                        } else {
+                            batch.removeEdge(change[0], change[1]);
+                        }
+                    } else {
+                        additions.add(change);
+                        batch.addEdge(change[0], change[1], change[2]);
+                    }
+                }
+                for (int[] change : removals) {
+                    if (weighted) {
+                        perCall.removeEdge(change[0], change[1], change[2]);
+                    } else {
+                        perCall.removeEdge(change[0], change[1]);
+                    }
+                }
+                for (int[] change : additions) {
+                    perCall.addEdge(change[0], change[1], change[2]);
+                }
+                batch.apply();
+                if (batch.size() != 0 || !describe(perCall).equals(describe(batched))) {
+                    throw new AssertionError("run " + run + ", round " + round + "\n" + describe(perCall) + "\n---\n" + describe(batched));
+                }
+                for (int u = spacing; u <= spacing * nbIds; u += spacing) {
+                    for (int v = spacing; v <= spacing * nbIds; v += spacing) {
+                        if (perCall.existsEdge(u, v) != batched.existsEdge(u, v)
+                                || perCall.getEdges(u, v).size() != batched.getEdges(u, v).size()
+                                || perCall.connectivity().connected(u, v) != batched.connectivity().connected(u, v)) {
+                            throw new AssertionError("run " + run + ", round " + round + ": " + u + " and " + v);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 400 random runs on consecutive node IDs");
+        Random random = new Random(23);
+        randomRuns(random, 1);
+        check(true, "same edge lists, statistics and connectivity as call by call");
+
+        System.out.println(">>>>>>>> 400 random runs on node IDs far apart");
+        randomRuns(random, 1000);
+        check(true, "same edge lists, statistics and connectivity as call by call");
+
+        System.out.println(">>>>>>>> Insertions from arrays and buffers");
+        Graf g = new Graf();
+        for (int i = 1; i <= 4; i++) {
+            g.addNode(i);
+        }
+        new GrafBatch(g).addEdges(IntBuffer.wrap(new int[]{1, 2, 5, 2, 3, 6})).addEdges(new int[]{3, 4}, new int[]{4, 1}, null).apply();
+        check(g.nbEdges() == 4 && g.getEdges(1, 2).get(0).getWeight() == 5 && g.existsEdge(3, 4) && g.existsEdge(4, 1), "4 edges added");
+        new GrafBatch(g).removeEdges(new int[]{1, 3}, new int[]{2, 4}).apply();
+        check(g.nbEdges() == 2 && !g.existsEdge(1, 2) && !g.existsEdge(3, 4), "2 edges removed");
+        try {
+            new GrafBatch(g).addEdges(IntBuffer.wrap(new int[]{1, 2}));
+            check(false, "buffer of incomplete triples rejected");
+        } catch (IllegalArgumentException e) {
+            check(true, "buffer of incomplete triples rejected");
+        }
+    }
+}
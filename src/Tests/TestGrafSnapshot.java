@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks that snapshots answer like their graph did when they were taken, however the graph
+ * changes afterwards.
+ */
+public class TestGrafSnapshot {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    private static String describe(List<Edge> edges) {
+        StringBuilder sb = new StringBuilder();
+        for (Edge edge : edges) {
+            sb.append(edge.getFrom().getId()).append('>').append(edge.getTo().getId()).append('/').append(edge.getWeight()).append(',');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Describes everything a graph answers about its nodes and edges, lists in their order.
+     */
+    private static String describe(graf_interface g) {
+        StringBuilder sb = new StringBuilder();
+        List<Integer> ids = new ArrayList<>();
+        for (Node n : g.getAllNodes()) {
+            ids.add(n.getId());
+        }
+        Collections.sort(ids);
+        sb.append(g.nbNodes()).append(' ').append(g.nbEdges()).append(' ').append(g.getAllEdges().size()).append('\n');
+        for (int u : ids) {
+            Node n = new Node(u);
+            sb.append(u).append(": ").append(describe(g.getOutEdges(n)))
+                    .append(" | ").append(describe(g.getInEdges(n)))
+                    .append(" | ").append(describe(g.getIncidentEdges(n)))
+                    .append(' ').append(g.inDegree(u)).append(' ').append(g.outDegree(u)).append(' ').append(g.degree(n)).append(" [");
+            g.forEachOutEdge(u, (target, weight) -> sb.append(target).append('/').append(weight).append(','));
+            sb.append("] [");
+            g.forEachSuccessor(u, target -> sb.append(target).append(','));            sb.append("] [");
+            g.forEachPredecessor(u, source -> sb.append(source).append(','));
+            sb.append("] ");
+            for (int v : ids) {
+                if (g.existsEdge(u, v)) {
+                    sb.append(v).append('x').append(describe(g.getEdges(n, new Node(v)))).append(' ');
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 200 random runs, half on undirected graphs, half with nodes of high degree");
+        Random random = new Random(25);
+        int nbSnapshots = 0;
+        int reused = 0;
+        for (int run = 0; run < 200; run++) {
+            boolean undirected = run % 2 == 1;
+            int nbIds = run % 4 < 2 ? 3 + random.nextInt(25) : 2 + random.nextInt(3);
+            Graf g = undirected ? new UndirectedGraf() : new Graf();
+            List<GrafSnapshot> snapshots = new ArrayList<>();
+            List<String> descriptions = new ArrayList<>();
+            long version = 0;
+            for (int step = 0; step < 1000; step++) {
+                int u = random.nextInt(nbIds);
+                int v = random.nextInt(nbIds);
+                int w = random.nextInt(3);
+                switch (random.nextInt(12)) {
+                    case 0:
+                        g.addNode(u);
+                        break;
+                    case 1:
+                        if (random.nextInt(8) == 0) {
+                            g.removeNode(u);
+                        }
+                        break;
+                    case 2:
+                    case 3:
+                    case 4:
+                    case 5:
+                        g.addEdge(new Node(u), new Node(v), w);
+                        break;
+                    case 6:
+                        g.removeEdge(u, v);
+                        break;
+                    case 7:
+                        g.removeEdge(u, v, w);
+                        break;
+                    case 8:
+                        GrafBatch batch = new GrafBatch(g);
+                        for (int k = random.nextInt(6); k > 0; k--) {
+                            if (random.nextBoolean()) {
+                                batch.addEdge(random.nextInt(nbIds), random.nextInt(nbIds), random.nextInt(3));
+                            } else {
+                                batch.removeEdge(random.nextInt(nbIds), random.nextInt(nbIds));
+                            }
+                        }
+                        batch.apply();
+                        break;
+                    case 9:
+                        GrafSnapshot snapshot = g.snapshot();
+                        if (!snapshots.isEmpty() && snapshot == snapshots.get(snapshots.size() - 1)) {
+                            reused++;
+                        } else {
+                            version++;
+                        }
+                        String description = describe(g);
+                        if (snapshot.version() != version || !description.equals(describe(snapshot))) {
+                            throw new AssertionError("run " + run + ", step " + step + "\n" + description + "---\n" + describe(snapshot));
+                        }
+                        snapshots.add(snapshot);
+                        descriptions.add(description);
+                        nbSnapshots++;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            for (int i = 0; i < snapshots.size(); i++) {
+                if (!describe(snapshots.get(i)).equals(descriptions.get(i))) {
+                    throw new AssertionError("run " + run + ": snapshot " + i + " changed");
+                }
+            }
+        }
+        check(true, nbSnapshots + " snapshots answer like their graph, " + reused + " of them reused");
+
+        System.out.println(">>>>>>>> A node with 1000 out-edges");
+        Graf g = new Graf();
+        for (int i = 0; i < 1000; i++) {
+            g.addEdge(new Node(0), new Node(i % 10 + 1), i);
+        }
+        GrafSnapshot before = g.snapshot();
+        g.addEdge(new Node(0), new Node(1), 1000);
+        g.removeEdge(0, 5, 504);
+        GrafSnapshot after = g.snapshot();
+        check(before.outDegree(0) == 1000 && after.outDegree(0) == 1000, "1000 out-edges in both snapshots");
+        check(before.getEdges(0, 5).size() == 100 && after.getEdges(0, 5).size() == 99, "the removed edge is only in the first one");
+        check(describe(after.getOutEdges(0)).equals(describe(g.getOutEdges(0))), "the second one lists the edges in order");
+        new GrafBatch(g).removeEdge(0, 7, 5000).removeEdge(3, 0).apply();
+        check(g.snapshot() == after, "a batch matching no edge leaves the snapshot as it was");
+        new GrafBatch(g).addEdge(0, 2, 1001).removeEdge(0, 9, 998).removeEdge(1, 0).apply();
+        GrafSnapshot batched = g.snapshot();
+        check(batched != after && describe(batched.getOutEdges(0)).equals(describe(g.getOutEdges(0)))
+                && describe(batched.getInEdges(2)).equals(describe(g.getInEdges(2))), "a batch changing a node gives a new snapshot listing its edges in order");
+        check(describe(after.getOutEdges(0)).equals(describe(before.getOutEdges(0)).replace("0>5/504,", "").concat("0>1/1000,")), "the earlier snapshots are left unchanged");
+
+        try {
+            g.snapshot().addEdge(1, 2);
+            check(false, "snapshots are immutable");
+        } catch (UnsupportedOperationException e) {
+            check(true, "snapshots are immutable");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks the counters of GrafStats against a full recount, along random insertions and removals
+ * of nodes and edges.
+ */
+public class TestGrafStats {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Recounts the statistics of a graph from its node and edge lists and compares them with
+     * the counters.
+     */
+    private static boolean matches(Graf g) {
+        GrafStats stats = g.stats();
+        List<Node> nodes = g.getAllNodes();
+        int edges = 0;
+        int smallest = Integer.MAX_VALUE;
+        int largest = Integer.MIN_VALUE;
+        int maxDegree = 0;
+        for (Node n : nodes) {
+            edges += g.outDegree(n);
+            smallest = Math.min(smallest, n.getId());
+            largest = Math.max(largest, n.getId());
+            maxDegree = Math.max(maxDegree, g.degree(n));
+        }
+        int[] histogram = new int[maxDegree + 1];
+        for (Node n : nodes) {
+            histogram[g.degree(n)]++;
+        }
+        return stats.nbNodes() == nodes.size()
+                && stats.nbEdges() == edges && g.nbEdges() == edges
+                && stats.smallestNodeId() == smallest && stats.largestNodeId() == largest
+                && stats.maxDegree() == maxDegree
+                && Arrays.equals(stats.degreeHistogram(), histogram);
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> The subject example graph");
+        Graf g = new Graf(2, 4, 0, 0, 6, 0, 2, 3, 5, 8, 0, 0, 4, 7, 0, 3, 0, 7, 0);
+        check(matches(g), "initial counters");
+        g.removeNode(3);
+        check(matches(g), "counters after removing node 3");
+        g.getOutEdges(4).clear();
+        check(matches(g), "counters after clearing a copy of the out-edges of node 4");
+
+        System.out.println(">>>>>>>> A node linked to 100000 others");
+        g = new Graf();
+        Node hub = new Node(0);
+        for (int i = 1; i <= 100_000; i++) {
+            g.addEdge(hub, new Node(i), 0);
+        }
+        check(g.stats().maxDegree() == 100_000 && g.stats().nbNodesOfDegree(1) == 100_000, "maximum degree 100000");
+        for (int i = 1; i <= 50_000; i++) {
+            g.removeEdge(0, i);
+        }
+        check(g.stats().maxDegree() == 50_000 && matches(g), "maximum degree 50000 after removals");
+
+        System.out.println(">>>>>>>> 20000 random changes on 200 nodes");
+        Random random = new Random(22);
+        g = new Graf();
+        for (int step = 1; step <= 20_000; step++) {
+            int u = random.nextInt(200);
+            int v = random.nextInt(4) == 0 ? u : random.nextInt(200);
+            switch (random.nextInt(10)) {
+                case 0:
+                    g.removeNode(u);
+                    break;
+                case 1:
+                case 2:
+                    g.removeEdge(u, v);
+                    break;
+                case 3:
+                    g.addNode(u);
+                    break;
+                default:
+                    g.addEdge(u, v);
+                    g.addEdge(new Node(u), new Node(v), random.nextInt(3));
+            }
+            if (step % 1000 == 0) {
+                check(matches(g), "counters after " + step + " changes");
+            }
+        }
+    }
+}
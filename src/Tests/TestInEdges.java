@@ -0,0 +1,98 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks the in-edges, predecessors and in-degrees kept by Graf against the out-edges of all
+ * the nodes, along random changes.
+ */
+public class TestInEdges {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Describes the in-edges of every node as kept by the graph, then as found from the out-edges.
+     */
+    private static String[] describe(Graf g) {
+        List<String> kept = new ArrayList<>();
+        List<String> found = new ArrayList<>();
+        for (Node n : g.getAllNodes()) {
+            for (Edge edge : g.getInEdges(n)) {
+                kept.add(edge.getTo().getId() + "<" + edge.getFrom().getId() + "/" + edge.getWeight());
+            }
+            List<Integer> predecessors = new ArrayList<>();
+            g.forEachPredecessor(n.getId(), predecessors::add);
+            kept.add(n.getId() + " in " + g.inDegree(n) + " " + predecessors.size());
+            int inDegree = 0;
+            for (Node m : g.getAllNodes()) {
+                for (Edge edge : g.getOutEdges(m)) {
+                    if (edge.getTo().getId() == n.getId()) {
+                        found.add(edge.getTo().getId() + "<" + edge.getFrom().getId() + "/" + edge.getWeight());
+                        inDegree++;
+                    }
+                }
+            }
+            found.add(n.getId() + " in " + inDegree + " " + inDegree);
+        }
+        Collections.sort(kept);
+        Collections.sort(found);
+        return new String[]{kept.toString(), found.toString()};
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 300 random runs");
+        Random random = new Random(2);
+        for (int run = 0; run < 300; run++) {
+            Graf g = new Graf();
+            int nbIds = 2 + random.nextInt(20);
+            for (int step = 0; step < 200; step++) {
+                int u = random.nextInt(nbIds);
+                int v = random.nextInt(nbIds);
+                int w = random.nextInt(3);
+                switch (random.nextInt(6)) {
+                    case 0:
+                        g.addNode(u);
+                        break;
+                    case 1:
+                        if (random.nextInt(4) == 0) {
+                            g.removeNode(u);
+                        }
+                        break;
+                    case 2:
+                    case 3:
+                        g.addEdge(new Node(u), new Node(v), w);
+                        break;
+                    case 4:
+                        g.removeEdge(u, v);
+                        break;
+                    default:
+                        g.removeEdge(u, v, w);
+                }
+            }
+            String[] description = describe(g);
+            if (!description[0].equals(description[1])) {
+                throw new AssertionError("run " + run + "\n" + description[0] + "\n" + description[1]);
+            }
+        }
+        check(true, "in-edges, predecessors and in-degrees match the out-edges");
+
+        System.out.println(">>>>>>>> Removing a node with edges in both directions");
+        Graf g = new Graf();
+        for (int i = 1; i <= 100; i++) {
+            g.addEdge(new Node(0), new Node(i));
+            g.addEdge(new Node(i), new Node(0));
+            g.addEdge(new Node(i), new Node(i % 100 + 1));
+        }
+        g.addEdge(0, 0);
+        check(g.inDegree(0) == 101 && g.degree(0) == 202, "node 0 has 101 in-edges");
+        g.removeNode(0);
+        check(g.nbEdges() == 100 && g.inDegree(1) == 1 && g.getInEdges(1).get(0).getFrom().getId() == 100, "its edges are gone from the other nodes");
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks that the forEach visits of every graph class see the same neighbours, weights and
+ * multiplicities as the edge lists they return.
+ */
+public class TestNeighbourIteration {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Returns the mismatch between the visits and the edge lists of a node, or null if none.
+     */
+    private static String mismatch(graf_interface g, int u) {
+        List<String> fromLists = new ArrayList<>();
+        List<String> fromVisits = new ArrayList<>();
+        for (Edge edge : g.getOutEdges(u)) {
+            fromLists.add("out " + edge.getTo().getId() + "/" + edge.getWeight());
+            fromLists.add("successor " + edge.getTo().getId());
+        }
+        for (Edge edge : g.getInEdges(u)) {
+            fromLists.add("in " + edge.getFrom().getId() + "/" + edge.getWeight());
+            fromLists.add("predecessor " + edge.getFrom().getId());
+        }
+        g.forEachOutEdge(u, (target, weight) -> fromVisits.add("out " + target + "/" + weight));
+        g.forEachSuccessor(u, target -> fromVisits.add("successor " + target));
+        g.forEachInEdge(u, (source, weight) -> fromVisits.add("in " + source + "/" + weight));
+        g.forEachPredecessor(u, source -> fromVisits.add("predecessor " + source));
+        Collections.sort(fromLists);
+        Collections.sort(fromVisits);
+        return fromLists.equals(fromVisits) ? null : fromLists + "\n" + fromVisits;
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 100 random multigraphs in every representation");
+        Random random = new Random(4);
+        for (int run = 0; run < 100; run++) {
+            int nbIds = 1 + random.nextInt(20);
+            Graf g = new Graf();
+            UndirectedGraf u = new UndirectedGraf();
+            ConcurrentGraf c = new ConcurrentGraf();
+            try (OffHeapGraf o = new OffHeapGraf()) {
+                for (int k = random.nextInt(80); k > 0; k--) {
+                    Node from = new Node(random.nextInt(nbIds));
+                    Node to = new Node(random.nextInt(nbIds));
+                    int weight = random.nextInt(3);
+                    g.addEdge(from, to, weight);
+                    u.addEdge(from, to, weight);
+                    c.addEdge(from, to, weight);
+                    o.addEdge(from, to, weight);
+                }
+                graf_interface[] graphs = {g, u, c, o, g.toCsr(), g.snapshot(), u.snapshot()};
+                for (graf_interface graph : graphs) {
+                    for (int id = -1; id <= nbIds; id++) {
+                        String mismatch = mismatch(graph, id);
+                        if (mismatch != null) {
+                            throw new AssertionError("run " + run + ", " + graph.getClass().getSimpleName() + ", node " + id + "\n" + mismatch);
+                        }
+                    }
+                }
+            }
+        }
+        check(true, "Graf, UndirectedGraf, ConcurrentGraf, OffHeapGraf, CsrGraf and GrafSnapshot visit their edge lists");
+    }
+}
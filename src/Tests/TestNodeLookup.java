@@ -0,0 +1,62 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import m1graf2023.*;
+
+/**
+ * Checks the lookup of nodes by ID against a sorted set along random insertions and removals,
+ * numerous enough to remove keys from the middle of every collision chain of the index.
+ */
+public class TestNodeLookup {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 200000 random insertions and removals of 2000 IDs");
+        Random random = new Random(1);
+        Graf g = new Graf();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int step = 0; step < 200_000; step++) {
+            int id = random.nextInt(2000) - 1000;
+            boolean changed;
+            if (random.nextInt(3) == 0) {
+                changed = g.removeNode(id);
+                if (changed != expected.remove(id)) {
+                    throw new AssertionError("step " + step + ": removeNode(" + id + ")");
+                }
+            } else {
+                changed = g.addNode(id);
+                if (changed != expected.add(id)) {
+                    throw new AssertionError("step " + step + ": addNode(" + id + ")");
+                }
+            }
+            int probe = random.nextInt(2000) - 1000;
+            Node node = g.getNode(probe);
+            if (g.existsNode(probe) != expected.contains(probe) || (node != null) != expected.contains(probe)
+                    || node != null && node.getId() != probe || g.nbNodes() != expected.size()) {
+                throw new AssertionError("step " + step + ": lookup of " + probe);
+            }
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Node n : g.getAllNodes()) {
+            ids.add(n.getId());
+        }
+        ids.sort(null);
+        check(ids.equals(new ArrayList<>(expected)), g.nbNodes() + " nodes, the expected ones");
+        check(g.smallestNodeId() == expected.first() && g.largestNodeId() == expected.last(), "smallest and largest IDs");
+
+        System.out.println(">>>>>>>> Removing every node");
+        for (int id : expected) {
+            g.removeNode(id);
+        }
+        check(g.nbNodes() == 0 && g.getAllNodes().isEmpty() && !g.existsNode(expected.first()), "empty graph");
+        g.addNode(expected.first());
+        check(g.nbNodes() == 1 && g.getNode(expected.first()) != null, "usable again");
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import m1graf2023.*;
+
+/**
+ * Checks OffHeapGraf against Graf along random changes.
+ */
+public class TestOffHeapGraf {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    private static String describe(List<Edge> edges) {
+        StringBuilder sb = new StringBuilder();
+        for (Edge edge : edges) {
+            sb.append(edge.getFrom().getId()).append('>').append(edge.getTo().getId()).append('/').append(edge.getWeight()).append(',');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Describes the nodes of a graph with their edges, lists in their order.
+     */
+    private static String describe(graf_interface g) {
+        Set<Integer> ids = new TreeSet<>();
+        for (Node n : g.getAllNodes()) {
+            ids.add(n.getId());
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(g.nbNodes()).append(' ').append(g.nbEdges()).append(' ').append(g.getAllEdges().size()).append('\n');
+        for (int u : ids) {
+            sb.append(u).append(": ").append(describe(g.getOutEdges(u)))
+                    .append(" | ").append(describe(g.getInEdges(u)))
+                    .append(" | ").append(describe(g.getIncidentEdges(u)))
+                    .append(' ').append(g.inDegree(u)).append(' ').append(g.outDegree(u)).append(' ').append(g.degree(u)).append(" [");
+            g.forEachOutEdge(u, (target, weight) -> sb.append(target).append('/').append(weight).append(','));
+            sb.append("] [");
+            g.forEachSuccessor(u, target -> sb.append(target).append(','));
+            sb.append("] [");
+            g.forEachPredecessor(u, source -> sb.append(source).append(','));
+            sb.append("]\n");
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 200 random runs against Graf");
+        Random random = new Random(24);
+        for (int run = 0; run < 200; run++) {
+            int nbIds = 3 + random.nextInt(40);
+            Graf g = new Graf();
+            try (OffHeapGraf o = new OffHeapGraf()) {
+                for (int step = 0; step < 3000; step++) {
+                    int u = random.nextInt(nbIds) - 2;
+                    int v = random.nextInt(nbIds) - 2;
+                    int w = random.nextInt(3);
+                    boolean expected = true;
+                    boolean actual = true;
+                    switch (random.nextInt(10)) {
+                        case 0:
+                            expected = g.addNode(u);
+                            actual = o.addNode(u);
+                            break;
+                        case 1:
+                            if (random.nextInt(4) == 0) {
+                                expected = g.removeNode(u);
+                                actual = o.removeNode(u);
+                            }
+                            break;
+                        case 2:
+                        case 3:
+                        case 4:
+                            g.addEdge(new Node(u), new Node(v), w);
+                            o.addEdge(new Node(u), new Node(v), w);
+                            break;
+                        case 5:
+                            g.addEdge(u, v, w);
+                            o.addEdge(u, v, w);
+                            break;
+                        case 6:
+                            expected = g.removeEdge(u, v);
+                            actual = o.removeEdge(u, v);
+                            break;
+                        case 7:
+                            expected = g.removeEdge(u, v, w);
+                            actual = o.removeEdge(u, v, w);
+                            break;
+                        default:
+                            expected = g.existsEdge(u, v);
+                            actual = o.existsEdge(u, v);
+                    }
+                    if (expected != actual || g.nbEdges() != o.nbEdges() || g.nbNodes() != o.nbNodes()) {
+                        throw new AssertionError("run " + run + ", step " + step);
+                    }
+                }
+                if (!describe(g).equals(describe(o))) {
+                    throw new AssertionError("run " + run + "\n" + describe(g) + "---\n" + describe(o));
+                }
+            }
+        }
+        check(true, "same answers, nodes and edge lists as Graf");
+
+        System.out.println(">>>>>>>> Removing a node with 3 parallel edges to and from 1000 others");
+        // Closed explicitly, then reused
+        OffHeapGraf o = new OffHeapGraf();
+        for (int i = 1; i <= 1000; i++) {
+            for (int k = 0; k < 3; k++) {
+                o.addEdge(new Node(0), new Node(i), k);
+                o.addEdge(new Node(i), new Node(0), k);
+                o.addEdge(new Node(i), new Node(i % 7 + 1), k);
+            }
+        }
+        o.addEdge(0, 0);
+        check(o.removeNode(0) && o.nbNodes() == 1000 && o.nbEdges() == 3000, "1000 nodes and 3000 edges left");
+        check(o.inDegree(1) == 3 * 142 && o.outDegree(1) == 3, "node 1 keeps the edges from the others");
+        o.close();
+        check(o.nbNodes() == 0 && o.getAllNodes().isEmpty() && !o.existsNode(1), "empty once closed");
+        o.addEdge(new Node(1), new Node(2), 5);
+        check(o.nbEdges() == 1 && o.existsEdge(1, 2), "usable again after close");
+        o.close();
+    }
+}
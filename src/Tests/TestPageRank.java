@@ -0,0 +1,108 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import m1graf2023.*;
+
+/**
+ * Checks PageRank and personalized PageRank against a sequential power iteration, and that the
+ * ranks do not depend on the number of threads.
+ */
+public class TestPageRank {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Runs a number of power iterations, the rank of the nodes without out-edges being spread
+     * like the teleportation.
+     *
+     * @param teleport The teleportation probability of every node, by dense index.
+     */
+    static double[] powerIteration(CsrGraf graph, double[] teleport, double damping, int nbIterations) {
+        int n = graph.nbNodes();
+        double[] ranks = teleport.clone();
+        for (int iteration = 0; iteration < nbIterations; iteration++) {
+            double[] next = new double[n];
+            double dangling = 0;
+            for (int u = 0; u < n; u++) {
+                int degree = graph.outDegree(graph.nodeId(u));
+                if (degree == 0) {
+                    dangling += ranks[u];
+                } else {
+                    double share = damping * ranks[u] / degree;
+                    graph.forEachSuccessor(graph.nodeId(u), targetId -> next[graph.nodeIndex(targetId)] += share);
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                next[v] += (damping * dangling + 1 - damping) * teleport[v];
+            }
+            ranks = next;
+        }
+        return ranks;
+    }
+
+    private static boolean close(double[] expected, double[] actual) {
+        for (int v = 0; v < expected.length; v++) {
+            if (Math.abs(expected[v] - actual[v]) > 1e-12) {
+                return false;
+            }
+        }
+        return expected.length == actual.length;
+    }
+
+    public static void main(String[] args) {
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool pool = new ForkJoinPool(3);
+
+        System.out.println(">>>>>>>> 200 random graphs, up to 20000 nodes");
+        Random random = new Random(18);
+        for (int run = 0; run < 200; run++) {
+            int nbNodes = 1 + random.nextInt(run < 150 ? 30 : 20_000);
+            Graf g = new Graf();
+            for (int i = 1; i <= nbNodes; i++) {
+                g.addNode(i);
+            }
+            for (int k = random.nextInt(3 * nbNodes); k > 0; k--) {
+                g.addEdge(1 + random.nextInt(nbNodes), 1 + random.nextInt(nbNodes));
+            }
+            CsrGraf csr = g.toCsr();
+            PageRank pageRank = new PageRank(csr, pool);
+            double[] ranks = pageRank.ranks(0.85, 0, 30);
+            double[] teleport = new double[nbNodes];
+            Arrays.fill(teleport, 1.0 / nbNodes);
+            double sum = 0;
+            for (double rank : ranks) {
+                sum += rank;
+            }
+            if (!close(powerIteration(csr, teleport, 0.85, 30), ranks) || Math.abs(sum - 1) > 1e-9 || pageRank.getIterations() != 30) {
+                throw new AssertionError("run " + run + ": ranks");
+            }
+            int source = 1 + random.nextInt(nbNodes);
+            Arrays.fill(teleport, 0);
+            teleport[csr.nodeIndex(source)] = 1;
+            if (!close(powerIteration(csr, teleport, 0.5, 25), pageRank.personalizedRanks(new int[]{source}, 0.5, 0, 25))) {
+                throw new AssertionError("run " + run + ": personalized ranks");
+            }
+            if (!Arrays.equals(new PageRank(csr, single).ranks(0.85, 1e-10, 1000), pageRank.ranks(0.85, 1e-10, 1000))) {
+                throw new AssertionError("run " + run + ": ranks differ with the number of threads");
+            }
+        }
+        check(true, "same ranks as a power iteration, summing to 1");
+        check(true, "same personalized ranks as a power iteration");
+        check(true, "same ranks on 1 and 3 threads");
+
+        try {
+            new PageRank(new Graf(1, 0).toCsr(), pool).ranks(1, 0, 1);
+            check(false, "damping factor of 1 rejected");
+        } catch (IllegalArgumentException e) {
+            check(true, "damping factor of 1 rejected");
+        }
+        check(new PageRank(new Graf().toCsr(), pool).ranks(0.85, 0, 3).length == 0, "no ranks for an empty graph");
+        single.shutdown();
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import m1graf2023.*;
+
+/**
+ * Checks the parallel breadth-first distances and depth-first reachability of ParallelTraversal
+ * against the sequential BreadthFirstSearch, on pools of 1 to 8 threads.
+ */
+public class TestParallelTraversal {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    public static void main(String[] args) {
+        ForkJoinPool[] pools = {new ForkJoinPool(1), new ForkJoinPool(3), new ForkJoinPool(8)};
+
+        System.out.println(">>>>>>>> 200 random graphs, up to 20000 nodes, on Graf and CsrGraf");
+        Random random = new Random(13);
+        for (int run = 0; run < 200; run++) {
+            int nbNodes = 1 + random.nextInt(run < 150 ? 60 : 20_000);
+            int degree = 1 + random.nextInt(6);
+            Graf g = run % 3 == 0 ? new UndirectedGraf() : new Graf();
+            int spacing = run % 2 == 0 ? 1 : 3;
+            for (int i = 1; i <= nbNodes; i++) {
+                g.addNode(spacing * i);
+            }
+            for (int k = 0; k < nbNodes * degree / 2; k++) {
+                g.addEdge(spacing * (1 + random.nextInt(nbNodes)), spacing * (1 + random.nextInt(nbNodes)));
+            }
+            CsrGraf csr = g.toCsr();
+            BreadthFirstSearch bfs = new BreadthFirstSearch(csr);
+            for (ForkJoinPool pool : pools) {
+                for (graf_interface graph : new graf_interface[]{g, csr}) {
+                    ParallelTraversal traversal = new ParallelTraversal(graph, pool);
+                    int source = spacing * (1 + random.nextInt(nbNodes));
+                    int[] expected = bfs.distances(source);
+                    boolean[] reachable = traversal.reachable(source);
+                    boolean same = Arrays.equals(expected, traversal.bfsDistances(source));
+                    for (int i = 0; i < expected.length; i++) {
+                        same &= reachable[i] == expected[i] >= 0;
+                    }
+                    if (!same) {
+                        throw new AssertionError("run " + run + ", " + pool.getParallelism() + " threads, " + graph.getClass().getSimpleName());
+                    }
+                }
+            }
+        }
+        check(true, "same distances and reachable nodes as BreadthFirstSearch");
+        for (ForkJoinPool pool : pools) {
+            pool.shutdown();
+        }
+    }
+}
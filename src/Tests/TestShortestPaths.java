@@ -0,0 +1,119 @@
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import m1graf2023.*;
+
+/**
+ * Checks the distances and paths of ShortestPaths, plain, A* and bidirectional, against a
+ * Dijkstra search over a binary heap of the JDK.
+ */
+public class TestShortestPaths {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    /**
+     * Computes the distances from a node by dense index, -1 for the nodes not reached.
+     *
+     * @param reversed true to follow the edges backwards, giving the distances to the node.
+     */
+    static long[] dijkstra(CsrGraf graph, int sourceId, boolean reversed) {
+        long[] distances = new long[graph.nbNodes()];
+        Arrays.fill(distances, Long.MAX_VALUE);
+        distances[graph.nodeIndex(sourceId)] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[]{0, graph.nodeIndex(sourceId)});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int u = (int) entry[1];
+            if (entry[0] > distances[u]) {
+                continue;
+            }
+            EdgeVisitor relax = (endId, weight) -> {
+                int v = graph.nodeIndex(endId);
+                if (distances[u] + weight < distances[v]) {
+                    distances[v] = distances[u] + weight;
+                    queue.add(new long[]{distances[v], v});
+                }
+            };
+            if (reversed) {
+                graph.forEachInEdge(graph.nodeId(u), relax);
+            } else {
+                graph.forEachOutEdge(graph.nodeId(u), relax);
+            }
+        }
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] == Long.MAX_VALUE) {
+                distances[i] = -1;
+            }
+        }
+        return distances;
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 300 random weighted graphs, up to 3000 nodes");
+        Random random = new Random(14);
+        for (int run = 0; run < 300; run++) {
+            int nbNodes = 1 + random.nextInt(run < 250 ? 40 : 3000);
+            int degree = 1 + random.nextInt(5);
+            Graf g = run % 4 == 0 ? new UndirectedGraf() : new Graf();
+            for (int i = 1; i <= nbNodes; i++) {
+                g.addNode(2 * i);
+            }
+            // Small weights make many ties, and zero weights
+            int maxWeight = random.nextInt(3) == 0 ? 2 : 100;
+            for (int k = 0; k < nbNodes * degree; k++) {
+                g.addEdge(2 * (1 + random.nextInt(nbNodes)), 2 * (1 + random.nextInt(nbNodes)), random.nextInt(maxWeight));
+            }
+            CsrGraf csr = g.toCsr();
+            ShortestPaths paths = new ShortestPaths(csr);
+            for (int query = 0; query < 20; query++) {
+                int source = 2 * (1 + random.nextInt(nbNodes));
+                int target = 2 * (1 + random.nextInt(nbNodes));
+                long[] expected = dijkstra(csr, source, false);
+                long distance = expected[csr.nodeIndex(target)];
+                long[] toTarget = dijkstra(csr, target, true);
+                // Admissible heuristics: half the exact remaining distance, then the exact one
+                ShortestPaths.Heuristic half = (nodeId, targetId) -> Math.max(0, toTarget[csr.nodeIndex(nodeId)]) / 2;
+                ShortestPaths.Heuristic exact = (nodeId, targetId) -> Math.max(0, toTarget[csr.nodeIndex(nodeId)]);
+                if (!Arrays.equals(expected, paths.distances(source)) || paths.distance(source, target) != distance
+                        || paths.bidirectionalDistance(source, target) != distance
+                        || paths.distance(source, target, half) != distance || paths.distance(source, target, exact) != distance) {
+                    throw new AssertionError("run " + run + ": from " + source + " to " + target);
+                }
+                int[] path = paths.path(source, target);
+                if ((path == null) != (distance < 0)) {
+                    throw new AssertionError("run " + run + ": path from " + source + " to " + target);
+                }
+                if (path != null) {
+                    long length = 0;
+                    for (int i = 1; i < path.length; i++) {
+                        long lightest = Long.MAX_VALUE;
+                        for (Edge edge : csr.getEdges(path[i - 1], path[i])) {
+                            lightest = Math.min(lightest, edge.getWeight());
+                        }
+                        length += lightest;
+                    }
+                    if (length != distance || path[0] != source || path[path.length - 1] != target) {
+                        throw new AssertionError("run " + run + ": path from " + source + " to " + target + " " + Arrays.toString(path));
+                    }
+                }
+            }
+        }
+        check(true, "same distances as Dijkstra, with or without heuristic, from one or both ends");
+        check(true, "paths of the shortest length");
+
+        Graf g = new Graf();
+        g.addEdge(new Node(1), new Node(2), -1);
+        try {
+            new ShortestPaths(g.toCsr());
+            check(false, "negative weights rejected");
+        } catch (IllegalArgumentException e) {
+            check(true, "negative weights rejected");
+        }
+    }
+}
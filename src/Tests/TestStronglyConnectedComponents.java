@@ -0,0 +1,82 @@
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import m1graf2023.*;
+
+/**
+ * Checks the strongly connected components against mutual reachability, their numbering
+ * against the order of the condensation DAG, and the depth reached on a long cycle.
+ */
+public class TestStronglyConnectedComponents {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 300 random graphs");
+        Random random = new Random(16);
+        for (int run = 0; run < 300; run++) {
+            int nbNodes = 1 + random.nextInt(40);
+            Graf g = new Graf();
+            for (int i = 1; i <= nbNodes; i++) {
+                g.addNode(3 * i);
+            }
+            for (int k = random.nextInt(3 * nbNodes); k > 0; k--) {
+                g.addEdge(3 * (1 + random.nextInt(nbNodes)), 3 * (1 + random.nextInt(nbNodes)));
+            }
+            CsrGraf csr = g.toCsr();
+            StronglyConnectedComponents scc = new StronglyConnectedComponents(csr);
+            int[] components = scc.components();
+            boolean[][] reaches = new boolean[nbNodes][];
+            BreadthFirstSearch bfs = new BreadthFirstSearch(csr);
+            for (int u = 0; u < nbNodes; u++) {
+                int[] distances = bfs.distances(csr.nodeId(u));
+                reaches[u] = new boolean[nbNodes];
+                for (int v = 0; v < nbNodes; v++) {
+                    reaches[u][v] = distances[v] >= 0;
+                }
+            }
+            for (int u = 0; u < nbNodes; u++) {
+                for (int v = 0; v < nbNodes; v++) {
+                    if ((reaches[u][v] && reaches[v][u]) != (components[u] == components[v])
+                            || reaches[u][v] && components[u] > components[v]) {
+                        throw new AssertionError("run " + run + ": nodes " + csr.nodeId(u) + " and " + csr.nodeId(v));
+                    }
+                }
+            }
+            Set<String> expected = new HashSet<>();
+            for (Edge edge : g.getAllEdges()) {
+                int from = scc.component(edge.getFrom().getId());
+                int to = scc.component(edge.getTo().getId());
+                if (from != to) {
+                    expected.add(from + ">" + to);
+                }
+            }
+            Graf condensation = scc.condensation();
+            boolean same = condensation.nbNodes() == scc.count() && condensation.nbEdges() == expected.size();
+            for (Edge edge : condensation.getAllEdges()) {
+                same &= expected.contains(edge.getFrom().getId() + ">" + edge.getTo().getId());
+            }
+            if (!same || scc.component(3) != components[0] || scc.component(2) != 0) {
+                throw new AssertionError("run " + run + ": condensation or lookup");
+            }
+        }
+        check(true, "components are the sets of mutually reachable nodes");
+        check(true, "components numbered in topological order");
+        check(true, "condensation has one edge per pair of joined components");
+
+        System.out.println(">>>>>>>> A cycle of 3M nodes");
+        int nbNodes = 3_000_000;
+        int[] values = new int[2 * nbNodes];
+        for (int i = 0; i < nbNodes; i++) {
+            values[2 * i] = i + 2 > nbNodes ? 1 : i + 2;
+        }
+        StronglyConnectedComponents cycle = new StronglyConnectedComponents(CsrGraf.fromSuccessorArray(ForkJoinPool.commonPool(), values));
+        check(cycle.count() == 1, "one component, without overflowing the stack");
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import m1graf2023.*;
+
+/**
+ * Checks that the parallel successor-array loaders build the same graph as the sequential
+ * Graf(int...) constructor, edge lists in the same order.
+ */
+public class TestSuccessorArrayLoader {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    private static String describe(List<Edge> edges) {
+        StringBuilder sb = new StringBuilder();
+        for (Edge edge : edges) {
+            sb.append(edge.getFrom().getId()).append('>').append(edge.getTo().getId()).append('/').append(edge.getWeight()).append(',');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Describes the nodes of a graph with their edge lists in order.
+     */
+    private static String describe(Graf g) {
+        List<Integer> ids = new ArrayList<>();
+        for (Node n : g.getAllNodes()) {
+            ids.add(n.getId());
+        }
+        Collections.sort(ids);
+        StringBuilder sb = new StringBuilder();
+        sb.append(g.nbNodes()).append(' ').append(g.nbEdges()).append(' ').append(g.stats().maxDegree()).append('\n');
+        for (int u : ids) {
+            sb.append(u).append(": ").append(describe(g.getOutEdges(u))).append(" | ").append(describe(g.getInEdges(u))).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Builds a successor array whose rows may be empty, hold repeated or negative targets, or
+     * point past the last row, the last one possibly missing its 0.
+     */
+    private static int[] randomSuccessorArray(Random random, int nbRows, int maxDegree) {
+        List<Integer> values = new ArrayList<>();
+        for (int row = 0; row < nbRows; row++) {
+            for (int k = random.nextInt(maxDegree + 1); k > 0; k--) {
+                int target = random.nextInt(10) == 0 ? -random.nextInt(5) - 1 : 1 + random.nextInt(nbRows + 3);
+                values.add(target);
+            }
+            if (row < nbRows - 1 || random.nextBoolean()) {
+                values.add(0);
+            }
+        }
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    public static void main(String[] args) {
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        System.out.println(">>>>>>>> 300 random successor arrays");
+        Random random = new Random(8);
+        for (int run = 0; run < 300; run++) {
+            int[] values = randomSuccessorArray(random, random.nextInt(40), random.nextInt(6));
+            Graf expected = new Graf(values);
+            String description = describe(expected);
+            if (!describe(Graf.fromSuccessorArray(pool, values)).equals(description)
+                    || !describe(Graf.fromSuccessorArray(values)).equals(description)) {
+                throw new AssertionError("run " + run + "\n" + description + "---\n" + describe(Graf.fromSuccessorArray(pool, values)));
+            }
+            CsrGraf csr = CsrGraf.fromSuccessorArray(pool, values);
+            CsrGraf expectedCsr = expected.toCsr();
+            if (csr.nbNodes() != expectedCsr.nbNodes() || !describe(csr.getAllEdges()).equals(describe(expectedCsr.getAllEdges()))) {
+                throw new AssertionError("run " + run + ": CSR");
+            }
+        }
+        check(true, "same nodes and edge lists as Graf(int...)");
+        check(true, "same CSR form as Graf(int...).toCsr()");
+
+        System.out.println(">>>>>>>> 200000 rows split among the threads");
+        int[] values = randomSuccessorArray(random, 200_000, 8);
+        check(describe(Graf.fromSuccessorArray(pool, values)).equals(describe(new Graf(values))), "same graph as Graf(int...)");
+        pool.shutdown();
+    }
+}
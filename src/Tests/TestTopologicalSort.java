@@ -0,0 +1,99 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import m1graf2023.*;
+
+/**
+ * Checks the topological order, cycle and longest path of TopologicalSort on random graphs,
+ * half of them acyclic by construction.
+ */
+public class TestTopologicalSort {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 2000 random graphs");
+        Random random = new Random(17);
+        int nbCyclic = 0;
+        for (int run = 0; run < 2000; run++) {
+            int nbNodes = 1 + random.nextInt(30);
+            Graf g = new Graf();
+            for (int i = 1; i <= nbNodes; i++) {
+                g.addNode(2 * i);
+            }
+            // Edges only from smaller to larger IDs make a DAG
+            boolean dag = random.nextBoolean();
+            for (int k = random.nextInt(3 * nbNodes); k > 0; k--) {
+                int u = 1 + random.nextInt(nbNodes);
+                int v = 1 + random.nextInt(nbNodes);
+                if (!dag || u < v) {
+                    g.addEdge(2 * u, 2 * v, random.nextInt(10));
+                }
+            }
+            CsrGraf csr = g.toCsr();
+            TopologicalSort sort = new TopologicalSort(csr);
+            boolean acyclic = new StronglyConnectedComponents(csr).count() == nbNodes;
+            for (int i = 1; i <= nbNodes; i++) {
+                acyclic &= !g.existsEdge(2 * i, 2 * i);
+            }
+            if (acyclic != sort.isAcyclic()) {
+                throw new AssertionError("run " + run + ": isAcyclic");
+            }
+            if (acyclic) {
+                int[] order = sort.order();
+                int[] positions = new int[2 * nbNodes + 1];
+                for (int i = 0; i < order.length; i++) {
+                    positions[order[i]] = i;
+                }
+                long[] longest = new long[2 * nbNodes + 1];
+                long expected = 0;
+                for (int id : order) {
+                    for (Edge edge : g.getOutEdges(id)) {
+                        int to = edge.getTo().getId();
+                        if (positions[id] >= positions[to]) {
+                            throw new AssertionError("run " + run + ": order " + Arrays.toString(order));
+                        }
+                        longest[to] = Math.max(longest[to], longest[id] + edge.getWeight());
+                        expected = Math.max(expected, longest[to]);
+                    }
+                }
+                int[] path = sort.longestPath();
+                long length = 0;
+                for (int i = 0; i + 1 < path.length; i++) {
+                    long heaviest = -1;
+                    for (Edge edge : g.getEdges(path[i], path[i + 1])) {
+                        heaviest = Math.max(heaviest, edge.getWeight());
+                    }
+                    if (heaviest < 0) {
+                        throw new AssertionError("run " + run + ": no edge in the path " + Arrays.toString(path));
+                    }
+                    length += heaviest;
+                }
+                if (order.length != nbNodes || sort.longestPathLength() != expected || length != expected || sort.cycle() != null) {
+                    throw new AssertionError("run " + run + ": longest path");
+                }
+            } else {
+                nbCyclic++;
+                int[] cycle = sort.cycle();
+                Set<Integer> distinct = new HashSet<>();
+                for (int i = 0; i < cycle.length; i++) {
+                    distinct.add(cycle[i]);
+                    if (!g.existsEdge(cycle[i], cycle[(i + 1) % cycle.length])) {
+                        throw new AssertionError("run " + run + ": cycle " + Arrays.toString(cycle));
+                    }
+                }
+                if (distinct.size() != cycle.length || sort.order() != null || sort.longestPathLength() != -1 || sort.longestPath() != null) {
+                    throw new AssertionError("run " + run + ": cyclic graph");
+                }
+            }
+        }
+        check(true, (2000 - nbCyclic) + " DAGs ordered, with their longest path");
+        check(true, nbCyclic + " cyclic graphs, each with a simple cycle found");
+    }
+}
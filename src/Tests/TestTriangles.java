@@ -0,0 +1,82 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import m1graf2023.*;
+
+/**
+ * Checks the triangle counts and clustering coefficients of Triangles, sequential and parallel,
+ * against a count over an adjacency matrix, edge directions, multi-edges and self-loops ignored.
+ */
+public class TestTriangles {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    public static void main(String[] args) {
+        ForkJoinPool pool = new ForkJoinPool(3);
+
+        System.out.println(">>>>>>>> 300 random graphs, up to 1500 nodes");
+        Random random = new Random(20);
+        for (int run = 0; run < 300; run++) {
+            int nbNodes = 1 + random.nextInt(run < 250 ? 30 : 1500);
+            Graf g = new Graf();
+            for (int i = 1; i <= nbNodes; i++) {
+                g.addNode(2 * i);
+            }
+            for (int k = random.nextInt(4 * nbNodes + 1); k > 0; k--) {
+                g.addEdge(2 * (1 + random.nextInt(nbNodes)), 2 * (1 + random.nextInt(nbNodes)));
+            }
+            boolean[][] adjacent = new boolean[nbNodes][nbNodes];
+            for (Edge edge : g.getAllEdges()) {
+                int u = edge.getFrom().getId() / 2 - 1;
+                int v = edge.getTo().getId() / 2 - 1;
+                if (u != v) {
+                    adjacent[u][v] = true;
+                    adjacent[v][u] = true;
+                }
+            }
+            long total = 0;
+            long[] perNode = new long[nbNodes];
+            int[] degrees = new int[nbNodes];
+            for (int i = 0; i < nbNodes; i++) {
+                for (int j = 0; j < nbNodes; j++) {
+                    degrees[i] += adjacent[i][j] ? 1 : 0;
+                }
+            }
+            for (int i = 0; i < nbNodes; i++) {
+                for (int j = i + 1; j < nbNodes; j++) {
+                    if (adjacent[i][j]) {
+                        for (int k = j + 1; k < nbNodes; k++) {
+                            if (adjacent[i][k] && adjacent[j][k]) {
+                                total++;
+                                perNode[i]++;
+                                perNode[j]++;
+                                perNode[k]++;
+                            }
+                        }
+                    }
+                }
+            }
+            CsrGraf csr = g.toCsr();
+            for (Triangles triangles : new Triangles[]{new Triangles(csr), new Triangles(csr, pool)}) {
+                boolean same = triangles.count() == total;
+                double average = 0;
+                for (int i = 0; i < nbNodes; i++) {
+                    int id = 2 * (i + 1);
+                    double coefficient = degrees[i] < 2 ? 0 : perNode[i] / (degrees[i] * (degrees[i] - 1) / 2.0);
+                    same &= triangles.triangles(id) == perNode[i] && triangles.degree(id) == degrees[i]
+                            && Math.abs(coefficient - triangles.clusteringCoefficient(id)) <= 1e-12;
+                    average += coefficient;
+                }
+                if (!same || Math.abs(average / nbNodes - triangles.averageClusteringCoefficient()) > 1e-9) {
+                    throw new AssertionError("run " + run);
+                }
+            }
+        }
+        check(true, "same total and per-node triangles, degrees and clustering coefficients, on 1 and 3 threads");
+        pool.shutdown();
+    }
+}
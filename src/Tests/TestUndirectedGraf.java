@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import m1graf2023.*;
+
+/**
+ * Checks UndirectedGraf against a multiset of weighted unordered pairs along random changes:
+ * every edge is seen the same from both of its ends, and a self-loop counts twice in the degree.
+ */
+public class TestUndirectedGraf {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+        System.out.println("OK: " + message);
+    }
+
+    private static String pair(int u, int v) {
+        return Math.min(u, v) + "-" + Math.max(u, v);
+    }
+
+    private static List<Integer> weights(List<Edge> edges) {
+        List<Integer> weights = new ArrayList<>();
+        for (Edge edge : edges) {
+            weights.add(edge.getWeight());
+        }
+        Collections.sort(weights);
+        return weights;
+    }
+
+    public static void main(String[] args) {
+        System.out.println(">>>>>>>> 300 random runs");
+        Random random = new Random(11);
+        for (int run = 0; run < 300; run++) {
+            UndirectedGraf g = new UndirectedGraf();
+            Map<String, List<Integer>> expected = new HashMap<>();
+            TreeSet<Integer> nodes = new TreeSet<>();
+            int nbIds = 1 + random.nextInt(8);
+            for (int step = 0; step < 150; step++) {
+                int u = random.nextInt(nbIds);
+                int v = random.nextInt(nbIds);
+                int w = random.nextInt(3);
+                List<Integer> between = expected.computeIfAbsent(pair(u, v), key -> new ArrayList<>());
+                switch (random.nextInt(5)) {
+                    case 0:
+                    case 1:
+                        g.addEdge(new Node(u), new Node(v), w);
+                        nodes.add(u);
+                        nodes.add(v);
+                        between.add(w);
+                        break;
+                    case 2: {
+                        List<Integer> before = weights(g.getEdges(u, v));
+                        if (g.removeEdge(u, v) != !between.isEmpty()) {
+                            throw new AssertionError("run " + run + ", step " + step + ": removeEdge(" + u + ", " + v + ")");
+                        }
+                        List<Integer> after = weights(g.getEdges(u, v));
+                        for (int weight : after) {
+                            before.remove((Integer) weight);
+                        }
+                        // before now holds the weight of the edge removed, if any
+                        if (!before.isEmpty()) {
+                            between.remove(before.get(0));
+                        }
+                        break;
+                    }
+                    case 3:
+                        if (g.removeEdge(u, v, w) != between.remove((Integer) w)) {
+                            throw new AssertionError("run " + run + ", step " + step + ": removeEdge(" + u + ", " + v + ", " + w + ")");
+                        }
+                        break;
+                    default:
+                        if (random.nextInt(4) == 0 && g.removeNode(u)) {
+                            nodes.remove(u);
+                            for (int x = 0; x < nbIds; x++) {
+                                expected.remove(pair(u, x));
+                            }
+                        }
+                }
+                int nbEdges = 0;
+                for (List<Integer> list : expected.values()) {
+                    nbEdges += list.size();
+                }
+                if (g.nbEdges() != nbEdges || g.nbNodes() != nodes.size()) {
+                    throw new AssertionError("run " + run + ", step " + step + ": counts");
+                }
+                for (int x : nodes) {
+                    int degree = 0;
+                    for (int y = 0; y < nbIds; y++) {
+                        List<Integer> list = expected.getOrDefault(pair(x, y), Collections.emptyList());
+                        degree += x == y ? 2 * list.size() : list.size();
+                        List<Integer> sorted = new ArrayList<>(list);
+                        Collections.sort(sorted);
+                        if (!weights(g.getEdges(x, y)).equals(sorted) || g.existsEdge(x, y) != !list.isEmpty() || g.existsEdge(x, y) != g.existsEdge(y, x)) {
+                            throw new AssertionError("run " + run + ", step " + step + ": edges between " + x + " and " + y);
+                        }
+                    }
+                    int[] visits = new int[1];
+                    g.forEachSuccessor(x, target -> visits[0]++);
+                    boolean outward = true;
+                    for (Edge edge : g.getOutEdges(x)) {
+                        outward &= edge.getFrom().getId() == x;
+                    }
+                    for (Edge edge : g.getInEdges(x)) {
+                        outward &= edge.getTo().getId() == x;
+                    }
+                    if (g.degree(x) != degree || g.inDegree(x) != degree || g.outDegree(x) != degree || visits[0] != degree
+                            || g.getOutEdges(x).size() != degree || g.getInEdges(x).size() != degree || !outward) {
+                        throw new AssertionError("run " + run + ", step " + step + ": degree of " + x);
+                    }
+                }
+            }
+        }
+        check(true, "same edges from both ends, degrees and counts as the multiset");
+
+        System.out.println(">>>>>>>> Storage of an edge added once");
+        UndirectedGraf g = new UndirectedGraf();
+        g.addEdge(new Node(1), new Node(2), 5);
+        check(g.getOutEdges(1).get(0).getTo().getId() == 2 && g.getOutEdges(2).get(0).getTo().getId() == 1, "seen as going out of both ends");
+        check(g.removeEdge(2, 1, 5) && g.nbEdges() == 0 && g.degree(1) == 0, "removed from the other end");
+    }
+}
@@ -0,0 +1,216 @@
+package m1graf2023;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first search engine over a CSR snapshot, meant to run many searches on the same graph.
+ * Distances are returned in arrays indexed by dense node index, see {@link CsrGraf#nodeIndex(int)}
+ * and {@link CsrGraf#nodeId(int)}, with -1 for the nodes that are not reached.
+ *
+ * <p>Single-source searches are level-synchronous and direction-optimizing: a level is expanded
+ * top-down from the frontier while it is small, and bottom-up, each unvisited node looking for a
+ * parent in a bitset of the frontier through the in-edge side, while it holds a large share of
+ * the edges still to explore. Multi-source searches run up to 64 sources at once, keeping one bit
+ * per source in a long per node, so the edges shared by several searches are scanned once.
+ *
+ * <p>The scratch arrays are allocated once per engine, which is therefore not thread-safe.
+ */
+public class BreadthFirstSearch {
+    /**
+     * Number of sources run together by {@link #multiSourceDistances(int...)}.
+     */
+    public static final int MAX_SOURCES = Long.SIZE;
+
+    // Switch to bottom-up when the frontier has more than 1/ALPHA of the unexplored edges,
+    // back to top-down when it has fewer than 1/BETA of the nodes
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+
+    private final CsrGraf graph;
+    private final int n;
+    private final int[] queue;
+    private final long[] frontier;
+    private final long[] nextFrontier;
+    private long[] seen;
+    private long[] visit;
+    private long[] visitNext;
+
+    /**
+     * Constructs a search engine over a graph.
+     *
+     * @param graph The graph to search.
+     */
+    public BreadthFirstSearch(CsrGraf graph) {
+        this.graph = graph;
+        this.n = graph.nbNodes();
+        this.queue = new int[n];
+        this.frontier = new long[(n + 63) >>> 6];
+        this.nextFrontier = new long[frontier.length];
+    }
+
+    /**
+     * Computes the hop distances from a node.
+     *
+     * @param sourceId The ID of the source node.
+     * @return The distances, indexed by dense node index.
+     */
+    public int[] distances(int sourceId) {
+        return distances(sourceId, new int[n], true);
+    }
+
+    /**
+     * Computes the hop distances from a node into an existing array, so repeated searches do not allocate.
+     *
+     * @param sourceId            The ID of the source node.
+     * @param distances           The array to fill, of length nbNodes().
+     * @param directionOptimizing false to expand every level top-down.
+     * @return The distances array.
+     */
+    public int[] distances(int sourceId, int[] distances, boolean directionOptimizing) {
+        Arrays.fill(distances, -1);
+        int source = graph.nodeIndex(sourceId);
+        if (source < 0) {
+            return distances;
+        }
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        distances[source] = 0;
+        queue[0] = source;
+        int head = 0;
+        int tail = 1;
+        long frontierEdges = offsets[source + 1] - offsets[source];
+        long unexploredEdges = targets.length - frontierEdges;
+        boolean bottomUp = false;
+        int frontierSize = 1;
+        for (int level = 1; frontierSize > 0; level++) {
+            if (directionOptimizing && !bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+                Arrays.fill(frontier, 0);
+                for (int i = head; i < tail; i++) {
+                    frontier[queue[i] >>> 6] |= 1L << queue[i];
+                }
+            } else if (bottomUp && frontierSize < n / BETA) {
+                bottomUp = false;
+                head = 0;
+                tail = 0;
+                for (int w = 0; w < frontier.length; w++) {
+                    for (long word = frontier[w]; word != 0; word &= word - 1) {
+                        queue[tail++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    }
+                }
+            }
+            unexploredEdges -= frontierEdges;
+            frontierEdges = 0;
+            frontierSize = 0;
+            if (bottomUp) {
+                int[] inOffsets = graph.inOffsets();
+                int[] inSources = graph.inSources();
+                Arrays.fill(nextFrontier, 0);
+                for (int v = 0; v < n; v++) {
+                    if (distances[v] >= 0) {
+                        continue;
+                    }
+                    for (int k = inOffsets[v]; k < inOffsets[v + 1]; k++) {
+                        int u = inSources[k];
+                        if ((frontier[u >>> 6] & (1L << u)) != 0) {
+                            distances[v] = level;
+                            nextFrontier[v >>> 6] |= 1L << v;
+                            frontierSize++;
+                            frontierEdges += offsets[v + 1] - offsets[v];
+                            break;
+                        }
+                    }
+                }
+                System.arraycopy(nextFrontier, 0, frontier, 0, frontier.length);
+            } else {
+                int end = tail;
+                for (int i = head; i < end; i++) {
+                    int u = queue[i];
+                    for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                        int v = targets[k];
+                        if (distances[v] < 0) {
+                            distances[v] = level;
+                            queue[tail++] = v;
+                            frontierEdges += offsets[v + 1] - offsets[v];
+                        }
+                    }
+                }
+                head = end;
+                frontierSize = tail - head;
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Computes the hop distances from up to 64 nodes in one multi-source search.
+     *
+     * @param sourceIds The IDs of the source nodes, at most {@link #MAX_SOURCES}.
+     * @return The distances from each source, indexed by dense node index.
+     * @throws IllegalArgumentException If more than {@link #MAX_SOURCES} sources are given.
+     */
+    public int[][] multiSourceDistances(int... sourceIds) {
+        int[][] distances = new int[sourceIds.length][n];
+        multiSourceDistances(sourceIds, distances);
+        return distances;
+    }
+
+    /**
+     * Computes the hop distances from up to 64 nodes into existing arrays.
+     *
+     * @param sourceIds The IDs of the source nodes, at most {@link #MAX_SOURCES}.
+     * @param distances One array of length nbNodes() per source, filled with its distances.
+     * @throws IllegalArgumentException If more than {@link #MAX_SOURCES} sources are given.
+     */
+    public void multiSourceDistances(int[] sourceIds, int[][] distances) {
+        if (sourceIds.length > MAX_SOURCES) {
+            throw new IllegalArgumentException("at most " + MAX_SOURCES + " sources per search, got " + sourceIds.length);
+        }
+        if (seen == null) {
+            seen = new long[n];
+            visit = new long[n];
+            visitNext = new long[n];
+        } else {
+            Arrays.fill(seen, 0);
+            Arrays.fill(visit, 0);
+        }
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        boolean active = false;
+        for (int i = 0; i < sourceIds.length; i++) {
+            Arrays.fill(distances[i], -1);
+            int source = graph.nodeIndex(sourceIds[i]);
+            if (source >= 0) {
+                seen[source] |= 1L << i;
+                visit[source] |= 1L << i;
+                distances[i][source] = 0;
+                active = true;
+            }
+        }
+        for (int level = 1; active; level++) {
+            active = false;
+            for (int u = 0; u < n; u++) {
+                long sources = visit[u];
+                if (sources == 0) {
+                    continue;
+                }
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int v = targets[k];
+                    long reached = sources & ~seen[v];
+                    if (reached != 0) {
+                        seen[v] |= reached;
+                        visitNext[v] |= reached;
+                        for (; reached != 0; reached &= reached - 1) {
+                            distances[Long.numberOfTrailingZeros(reached)][v] = level;
+                        }
+                        active = true;
+                    }
+                }
+            }
+            long[] swap = visit;
+            visit = visitNext;
+            visitNext = swap;
+            Arrays.fill(visitNext, 0);
+        }
+    }
+}
@@ -0,0 +1,638 @@
+package m1graf2023;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Represents a directed graph that many threads can read and modify at once. Nodes are spread by
+ * ID over lock stripes, each with its own read-write lock and node table, and a node keeps its
+ * out-edges and in-edges in its stripe. Reads of a node take the read lock of its stripe only,
+ * an edge change takes the write locks of the stripes of both ends, in stripe order so that no
+ * two writers wait on each other, and only node removal locks every stripe.
+ *
+ * <p>The node and edge counts are kept in LongAdders. The edge lists returned are copies, and
+ * operations over the whole graph see each stripe at a different moment. The forEach methods
+ * copy the ends and weights of the edges under the read lock of the node, then call their action
+ * once the lock is released, so the action may read or modify the graph.
+ */
+public class ConcurrentGraf implements graf_interface {
+    private final Stripe[] stripes;
+    private final int shift;
+    private final LongAdder nodeCount = new LongAdder();
+    private final LongAdder edgeCount = new LongAdder();
+
+    /**
+     * Constructs an empty graph with four lock stripes per available processor.
+     */
+    public ConcurrentGraf() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an empty graph.
+     *
+     * @param concurrency The number of lock stripes wanted, rounded up to a power of two.
+     */
+    public ConcurrentGraf(int concurrency) {
+        int size = Integer.highestOneBit(Math.max(1, Math.min(concurrency, 1 << 16)) * 2 - 1);
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        shift = Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * The nodes of a stripe and the lock guarding them.
+     */
+    private static class Stripe {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final IntMap<Adjacency> nodes = new IntMap<>();
+    }
+
+    /**
+     * A node with its out-edges and in-edges.
+     */
+    private static class Adjacency {
+        final Node node;
+        final List<Edge> out = new ArrayList<>();
+        final List<Edge> in = new ArrayList<>();
+
+        Adjacency(Node node) {
+            this.node = node;
+        }
+    }
+
+    /**
+     * Picks the stripe of a node from the high bits of its hash. The node tables of the stripes
+     * take their slots from the low bits of the same hash, which must thus vary within a stripe.
+     */
+    private int stripeIndex(int nodeId) {
+        // A shift by 32 would shift nothing: a single stripe takes no bit
+        return shift == 32 ? 0 : (nodeId * 0x9E3779B9) >>> shift;
+    }
+
+    private Stripe stripe(int nodeId) {
+        return stripes[stripeIndex(nodeId)];
+    }
+
+    /**
+     * Write-locks the stripes of two nodes, the one of smaller index first.
+     */
+    private void lockPair(int a, int b) {
+        int i = stripeIndex(a);
+        int j = stripeIndex(b);
+        stripes[Math.min(i, j)].lock.writeLock().lock();
+        if (i != j) {
+            stripes[Math.max(i, j)].lock.writeLock().lock();
+        }
+    }
+
+    private void unlockPair(int a, int b) {
+        int i = stripeIndex(a);
+        int j = stripeIndex(b);
+        if (i != j) {
+            stripes[Math.max(i, j)].lock.writeLock().unlock();
+        }
+        stripes[Math.min(i, j)].lock.writeLock().unlock();
+    }
+
+    private void lockAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of nodes in the graph.
+     *
+     * @return The number of nodes in the graph.
+     */
+    @Override
+    public int nbNodes() {
+        return nodeCount.intValue();
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     *
+     * @return The number of edges in the graph.
+     */
+    @Override
+    public int nbEdges() {
+        return edgeCount.intValue();
+    }
+
+    /**
+     * Checks if a node with a specific ID exists in the graph.
+     *
+     * @param nodeId The ID of the node to check.
+     * @return true if the node exists, false otherwise.
+     */
+    public boolean existsNode(int nodeId) {
+        return getNode(nodeId) != null;
+    }
+
+    /**
+     * Gets a node by its ID.
+     *
+     * @param id The ID of the node to retrieve.
+     * @return The node with the specified ID, or null if not found.
+     */
+    public Node getNode(int id) {
+        Stripe stripe = stripe(id);
+        stripe.lock.readLock().lock();
+        try {
+            Adjacency adjacency = stripe.nodes.get(id);
+            return adjacency != null ? adjacency.node : null;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a node with a specific ID to the graph.
+     *
+     * @param nodeId The ID of the node to add.
+     * @return true if the node is successfully added, false if a node with the same ID already exists.
+     */
+    public boolean addNode(int nodeId) {
+        return addNode(new Node(nodeId));
+    }
+
+    /**
+     * Adds a node to the graph.
+     *
+     * @param n The node to add.
+     * @return true if the node is successfully added, false if it already exists in the graph.
+     */
+    public boolean addNode(Node n) {
+        Stripe stripe = stripe(n.getId());
+        stripe.lock.writeLock().lock();
+        try {
+            return putNode(stripe, n) != null;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a node to its write-locked stripe if it is missing.
+     *
+     * @return The new adjacency, or null if the node already exists.
+     */
+    private Adjacency putNode(Stripe stripe, Node n) {
+        if (stripe.nodes.containsKey(n.getId())) {
+            return null;
+        }
+        Adjacency adjacency = new Adjacency(n);
+        stripe.nodes.put(n.getId(), adjacency);
+        nodeCount.increment();
+        return adjacency;
+    }
+
+    /**
+     * Removes a node with a specific ID and its edges from the graph. All the stripes are locked
+     * meanwhile.
+     *
+     * @param nodeId The ID of the node to remove.
+     * @return true if the node is successfully removed, false if it does not exist in the graph.
+     */
+    public boolean removeNode(int nodeId) {
+        lockAll();
+        try {
+            Adjacency adjacency = stripe(nodeId).nodes.remove(nodeId);
+            if (adjacency == null) {
+                return false;
+            }
+            nodeCount.decrement();
+            // Remove the incident edges from the lists of each distinct neighbour once
+            Set<Integer> neighbours = new HashSet<>();
+            for (Edge edge : adjacency.out) {
+                int to = edge.getTo().getId();
+                if (to != nodeId && neighbours.add(to)) {
+                    stripe(to).nodes.get(to).in.removeIf(e -> e.getFrom().getId() == nodeId);
+                }
+            }
+            int removed = adjacency.out.size();
+            neighbours.clear();
+            for (Edge edge : adjacency.in) {
+                int from = edge.getFrom().getId();
+                if (from != nodeId) {
+                    if (neighbours.add(from)) {
+                        stripe(from).nodes.get(from).out.removeIf(e -> e.getTo().getId() == nodeId);
+                    }
+                    removed++;
+                }
+            }
+            edgeCount.add(-removed);
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Removes a node and its edges from the graph.
+     *
+     * @param n The node to remove.
+     * @return true if the node is successfully removed, false if it does not exist in the graph.
+     */
+    public boolean removeNode(Node n) {
+        return removeNode(n.getId());
+    }
+
+    /**
+     * Retrieves a list of all nodes in the graph, stripe by stripe.
+     *
+     * @return A list of all nodes in the graph.
+     */
+    @Override
+    public List<Node> getAllNodes() {
+        List<Node> nodes = new ArrayList<>(nbNodes());
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                for (int slot = 0; slot < stripe.nodes.capacity(); slot++) {
+                    Adjacency adjacency = stripe.nodes.valueAt(slot);
+                    if (adjacency != null) {
+                        nodes.add(adjacency.node);
+                    }
+                }
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public boolean existsEdge(Node u, Node v) {
+        return u != null && v != null && existsEdge(u.getId(), v.getId());
+    }
+
+    @Override
+    public boolean existsEdge(int uId, int vId) {
+        Stripe stripe = stripe(uId);
+        stripe.lock.readLock().lock();
+        try {
+            Adjacency adjacency = stripe.nodes.get(uId);
+            if (adjacency != null) {
+                for (int i = 0; i < adjacency.out.size(); i++) {
+                    if (adjacency.out.get(i).getTo().getId() == vId) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an edge between two nodes, adding the nodes that are missing.
+     *
+     * @param from The source node.
+     * @param to   The target node.
+     */
+    @Override
+    public void addEdge(Node from, Node to) {
+        addEdge(from, to, 0);
+    }
+
+    /**
+     * Adds an edge between two existing nodes.
+     *
+     * @param fromId The ID of the source node.
+     * @param toId   The ID of the target node.
+     */
+    @Override
+    public void addEdge(int fromId, int toId) {
+        addEdge(fromId, toId, 0);
+    }
+
+    /**
+     * Adds a weighted edge between two nodes, adding the nodes that are missing.
+     *
+     * @param from   The source node.
+     * @param to     The target node.
+     * @param weight The weight of the edge.
+     */
+    @Override
+    public void addEdge(Node from, Node to, int weight) {
+        insertEdge(from, to, from.getId(), to.getId(), weight);
+    }
+
+    /**
+     * Adds a weighted edge between two existing nodes.
+     *
+     * @param fromId The ID of the source node.
+     * @param toId   The ID of the target node.
+     * @param weight The weight of the edge.
+     */
+    @Override
+    public void addEdge(int fromId, int toId, int weight) {
+        insertEdge(null, null, fromId, toId, weight);
+    }
+
+    /**
+     * Inserts an edge under the locks of both ends. Missing ends are added when given as nodes,
+     * otherwise the edge is not inserted.
+     */
+    private void insertEdge(Node from, Node to, int fromId, int toId, int weight) {
+        lockPair(fromId, toId);
+        try {
+            Stripe fromStripe = stripe(fromId);
+            Stripe toStripe = stripe(toId);
+            Adjacency source = fromStripe.nodes.get(fromId);
+            if (source == null && from != null) {
+                source = putNode(fromStripe, from);
+            }
+            Adjacency target = toStripe.nodes.get(toId);
+            if (target == null && to != null) {
+                target = putNode(toStripe, to);
+            }
+            if (source == null || target == null) {
+                return;
+            }
+            Edge edge = new Edge(source.node, target.node, weight);
+            source.out.add(edge);
+            target.in.add(edge);
+            edgeCount.increment();
+        } finally {
+            unlockPair(fromId, toId);
+        }
+    }
+
+    @Override
+    public boolean removeEdge(Node from, Node to) {
+        return from != null && to != null && deleteEdge(from.getId(), to.getId(), false, 0);
+    }
+
+    @Override
+    public boolean removeEdge(int fromId, int toId) {
+        return deleteEdge(fromId, toId, false, 0);
+    }
+
+    @Override
+    public boolean removeEdge(Node from, Node to, int weight) {
+        return from != null && to != null && deleteEdge(from.getId(), to.getId(), true, weight);
+    }
+
+    @Override
+    public boolean removeEdge(int fromId, int toId, int weight) {
+        return deleteEdge(fromId, toId, true, weight);
+    }
+
+    /**
+     * Removes the first edge between two nodes, of a given weight if required, under the locks
+     * of both ends.
+     */
+    private boolean deleteEdge(int fromId, int toId, boolean matchWeight, int weight) {
+        lockPair(fromId, toId);
+        try {
+            Adjacency source = stripe(fromId).nodes.get(fromId);
+            Adjacency target = stripe(toId).nodes.get(toId);
+            if (source == null || target == null) {
+                return false;
+            }
+            for (int i = 0; i < source.out.size(); i++) {
+                Edge edge = source.out.get(i);
+                if (edge.getTo().getId() == toId && (!matchWeight || edge.getWeight() == weight)) {
+                    source.out.remove(i);
+                    for (int j = target.in.size() - 1; j >= 0; j--) {
+                        if (target.in.get(j) == edge) {
+                            target.in.remove(j);
+                            break;
+                        }
+                    }
+                    edgeCount.decrement();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            unlockPair(fromId, toId);
+        }
+    }
+
+    /**
+     * Copies the out-edges, in-edges or both of a node under the read lock of its stripe.
+     */
+    private List<Edge> copyEdges(int nodeId, boolean out, boolean in) {
+        Stripe stripe = stripe(nodeId);
+        stripe.lock.readLock().lock();
+        try {
+            Adjacency adjacency = stripe.nodes.get(nodeId);
+            List<Edge> edges = new ArrayList<>();
+            if (adjacency != null) {
+                if (out) {
+                    edges.addAll(adjacency.out);
+                }
+                if (in) {
+                    edges.addAll(adjacency.in);
+                }
+            }
+            return edges;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Edge> getOutEdges(Node n) {
+        return n != null ? getOutEdges(n.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getOutEdges(int nodeId) {
+        return copyEdges(nodeId, true, false);
+    }
+
+    @Override
+    public List<Edge> getInEdges(Node n) {
+        return n != null ? getInEdges(n.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getInEdges(int nodeId) {
+        return copyEdges(nodeId, false, true);
+    }
+
+    @Override
+    public List<Edge> getIncidentEdges(Node n) {
+        return n != null ? getIncidentEdges(n.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getIncidentEdges(int nodeId) {
+        return copyEdges(nodeId, true, true);
+    }
+
+    @Override
+    public List<Edge> getEdges(Node u, Node v) {
+        return u != null && v != null ? getEdges(u.getId(), v.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getEdges(int uId, int vId) {
+        List<Edge> edges = new ArrayList<>();
+        Stripe stripe = stripe(uId);
+        stripe.lock.readLock().lock();
+        try {
+            Adjacency adjacency = stripe.nodes.get(uId);
+            if (adjacency != null) {
+                for (Edge edge : adjacency.out) {
+                    if (edge.getTo().getId() == vId) {
+                        edges.add(edge);
+                    }
+                }
+            }
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+        return edges;
+    }
+
+    /**
+     * Retrieves a list of all edges in the graph, stripe by stripe.
+     *
+     * @return A list of all edges in the graph.
+     */
+    @Override
+    public List<Edge> getAllEdges() {
+        List<Edge> edges = new ArrayList<>(nbEdges());
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                for (int slot = 0; slot < stripe.nodes.capacity(); slot++) {
+                    Adjacency adjacency = stripe.nodes.valueAt(slot);
+                    if (adjacency != null) {
+                        edges.addAll(adjacency.out);
+                    }
+                }
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Returns the out-degree, in-degree or both of a node under the read lock of its stripe.
+     */
+    private int degreeOf(int nodeId, boolean out, boolean in) {
+        Stripe stripe = stripe(nodeId);
+        stripe.lock.readLock().lock();
+        try {
+            Adjacency adjacency = stripe.nodes.get(nodeId);
+            if (adjacency == null) {
+                return 0;
+            }
+            return (out ? adjacency.out.size() : 0) + (in ? adjacency.in.size() : 0);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int inDegree(Node n) {
+        return n != null ? inDegree(n.getId()) : 0;
+    }
+
+    @Override
+    public int inDegree(int nodeId) {
+        return degreeOf(nodeId, false, true);
+    }
+
+    @Override
+    public int outDegree(Node n) {
+        return n != null ? outDegree(n.getId()) : 0;
+    }
+
+    @Override
+    public int outDegree(int nodeId) {
+        return degreeOf(nodeId, true, false);
+    }
+
+    @Override
+    public int degree(Node n) {
+        return n != null ? degree(n.getId()) : 0;
+    }
+
+    @Override
+    public int degree(int nodeId) {
+        return degreeOf(nodeId, true, true);
+    }
+
+    @Override
+    public void forEachSuccessor(int nodeId, IntConsumer action) {
+        int[] ends = edgeEnds(nodeId, true);
+        for (int i = 0; i < ends.length; i += 2) {
+            action.accept(ends[i]);
+        }
+    }
+
+    @Override
+    public void forEachPredecessor(int nodeId, IntConsumer action) {
+        int[] ends = edgeEnds(nodeId, false);
+        for (int i = 0; i < ends.length; i += 2) {
+            action.accept(ends[i]);
+        }
+    }
+
+    /**
+     * Copies the other ends and the weights of the out-edges or in-edges of a node, under the
+     * read lock of its stripe.
+     *
+     * @return The ends and weights, interleaved, or an empty array if no such node exists.
+     */
+    private int[] edgeEnds(int nodeId, boolean out) {
+        Stripe stripe = stripe(nodeId);
+        stripe.lock.readLock().lock();
+        try {
+            Adjacency adjacency = stripe.nodes.get(nodeId);
+            if (adjacency == null) {
+                return new int[0];
+            }
+            List<Edge> edges = out ? adjacency.out : adjacency.in;
+            int[] ends = new int[2 * edges.size()];
+            for (int i = 0; i < edges.size(); i++) {
+                Edge edge = edges.get(i);
+                ends[2 * i] = (out ? edge.getTo() : edge.getFrom()).getId();
+                ends[2 * i + 1] = edge.getWeight();
+            }
+            return ends;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachOutEdge(int nodeId, EdgeVisitor visitor) {
+        int[] ends = edgeEnds(nodeId, true);
+        for (int i = 0; i < ends.length; i += 2) {
+            visitor.visit(ends[i], ends[i + 1]);
+        }
+    }
+
+    @Override
+    public void forEachInEdge(int nodeId, EdgeVisitor visitor) {
+        int[] ends = edgeEnds(nodeId, false);
+        for (int i = 0; i < ends.length; i += 2) {
+            visitor.visit(ends[i], ends[i + 1]);
+        }
+    }
+}
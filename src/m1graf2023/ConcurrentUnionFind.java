@@ -0,0 +1,166 @@
+package m1graf2023;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free disjoint sets of the ints 0..size()-1, for labelling the components of huge edge
+ * lists from many threads. A root is only ever linked under a smaller root, with a
+ * compare-and-set that fails if it stopped being a root meanwhile, so the forest stays acyclic
+ * and every set ends up represented by its smallest element, whatever the thread interleaving.
+ * Finds compress paths by halving, also with compare-and-set.
+ */
+public class ConcurrentUnionFind {
+    private static final int GRAIN = 4096;
+
+    private final AtomicIntegerArray parents;
+
+    /**
+     * Constructs singletons.
+     *
+     * @param size The number of elements, each in its own set.
+     */
+    public ConcurrentUnionFind(int size) {
+        parents = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            parents.set(i, i);
+        }
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return The number of elements.
+     */
+    public int size() {
+        return parents.length();
+    }
+
+    /**
+     * Finds the current root of the set of an element.
+     *
+     * @param x The element.
+     * @return The root, which a concurrent union may link under another one right after.
+     */
+    public int find(int x) {
+        while (true) {
+            int parent = parents.get(x);
+            if (parent == x) {
+                return x;
+            }
+            int grandParent = parents.get(parent);
+            if (parent != grandParent) {
+                parents.compareAndSet(x, parent, grandParent);
+            }
+            x = grandParent;
+        }
+    }
+
+    /**
+     * Merges the sets of two elements.
+     *
+     * @param a An element.
+     * @param b An element.
+     * @return true if this call merged two different sets.
+     */
+    public boolean union(int a, int b) {
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b) {
+                return false;
+            }
+            if (a < b) {
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+            if (parents.compareAndSet(a, a, b)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Checks if two elements are in the same set.
+     *
+     * @param a An element.
+     * @param b An element.
+     * @return true if they are in the same set.
+     */
+    public boolean connected(int a, int b) {
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b) {
+                return true;
+            }
+            // a was a root when b was found: the sets were disjoint at that moment
+            if (parents.get(a) == a) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Merges the endpoints of every edge of a list, in parallel.
+     *
+     * @param pool    The pool running the unions.
+     * @param sources The sources of the edges.
+     * @param targets The targets of the edges, aligned with the sources.
+     */
+    public void unionAll(ForkJoinPool pool, int[] sources, int[] targets) {
+        pool.invoke(new RangeTask(0, sources.length, sources, targets, null));
+    }
+
+    /**
+     * Labels every element with the smallest element of its set, in parallel. No union may run
+     * at the same time.
+     *
+     * @param pool The pool running the finds.
+     * @return The labels, indexed by element.
+     */
+    public int[] labels(ForkJoinPool pool) {
+        int[] labels = new int[parents.length()];
+        pool.invoke(new RangeTask(0, labels.length, null, null, labels));
+        return labels;
+    }
+
+    /**
+     * Merges the edges or labels the elements of a range.
+     */
+    @SuppressWarnings("serial")
+    private class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int[] sources;
+        private final int[] targets;
+        private final int[] labels;
+
+        RangeTask(int from, int to, int[] sources, int[] targets, int[] labels) {
+            this.from = from;
+            this.to = to;
+            this.sources = sources;
+            this.targets = targets;
+            this.labels = labels;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, sources, targets, labels),
+                        new RangeTask(middle, to, sources, targets, labels));
+            } else if (labels != null) {
+                for (int i = from; i < to; i++) {
+                    labels[i] = find(i);
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    union(sources[i], targets[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package m1graf2023;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Weakly connected components of a graph, kept up to date while nodes and edges are added.
+ * Nodes are numbered densely in order of arrival and merged in a {@link UnionFind}, so an
+ * insertion or a {@link #connected(int, int)} query costs near-constant time. A union-find
+ * cannot split sets: a removal only marks the components stale, and they are rebuilt from the
+ * graph on the next query.
+ *
+ * <p>Obtained from {@link Graf#connectivity()}, which then reports its changes to it.
+ */
+public class Connectivity {
+    private final graf_interface graph;
+    private IntIntMap indexes;
+    private UnionFind sets;
+    private boolean stale;
+    // Index of the node whose successors rebuild() is merging, read by the visitor below
+    private int source;
+    private final IntConsumer unionWithSource = successorId -> sets.union(source, indexes.get(successorId));
+
+    /**
+     * Computes the components of a graph.
+     *
+     * @param graph The graph.
+     */
+    Connectivity(graf_interface graph) {
+        this.graph = graph;
+        rebuild();
+    }
+
+    private void rebuild() {
+        List<Node> nodes = graph.getAllNodes();
+        indexes = new IntIntMap(nodes.size());
+        sets = new UnionFind(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            indexes.put(nodes.get(i).getId(), i);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            source = i;
+            graph.forEachSuccessor(nodes.get(i).getId(), unionWithSource);
+        }
+        stale = false;
+    }
+
+    private void refresh() {
+        if (stale) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Records a node added to the graph.
+     *
+     * @param nodeId The ID of the new node.
+     */
+    void nodeAdded(int nodeId) {
+        if (!stale) {
+            indexes.put(nodeId, sets.add());
+        }
+    }
+
+    /**
+     * Records an edge added to the graph between two of its nodes.
+     *
+     * @param fromId The ID of the source node.
+     * @param toId   The ID of the target node.
+     */
+    void edgeAdded(int fromId, int toId) {
+        if (!stale) {
+            sets.union(indexes.get(fromId), indexes.get(toId));
+        }
+    }
+
+    /**
+     * Records the removal of a node or an edge of the graph.
+     */
+    void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Checks if two nodes are in the same weakly connected component.
+     *
+     * @param uId The ID of a node.
+     * @param vId The ID of a node.
+     * @return true if both nodes exist and a path joins them, ignoring the direction of the edges.
+     */
+    public boolean connected(int uId, int vId) {
+        refresh();
+        int u = indexes.get(uId);
+        int v = indexes.get(vId);
+        return u >= 0 && v >= 0 && sets.connected(u, v);
+    }
+
+    /**
+     * Returns the number of weakly connected components.
+     *
+     * @return The number of components, isolated nodes included.
+     */
+    public int count() {
+        refresh();
+        return sets.count();
+    }
+}
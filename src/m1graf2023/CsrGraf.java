@@ -0,0 +1,524 @@
+package m1graf2023;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Represents an immutable snapshot of a directed graph in compressed sparse row (CSR) form.
+ * Node ids are remapped to dense indices 0..n-1 in increasing id order, and the out-edges of
+ * the node of index i are stored in targets/weights between offsets[i] and offsets[i + 1],
+ * sorted by target then weight. The in-edge side is built on first use.
+ */
+public class CsrGraf implements graf_interface {
+    final Node[] nodes;
+    final int[] ids;
+    final int[] offsets;
+    final int[] targets;
+    final int[] weights;
+    private final boolean contiguousIds;
+
+    private volatile int[] inOffsets;
+    private int[] inSources;
+    private int[] inWeights;
+
+    /**
+     * Constructs the CSR form of an adjacency edge list in one pass over its entries.
+     *
+     * @param adjEdList The out-edge lists of every node of the graph.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    CsrGraf(Map<Node, List<Edge>> adjEdList) {
+        int n = adjEdList.size();
+        Map.Entry<Node, List<Edge>>[] entries = adjEdList.entrySet().toArray(new Map.Entry[n]);
+        Arrays.sort(entries, (a, b) -> Integer.compare(a.getKey().getId(), b.getKey().getId()));
+
+        nodes = new Node[n];
+        ids = new int[n];
+        offsets = new int[n + 1];
+        int maxDegree = 0;
+        for (int i = 0; i < n; i++) {
+            nodes[i] = entries[i].getKey();
+            ids[i] = nodes[i].getId();
+            int degree = entries[i].getValue().size();
+            offsets[i + 1] = offsets[i] + degree;
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        contiguousIds = n == 0 || (long) ids[n - 1] - ids[0] == n - 1;
+
+        int m = offsets[n];
+        targets = new int[m];
+        weights = new int[m];
+        long[] row = new long[maxDegree];
+        for (int i = 0; i < n; i++) {
+            List<Edge> edges = entries[i].getValue();
+            int degree = edges.size();
+            for (int k = 0; k < degree; k++) {
+                Edge edge = edges.get(k);
+                row[k] = pack(nodeIndex(edge.getTo().getId()), edge.getWeight());
+            }
+            Arrays.sort(row, 0, degree);
+            for (int k = 0, pos = offsets[i]; k < degree; k++, pos++) {
+                targets[pos] = (int) (row[k] >>> 32);
+                weights[pos] = (int) row[k] ^ Integer.MIN_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Constructs a CSR graph from arrays that already follow the layout described above.
+     *
+     * @param nodes   The nodes, sorted by increasing ID.
+     * @param offsets The row offsets, of length nodes.length + 1.
+     * @param targets The target index of every edge, sorted by target then weight within each row.
+     * @param weights The weight of every edge.
+     */
+    CsrGraf(Node[] nodes, int[] offsets, int[] targets, int[] weights) {
+        int n = nodes.length;
+        this.nodes = nodes;
+        this.ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = nodes[i].getId();
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        contiguousIds = n == 0 || (long) ids[n - 1] - ids[0] == n - 1;
+    }
+
+    /**
+     * Loads a graph saved with {@link Graf#toBinaryFile(String, String)} by mapping the file,
+     * without building any Edge. The file of an undirected graph stores each edge once; it is
+     * loaded as {@link UndirectedGraf#toCsr()} would build it, each edge in both of its rows.
+     *
+     * @param fileName The path of the file, extension included.
+     * @return The graph in CSR form.
+     * @throws IOException If the file cannot be read or is not a valid graph file.
+     */
+    public static CsrGraf fromBinaryFile(String fileName) throws IOException {
+        GrafBinaryFormat.Contents contents = GrafBinaryFormat.read(Paths.get(fileName));
+        return contents.directed ? contents.csr : contents.csr.symmetric();
+    }
+
+    /**
+     * Builds the CSR form of the graph described by a successor array, in parallel and
+     * without building any Edge. The graph is the one {@link Graf#Graf(int...)} would build.
+     *
+     * @param pool   The pool running the parallel passes.
+     * @param values The successor array.
+     * @return The graph in CSR form.
+     */
+    public static CsrGraf fromSuccessorArray(ForkJoinPool pool, int... values) {
+        return new SuccessorArrayLoader(values, pool).toCsr();
+    }
+
+    /**
+     * Packs a target index and a weight into a long ordered by target, then by weight.
+     */
+    private static long pack(int target, int weight) {
+        return ((long) target << 32) | ((weight ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the dense index of a node id.
+     *
+     * @param nodeId The ID of the node.
+     * @return The index of the node in 0..nbNodes()-1, or -1 if no such node exists.
+     */
+    public int nodeIndex(int nodeId) {
+        if (contiguousIds) {
+            long index = (long) nodeId - (ids.length == 0 ? 0 : ids[0]);
+            return index >= 0 && index < ids.length ? (int) index : -1;
+        }
+        int index = Arrays.binarySearch(ids, nodeId);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Returns the node id of a dense index.
+     *
+     * @param index The index of the node in 0..nbNodes()-1.
+     * @return The ID of the node.
+     */
+    public int nodeId(int index) {
+        return ids[index];
+    }
+
+    private int indexOf(Node n) {
+        return n == null ? -1 : nodeIndex(n.getId());
+    }
+
+    /**
+     * Returns the offsets of the in-edge side, building the reverse CSR arrays on first use.
+     */
+    int[] inOffsets() {
+        int[] result = inOffsets;
+        if (result == null) {
+            synchronized (this) {
+                result = inOffsets;
+                if (result == null) {
+                    result = buildReverse();
+                    inOffsets = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sources of the in-edges, grouped by target as described by {@link #inOffsets()}.
+     */
+    int[] inSources() {
+        inOffsets();
+        return inSources;
+    }
+
+    /**
+     * Returns the weights of the in-edges, aligned with {@link #inSources()}.
+     */
+    int[] inWeights() {
+        inOffsets();
+        return inWeights;
+    }
+
+    /**
+     * Builds the symmetric graph of this one: every edge appears in the rows of both of its
+     * endpoints, a self-loop twice in the row of its node.
+     *
+     * @return The symmetric graph in CSR form.
+     */
+    CsrGraf symmetric() {
+        int n = ids.length;
+        int[] starts = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            starts[u + 1] += offsets[u + 1] - offsets[u];
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                starts[targets[k] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] next = Arrays.copyOf(starts, n);
+        long[] packed = new long[2 * targets.length];
+        for (int u = 0; u < n; u++) {
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                packed[next[u]++] = pack(targets[k], weights[k]);
+                packed[next[targets[k]]++] = pack(u, weights[k]);
+            }
+        }
+        int[] symmetricTargets = new int[packed.length];
+        int[] symmetricWeights = new int[packed.length];
+        for (int i = 0; i < n; i++) {
+            Arrays.sort(packed, starts[i], starts[i + 1]);
+            for (int pos = starts[i]; pos < starts[i + 1]; pos++) {
+                symmetricTargets[pos] = (int) (packed[pos] >>> 32);
+                symmetricWeights[pos] = (int) packed[pos] ^ Integer.MIN_VALUE;
+            }
+        }
+        return new CsrGraf(nodes, starts, symmetricTargets, symmetricWeights);
+    }
+
+    private int[] buildReverse() {
+        int n = ids.length;
+        int[] starts = new int[n + 1];
+        for (int target : targets) {
+            starts[target + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] next = Arrays.copyOf(starts, n);
+        int[] sources = new int[targets.length];
+        int[] sourceWeights = new int[targets.length];
+        // Sources are visited in increasing order, so every in-row comes out sorted.
+        for (int u = 0; u < n; u++) {
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int pos = next[targets[k]]++;
+                sources[pos] = u;
+                sourceWeights[pos] = weights[k];
+            }
+        }
+        inSources = sources;
+        inWeights = sourceWeights;
+        return starts;
+    }
+
+    /**
+     * Returns the number of nodes in the graph.
+     *
+     * @return The number of nodes in the graph.
+     */
+    public int nbNodes() {
+        return ids.length;
+    }
+
+    /**
+     * Checks if a node with a specific ID exists in the graph.
+     *
+     * @param nodeId The ID of the node to check.
+     * @return true if a node with the specified ID exists, false otherwise.
+     */
+    public boolean existsNode(int nodeId) {
+        return nodeIndex(nodeId) >= 0;
+    }
+
+    /**
+     * Retrieves a node instance by its ID.
+     *
+     * @param id The ID of the node to retrieve.
+     * @return The node instance or null if no node with the given ID exists.
+     */
+    public Node getNode(int id) {
+        int index = nodeIndex(id);
+        return index >= 0 ? nodes[index] : null;
+    }
+
+    /**
+     * Retrieves a list of all nodes in the graph, sorted by ID.
+     *
+     * @return A list of all nodes in the graph.
+     */
+    public List<Node> getAllNodes() {
+        return new ArrayList<>(Arrays.asList(nodes));
+    }
+
+    @Override
+    public int nbEdges() {
+        return targets.length;
+    }
+
+    @Override
+    public boolean existsEdge(Node u, Node v) {
+        return existsEdgeAt(indexOf(u), indexOf(v));
+    }
+
+    @Override
+    public boolean existsEdge(int uId, int vId) {
+        return existsEdgeAt(nodeIndex(uId), nodeIndex(vId));
+    }
+
+    private boolean existsEdgeAt(int u, int v) {
+        return u >= 0 && v >= 0 && Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v) >= 0;
+    }
+
+    @Override
+    public void addEdge(Node from, Node to) {
+        throw new UnsupportedOperationException("CsrGraf is immutable");
+    }
+
+    @Override
+    public void addEdge(int fromId, int toId) {
+        throw new UnsupportedOperationException("CsrGraf is immutable");
+    }
+
+    @Override
+    public void addEdge(Node from, Node to, int weight) {
+        throw new UnsupportedOperationException("CsrGraf is immutable");
+    }
+
+    @Override
+    public void addEdge(int fromId, int toId, int weight) {
+        throw new UnsupportedOperationException("CsrGraf is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(Node from, Node to) {
+        throw new UnsupportedOperationException("CsrGraf is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(int fromId, int toId) {
+        throw new UnsupportedOperationException("CsrGraf is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(Node from, Node to, int weight) {
+        throw new UnsupportedOperationException("CsrGraf is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(int fromId, int toId, int weight) {
+        throw new UnsupportedOperationException("CsrGraf is immutable");
+    }
+
+    private List<Edge> outEdges(int u) {
+        if (u < 0) {
+            return new ArrayList<>();
+        }
+        List<Edge> edges = new ArrayList<>(offsets[u + 1] - offsets[u]);
+        for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+            edges.add(new Edge(nodes[u], nodes[targets[k]], weights[k]));
+        }
+        return edges;
+    }
+
+    private List<Edge> inEdges(int v) {
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        int[] starts = inOffsets();
+        List<Edge> edges = new ArrayList<>(starts[v + 1] - starts[v]);
+        for (int k = starts[v]; k < starts[v + 1]; k++) {
+            edges.add(new Edge(nodes[inSources[k]], nodes[v], inWeights[k]));
+        }
+        return edges;
+    }
+
+    @Override
+    public List<Edge> getOutEdges(Node n) {
+        return outEdges(indexOf(n));
+    }
+
+    @Override
+    public List<Edge> getOutEdges(int nodeId) {
+        return outEdges(nodeIndex(nodeId));
+    }
+
+    @Override
+    public List<Edge> getInEdges(Node n) {
+        return inEdges(indexOf(n));
+    }
+
+    @Override
+    public List<Edge> getInEdges(int nodeId) {
+        return inEdges(nodeIndex(nodeId));
+    }
+
+    @Override
+    public List<Edge> getIncidentEdges(Node n) {
+        List<Edge> incidentEdges = getOutEdges(n);
+        incidentEdges.addAll(getInEdges(n));
+        return incidentEdges;
+    }
+
+    @Override
+    public List<Edge> getIncidentEdges(int nodeId) {
+        List<Edge> incidentEdges = getOutEdges(nodeId);
+        incidentEdges.addAll(getInEdges(nodeId));
+        return incidentEdges;
+    }
+
+    @Override
+    public List<Edge> getEdges(Node u, Node v) {
+        return edgesAt(indexOf(u), indexOf(v));
+    }
+
+    @Override
+    public List<Edge> getEdges(int uId, int vId) {
+        return edgesAt(nodeIndex(uId), nodeIndex(vId));
+    }
+
+    private List<Edge> edgesAt(int u, int v) {
+        List<Edge> matchingEdges = new ArrayList<>();
+        if (u >= 0 && v >= 0) {
+            int k = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+            if (k >= 0) {
+                while (k > offsets[u] && targets[k - 1] == v) {
+                    k--;
+                }
+                for (; k < offsets[u + 1] && targets[k] == v; k++) {
+                    matchingEdges.add(new Edge(nodes[u], nodes[v], weights[k]));
+                }
+            }
+        }
+        return matchingEdges;
+    }
+
+    @Override
+    public List<Edge> getAllEdges() {
+        List<Edge> allEdges = new ArrayList<>(targets.length);
+        for (int u = 0; u < ids.length; u++) {
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                allEdges.add(new Edge(nodes[u], nodes[targets[k]], weights[k]));
+            }
+        }
+        return allEdges;
+    }
+
+    @Override
+    public int inDegree(Node n) {
+        return inDegreeAt(indexOf(n));
+    }
+
+    @Override
+    public int inDegree(int nodeId) {
+        return inDegreeAt(nodeIndex(nodeId));
+    }
+
+    private int inDegreeAt(int v) {
+        if (v < 0) {
+            return 0;
+        }
+        int[] starts = inOffsets();
+        return starts[v + 1] - starts[v];
+    }
+
+    @Override
+    public int outDegree(Node n) {
+        return outDegreeAt(indexOf(n));
+    }
+
+    @Override
+    public int outDegree(int nodeId) {
+        return outDegreeAt(nodeIndex(nodeId));
+    }
+
+    private int outDegreeAt(int u) {
+        return u >= 0 ? offsets[u + 1] - offsets[u] : 0;
+    }
+
+    @Override
+    public int degree(Node n) {
+        return inDegree(n) + outDegree(n);
+    }
+
+    @Override
+    public int degree(int nodeId) {
+        return inDegree(nodeId) + outDegree(nodeId);
+    }
+
+    @Override
+    public void forEachSuccessor(int nodeId, IntConsumer action) {
+        int u = nodeIndex(nodeId);
+        if (u >= 0) {
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                action.accept(ids[targets[k]]);
+            }
+        }
+    }
+
+    @Override
+    public void forEachPredecessor(int nodeId, IntConsumer action) {
+        int v = nodeIndex(nodeId);
+        if (v >= 0) {
+            int[] starts = inOffsets();
+            for (int k = starts[v]; k < starts[v + 1]; k++) {
+                action.accept(ids[inSources[k]]);
+            }
+        }
+    }
+
+    @Override
+    public void forEachOutEdge(int nodeId, EdgeVisitor visitor) {
+        int u = nodeIndex(nodeId);
+        if (u >= 0) {
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                visitor.visit(ids[targets[k]], weights[k]);
+            }
+        }
+    }
+
+    @Override
+    public void forEachInEdge(int nodeId, EdgeVisitor visitor) {
+        int v = nodeIndex(nodeId);
+        if (v >= 0) {
+            int[] starts = inOffsets();
+            for (int k = starts[v]; k < starts[v + 1]; k++) {
+                visitor.visit(ids[inSources[k]], inWeights[k]);
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package m1graf2023;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel single-source shortest paths by delta-stepping, over the weighted out-edges of any
+ * graph read through {@link graf_interface#forEachOutEdge(int, EdgeVisitor)}.
+ *
+ * <p>Nodes are kept in buckets of tentative distance of width delta. The smallest non-empty bucket
+ * is emptied by relaxing the light edges (weight at most delta) of its nodes in parallel, as often
+ * as relaxations put nodes back into it, then the heavy edges of every node it settled are
+ * relaxed once. Distances are lowered with compare-and-set, and the nodes whose distance dropped
+ * during a parallel phase are collected once, then sorted into their buckets. The buckets form a
+ * cyclic array: all the queued distances lie within the largest weight of the current bucket.
+ *
+ * <p>Nodes are numbered by dense index in increasing ID order, see {@link #nodeIndex(int)}.
+ * The graph must not be modified while distances are computed.
+ */
+public class DeltaStepping {
+    private static final int GRAIN = 256;
+    private static final int BLOCK_SIZE = 256;
+    private static final int MAX_BUCKETS = 1 << 24;
+    private static final int DEFAULT_MAX_BUCKETS = 1 << 16;
+
+    private final graf_interface graph;
+    private final ForkJoinPool pool;
+    private final DenseIds ids;
+    private final long delta;
+    private final int nbBuckets;
+
+    /**
+     * Constructs a delta-stepping solver with a delta derived from the weights: twice the mean
+     * weight divided by the mean out-degree, so a light relaxation phase touches about as many
+     * edges as there are nodes in the bucket, and no smaller than needed to keep at most
+     * 65536 buckets.
+     *
+     * @param graph The graph, whose edge weights are the lengths.
+     * @param pool  The pool running the relaxations.
+     * @throws IllegalArgumentException If an edge has a negative weight.
+     */
+    public DeltaStepping(graf_interface graph, ForkJoinPool pool) {
+        this(graph, pool, 0);
+    }
+
+    /**
+     * Constructs a delta-stepping solver.
+     *
+     * @param graph The graph, whose edge weights are the lengths.
+     * @param pool  The pool running the relaxations.
+     * @param delta The width of the buckets, 0 to derive it from the weights.
+     * @throws IllegalArgumentException If an edge has a negative weight, or delta is negative or
+     *                                  too small for the largest weight.
+     */
+    public DeltaStepping(graf_interface graph, ForkJoinPool pool, long delta) {
+        if (delta < 0) {
+            throw new IllegalArgumentException("negative delta " + delta);
+        }
+        this.graph = graph;
+        this.pool = pool;
+        this.ids = new DenseIds(graph);
+        long[] stats = new long[3];
+        for (int i = 0; i < ids.size(); i++) {
+            graph.forEachOutEdge(ids.idOf(i), (target, weight) -> {
+                if (weight < 0) {
+                    throw new IllegalArgumentException("negative edge weight " + weight);
+                }
+                stats[0]++;
+                stats[1] += weight;
+                stats[2] = Math.max(stats[2], weight);
+            });
+        }
+        long maxWeight = stats[2];
+        if (delta == 0) {
+            double meanDegree = Math.max(1.0, (double) stats[0] / Math.max(1, ids.size()));
+            double meanWeight = (double) stats[1] / Math.max(1, stats[0]);
+            delta = Math.max(1, Math.max((long) (2 * meanWeight / meanDegree), maxWeight / (DEFAULT_MAX_BUCKETS - 2)));
+        } else if (maxWeight / delta >= MAX_BUCKETS - 2) {
+            throw new IllegalArgumentException("delta " + delta + " is too small for the largest weight " + maxWeight);
+        }
+        this.delta = delta;
+        this.nbBuckets = (int) (maxWeight / delta) + 2;
+    }
+
+    /**
+     * Returns the width of the buckets.
+     *
+     * @return The delta in use.
+     */
+    public long getDelta() {
+        return delta;
+    }
+
+    /**
+     * Returns the dense index of a node id.
+     *
+     * @param nodeId The ID of the node.
+     * @return The index of the node in 0..n-1, or -1 if no such node exists.
+     */
+    public int nodeIndex(int nodeId) {
+        return ids.indexOf(nodeId);
+    }
+
+    /**
+     * Returns the node id of a dense index.
+     *
+     * @param index The index of the node in 0..n-1.
+     * @return The ID of the node.
+     */
+    public int nodeId(int index) {
+        return ids.idOf(index);
+    }
+
+    /**
+     * Computes the distances from a node to all the nodes.
+     *
+     * @param sourceId The ID of the source node.
+     * @return The distances, indexed by dense node index, -1 for the nodes that are not reached.
+     */
+    public long[] distances(int sourceId) {
+        int n = ids.size();
+        long[] result = new long[n];
+        Arrays.fill(result, -1);
+        int source = ids.indexOf(sourceId);
+        if (source < 0) {
+            return result;
+        }
+        Run run = new Run(n);
+        run.distances.set(source, 0);
+        run.enqueue(source, 0);
+        run.solve();
+        for (int v = 0; v < n; v++) {
+            long d = run.distances.get(v);
+            result[v] = d == Long.MAX_VALUE ? -1 : d;
+        }
+        return result;
+    }
+
+    /**
+     * The state of one computation.
+     */
+    private class Run {
+        final AtomicLongArray distances;
+        final AtomicLongArray changed;
+        final int[] touched;
+        final AtomicInteger nbTouched = new AtomicInteger();
+        final int[][] buckets = new int[nbBuckets][];
+        final int[] bucketSizes = new int[nbBuckets];
+        final int[] frontier;
+        final int[] settled;
+        final long[] settledIn;
+        final long[] queuedIn;
+        long queued;
+
+        Run(int n) {
+            distances = new AtomicLongArray(n);
+            for (int v = 0; v < n; v++) {
+                distances.set(v, Long.MAX_VALUE);
+            }
+            changed = new AtomicLongArray((n + 63) >>> 6);
+            touched = new int[n];
+            frontier = new int[n];
+            settled = new int[n];
+            settledIn = new long[n];
+            queuedIn = new long[n];
+            Arrays.fill(settledIn, -1);
+            Arrays.fill(queuedIn, -1);
+        }
+
+        void enqueue(int v, long bucket) {
+            int slot = (int) (bucket % nbBuckets);
+            int[] entries = buckets[slot];
+            if (entries == null) {
+                entries = buckets[slot] = new int[16];
+            } else if (bucketSizes[slot] == entries.length) {
+                entries = buckets[slot] = Arrays.copyOf(entries, entries.length * 2);
+            }
+            entries[bucketSizes[slot]++] = v;
+            queued++;
+        }
+
+        void solve() {
+            for (long bucket = 0; queued > 0; bucket++) {
+                int slot = (int) (bucket % nbBuckets);
+                int nbSettled = 0;
+                while (bucketSizes[slot] > 0) {
+                    // Keep the entries still in this bucket, once each: the others are stale
+                    int[] entries = buckets[slot];
+                    int size = bucketSizes[slot];
+                    bucketSizes[slot] = 0;
+                    queued -= size;
+                    int frontierSize = 0;
+                    for (int i = 0; i < size; i++) {
+                        int v = entries[i];
+                        if (distances.get(v) / delta == bucket && queuedIn[v] != bucket) {
+                            queuedIn[v] = bucket;
+                            frontier[frontierSize++] = v;
+                            if (settledIn[v] != bucket) {
+                                settledIn[v] = bucket;
+                                settled[nbSettled++] = v;
+                            }
+                        }
+                    }
+                    relax(frontier, frontierSize, true);
+                    // A node lowered again within this bucket must be relaxed again
+                    for (int i = 0; i < frontierSize; i++) {
+                        queuedIn[frontier[i]] = -1;
+                    }
+                    distribute();
+                }
+                relax(settled, nbSettled, false);
+                distribute();
+            }
+        }
+
+        void relax(int[] nodes, int size, boolean light) {
+            if (size > 0) {
+                nbTouched.set(0);
+                pool.invoke(new RelaxTask(this, nodes, 0, size, light));
+            }
+        }
+
+        void distribute() {
+            int count = nbTouched.getAndSet(0);
+            for (int i = 0; i < count; i++) {
+                int v = touched[i];
+                changed.set(v >>> 6, 0);
+                enqueue(v, distances.get(v) / delta);
+            }
+        }
+    }
+
+    /**
+     * Relaxes the light or heavy out-edges of a range of nodes.
+     */
+    @SuppressWarnings("serial")
+    private class RelaxTask extends RecursiveAction implements EdgeVisitor {
+        private final Run run;
+        private final int[] nodes;
+        private final int from;
+        private final int to;
+        private final boolean light;
+        private long sourceDistance;
+        private int[] block;
+        private int blockSize;
+
+        RelaxTask(Run run, int[] nodes, int from, int to, boolean light) {
+            this.run = run;
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.light = light;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RelaxTask(run, nodes, from, middle, light), new RelaxTask(run, nodes, middle, to, light));
+                return;
+            }
+            block = new int[BLOCK_SIZE];
+            for (int i = from; i < to; i++) {
+                sourceDistance = run.distances.get(nodes[i]);
+                graph.forEachOutEdge(ids.idOf(nodes[i]), this);
+            }
+            flush();
+        }
+
+        @Override
+        public void visit(int node, int weight) {
+            if ((weight <= delta) != light) {
+                return;
+            }
+            int v = ids.indexOf(node);
+            long candidate = sourceDistance + weight;
+            long current;
+            do {
+                current = run.distances.get(v);
+                if (candidate >= current) {
+                    return;
+                }
+            } while (!run.distances.compareAndSet(v, current, candidate));
+            if (ParallelTraversal.claim(run.changed, v)) {
+                if (blockSize == BLOCK_SIZE) {
+                    flush();
+                }
+                block[blockSize++] = v;
+            }
+        }
+
+        private void flush() {
+            int start = run.nbTouched.getAndAdd(blockSize);
+            System.arraycopy(block, 0, run.touched, start, blockSize);
+            blockSize = 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package m1graf2023;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Numbering of the nodes of a graph by dense index 0..n-1 in increasing ID order, for the
+ * algorithms that keep per-node state in arrays. Contiguous IDs are mapped by subtraction,
+ * others by binary search.
+ */
+class DenseIds {
+    private final int[] ids;
+    private final boolean contiguous;
+
+    /**
+     * Numbers the nodes of a graph.
+     *
+     * @param graph The graph.
+     */
+    DenseIds(graf_interface graph) {
+        List<Node> nodes = graph.getAllNodes();
+        ids = new int[nodes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nodes.get(i).getId();
+        }
+        Arrays.sort(ids);
+        contiguous = ids.length == 0 || (long) ids[ids.length - 1] - ids[0] == ids.length - 1;
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return The number of nodes.
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the dense index of a node id.
+     *
+     * @param nodeId The ID of the node.
+     * @return The index of the node in 0..size()-1, or -1 if no such node exists.
+     */
+    int indexOf(int nodeId) {
+        if (contiguous) {
+            long index = (long) nodeId - (ids.length == 0 ? 0 : ids[0]);
+            return index >= 0 && index < ids.length ? (int) index : -1;
+        }
+        int index = Arrays.binarySearch(ids, nodeId);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Returns the node id of a dense index.
+     *
+     * @param index The index of the node in 0..size()-1.
+     * @return The ID of the node.
+     */
+    int idOf(int index) {
+        return ids[index];
+    }
+}
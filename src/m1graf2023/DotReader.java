@@ -0,0 +1,483 @@
+package m1graf2023;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Streaming parser for graphs written in the DOT language.
+ * The input is read through a fixed-size buffer and tokenized byte by byte: node ids and
+ * weights are parsed as ints without creating Strings, so memory use is bounded by the
+ * buffer and the graph being built, whatever the size of the file.
+ *
+ * <p>Supported: {@code digraph}/{@code graph} (with {@code strict}), node statements,
+ * edge chains such as {@code 1 -> 2 -> 3}, several statements per line, the
+ * {@code weight} and {@code label} edge attributes (weight wins), graph/node/edge
+ * attribute statements and {@code //}, {@code /* *}{@code /} and {@code #} comments.
+ * Node ids must be integers.
+ */
+class DotReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int EOF = 0;
+    private static final int NUMBER = 1;
+    private static final int ID = 2;
+    private static final int STRING = 3;
+    private static final int LBRACE = 4;
+    private static final int RBRACE = 5;
+    private static final int LBRACKET = 6;
+    private static final int RBRACKET = 7;
+    private static final int EQUALS = 8;
+    private static final int SEPARATOR = 9;
+    private static final int ARROW = 10;
+    private static final int LINE = 11;
+    private static final int COLON = 12;
+
+    private static final byte[] STRICT = ascii("strict");
+    private static final byte[] DIGRAPH = ascii("digraph");
+    private static final byte[] GRAPH = ascii("graph");
+    private static final byte[] NODE = ascii("node");
+    private static final byte[] EDGE = ascii("edge");
+    private static final byte[] SUBGRAPH = ascii("subgraph");
+    private static final byte[] WEIGHT = ascii("weight");
+    private static final byte[] LABEL = ascii("label");
+
+    private final ReadableByteChannel channel;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private int pos;
+    private int limit;
+    private int line = 1;
+
+    // Current token: its kind, its int value when it is an integer, and its text for ids and strings
+    private int token;
+    private int intValue;
+    private boolean isInt;
+    private byte[] text = new byte[64];
+    private int textLength;
+
+    private int[] chain = new int[16];
+
+    /**
+     * Constructs a reader over a channel positioned at the start of a DOT document.
+     *
+     * @param channel The channel to read from.
+     */
+    DotReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] b = new byte[s.length()];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) s.charAt(i);
+        }
+        return b;
+    }
+
+    /**
+     * Parses the whole document.
+     *
+     * @return A Graf for a {@code digraph}, an UndirectedGraf for a {@code graph}.
+     * @throws IOException If the channel cannot be read or the document is malformed.
+     */
+    Graf read() throws IOException {
+        next();
+        if (isKeyword(STRICT)) {
+            next();
+        }
+        boolean directed;
+        if (isKeyword(DIGRAPH)) {
+            directed = true;
+        } else if (isKeyword(GRAPH)) {
+            directed = false;
+        } else {
+            throw error("expected 'digraph' or 'graph'");
+        }
+        Graf graf = directed ? new Graf() : new UndirectedGraf();
+        next();
+        if (token == ID || token == NUMBER || token == STRING) {
+            next();
+        }
+        expect(LBRACE, "'{'");
+        next();
+        while (token != RBRACE) {
+            if (token == EOF) {
+                throw error("missing '}'");
+            }
+            statement(graf, directed);
+        }
+        return graf;
+    }
+
+    private void statement(Graf graf, boolean directed) throws IOException {
+        if (token == SEPARATOR) {
+            next();
+            return;
+        }
+        if (token == ID && (isKeyword(GRAPH) || isKeyword(NODE) || isKeyword(EDGE))) {
+            next();
+            attributes();
+            return;
+        }
+        if (token == ID && isKeyword(SUBGRAPH) || token == LBRACE) {
+            throw error("subgraphs are not supported");
+        }
+        if (token != NUMBER && token != STRING && token != ID) {
+            throw error("unexpected token");
+        }
+        if (!isInt) {
+            // Either a graph attribute such as rankdir=LR, or a node that is not an integer
+            next();
+            if (token != EQUALS) {
+                throw error("node ids must be integers");
+            }
+            next();
+            next();
+            return;
+        }
+        int length = 0;
+        chain[length++] = intValue;
+        next();
+        skipPort();
+        while (token == ARROW || token == LINE) {
+            if ((token == ARROW) != directed) {
+                throw error(directed ? "'--' in a digraph" : "'->' in an undirected graph");
+            }
+            next();
+            if (!isInt) {
+                throw error("node ids must be integers");
+            }
+            if (length == chain.length) {
+                chain = Arrays.copyOf(chain, length * 2);
+            }
+            chain[length++] = intValue;
+            next();
+            skipPort();
+        }
+        if (token == EQUALS && length == 1) {
+            // A graph attribute with a numeric name is meaningless, skip its value
+            next();
+            next();
+            return;
+        }
+        int weight = attributes();
+        if (length == 1) {
+            addNode(graf, chain[0]);
+        }
+        for (int i = 1; i < length; i++) {
+            addNode(graf, chain[i - 1]);
+            addNode(graf, chain[i]);
+            graf.addEdge(chain[i - 1], chain[i], weight);
+        }
+    }
+
+    private static void addNode(Graf graf, int id) {
+        if (!graf.existsNode(id)) {
+            graf.addNode(id);
+        }
+    }
+
+    private void skipPort() throws IOException {
+        while (token == COLON) {
+            next();
+            next();
+        }
+    }
+
+    /**
+     * Parses zero or more attribute lists.
+     *
+     * @return The value of the weight attribute, else of a numeric label, else 0.
+     */
+    private int attributes() throws IOException {
+        boolean hasWeight = false;
+        int weight = 0;
+        int label = 0;
+        while (token == LBRACKET) {
+            next();
+            while (token != RBRACKET) {
+                if (token == SEPARATOR) {
+                    next();
+                    continue;
+                }
+                if (token != ID && token != STRING && token != NUMBER) {
+                    throw error("attribute name expected");
+                }
+                boolean isWeight = token == ID && isKeyword(WEIGHT);
+                boolean isLabel = token == ID && isKeyword(LABEL);
+                next();
+                if (token != EQUALS) {
+                    continue;
+                }
+                next();
+                if (token != ID && token != STRING && token != NUMBER) {
+                    throw error("attribute value expected");
+                }
+                if (isInt && isWeight) {
+                    hasWeight = true;
+                    weight = intValue;
+                } else if (isInt && isLabel) {
+                    label = intValue;
+                }
+                next();
+            }
+            next();
+        }
+        return hasWeight ? weight : label;
+    }
+
+    private boolean isKeyword(byte[] keyword) {
+        if (token != ID || textLength != keyword.length) {
+            return false;
+        }
+        for (int i = 0; i < textLength; i++) {
+            if ((text[i] | 0x20) != keyword[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void expect(int kind, String what) throws IOException {
+        if (token != kind) {
+            throw error(what + " expected");
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException("DOT syntax error at line " + line + ": " + message);
+    }
+
+    // ---------------------------------------------------------------- tokenizer
+
+    private int peek() throws IOException {
+        if (pos == limit) {
+            buffer.clear();
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            if (n < 0) {
+                return -1;
+            }
+            pos = 0;
+            limit = n;
+        }
+        // Unsigned, so that 0xFF in a UTF-8 name or a Latin-1 file is not taken for -1
+        return bytes[pos] & 0xFF;
+    }
+
+    private void skipBlanksAndComments() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == '\n') {
+                line++;
+                pos++;
+            } else if (c == ' ' || c == '\t' || c == '\r') {
+                pos++;
+            } else if (c == '#') {
+                skipLine();
+            } else if (c == '/') {
+                pos++;
+                int d = peek();
+                if (d == '/') {
+                    skipLine();
+                } else if (d == '*') {
+                    pos++;
+                    skipBlockComment();
+                } else {
+                    throw error("unexpected '/'");
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && c != '\n') {
+            pos++;
+        }
+    }
+
+    private void skipBlockComment() throws IOException {
+        int previous = 0;
+        int c;
+        while ((c = peek()) != -1) {
+            pos++;
+            if (c == '\n') {
+                line++;
+            } else if (previous == '*' && c == '/') {
+                return;
+            }
+            previous = c;
+        }
+        throw error("unterminated comment");
+    }
+
+    private void next() throws IOException {
+        skipBlanksAndComments();
+        isInt = false;
+        int c = peek();
+        if (c == -1) {
+            token = EOF;
+            return;
+        }
+        switch (c) {
+            case '{': pos++; token = LBRACE; return;
+            case '}': pos++; token = RBRACE; return;
+            case '[': pos++; token = LBRACKET; return;
+            case ']': pos++; token = RBRACKET; return;
+            case '=': pos++; token = EQUALS; return;
+            case ':': pos++; token = COLON; return;
+            case ';':
+            case ',': pos++; token = SEPARATOR; return;
+            case '"': pos++; quoted(); return;
+            case '<': pos++; html(); return;
+            case '-':
+                pos++;
+                int d = peek();
+                if (d == '>') {
+                    pos++;
+                    token = ARROW;
+                    return;
+                }
+                if (d == '-') {
+                    pos++;
+                    token = LINE;
+                    return;
+                }
+                number(true);
+                return;
+            default:
+                if (c >= '0' && c <= '9' || c == '.') {
+                    number(false);
+                } else if (isIdChar(c)) {
+                    identifier();
+                } else {
+                    throw error("unexpected character '" + (char) c + "'");
+                }
+        }
+    }
+
+    private static boolean isIdChar(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c >= 0x80;
+    }
+
+    private void number(boolean negative) throws IOException {
+        token = NUMBER;
+        long value = 0;
+        int digits = 0;
+        boolean fraction = false;
+        int c;
+        while ((c = peek()) >= '0' && c <= '9' || c == '.') {
+            pos++;
+            if (c == '.') {
+                fraction = true;
+            } else if (!fraction) {
+                value = value * 10 + (c - '0');
+                if (value > 1L << 32) {
+                    value = 1L << 32;
+                }
+                digits++;
+            }
+        }
+        if (negative) {
+            value = -value;
+        }
+        isInt = !fraction && digits > 0 && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+        intValue = (int) value;
+    }
+
+    private void identifier() throws IOException {
+        token = ID;
+        textLength = 0;
+        int c;
+        while ((c = peek()) != -1 && isIdChar(c)) {
+            pos++;
+            append(c);
+        }
+    }
+
+    private void quoted() throws IOException {
+        token = STRING;
+        textLength = 0;
+        int c;
+        while ((c = peek()) != '"') {
+            if (c == -1) {
+                throw error("unterminated string");
+            }
+            pos++;
+            if (c == '\\') {
+                c = peek();
+                if (c == -1) {
+                    throw error("unterminated string");
+                }
+                pos++;
+            }
+            if (c == '\n') {
+                line++;
+            }
+            append(c);
+        }
+        pos++;
+        parseTextAsInt();
+    }
+
+    private void html() throws IOException {
+        token = STRING;
+        textLength = 0;
+        int depth = 1;
+        while (depth > 0) {
+            int c = peek();
+            if (c == -1) {
+                throw error("unterminated HTML string");
+            }
+            pos++;
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (c == '\n') {
+                line++;
+            }
+        }
+    }
+
+    private void append(int c) {
+        if (textLength == text.length) {
+            text = Arrays.copyOf(text, textLength * 2);
+        }
+        text[textLength++] = (byte) c;
+    }
+
+    private void parseTextAsInt() {
+        int i = 0;
+        boolean negative = textLength > 0 && text[0] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == textLength) {
+            return;
+        }
+        long value = 0;
+        for (; i < textLength; i++) {
+            int c = text[i];
+            if (c < '0' || c > '9') {
+                return;
+            }
+            value = value * 10 + (c - '0');
+            if (value > 1L << 32) {
+                return;
+            }
+        }
+        value = negative ? -value : value;
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            isInt = true;
+            intValue = (int) value;
+        }
+    }
+}
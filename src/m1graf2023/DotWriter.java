@@ -0,0 +1,173 @@
+package m1graf2023;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+
+/**
+ * Buffered ASCII output used to export graphs in DOT syntax.
+ * Text and ints are encoded straight into a byte buffer which is flushed to the underlying
+ * stream or Appendable when full, so no String is built for the document or its lines.
+ */
+class DotWriter {
+    private static final int STREAM_BUFFER_SIZE = 1 << 20;
+    private static final int APPENDABLE_BUFFER_SIZE = 1 << 13;
+    private static final byte[] ARROW = " -> ".getBytes();
+    private static final byte[] LINE = " -- ".getBytes();
+    private static final byte[] LABEL = " [label=".getBytes();
+    private static final byte[] MIN_VALUE = String.valueOf(Integer.MIN_VALUE).getBytes();
+
+    private final OutputStream out;
+    private final Appendable appendable;
+    private final byte[] buffer;
+    private char[] chars;
+    private int count;
+
+    /**
+     * Constructs a writer to a byte stream.
+     *
+     * @param out The stream to write to.
+     */
+    DotWriter(OutputStream out) {
+        this.out = out;
+        this.appendable = null;
+        this.buffer = new byte[STREAM_BUFFER_SIZE];
+    }
+
+    /**
+     * Constructs a writer to a character sink.
+     *
+     * @param appendable The sink to append to.
+     */
+    DotWriter(Appendable appendable) {
+        this.out = null;
+        this.appendable = appendable;
+        this.buffer = new byte[APPENDABLE_BUFFER_SIZE];
+    }
+
+    /**
+     * Writes an ASCII string.
+     *
+     * @param s The string to write.
+     * @throws IOException If the underlying output fails.
+     */
+    void write(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    /**
+     * Writes an int in decimal.
+     *
+     * @param value The value to write.
+     * @throws IOException If the underlying output fails.
+     */
+    void write(int value) throws IOException {
+        if (count + 11 > buffer.length) {
+            flushBuffer();
+        }
+        count = putInt(buffer, count, value);
+    }
+
+    private static int putInt(byte[] buf, int pos, int value) {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                return putBytes(buf, pos, MIN_VALUE);
+            }
+            buf[pos++] = '-';
+            value = -value;
+        }
+        int end = pos + 1;
+        for (int t = value; t >= 10; t /= 10) {
+            end++;
+        }
+        int i = end;
+        do {
+            int q = value / 10;
+            buf[--i] = (byte) ('0' + value - q * 10);
+            value = q;
+        } while (value != 0);
+        return end;
+    }
+
+    private static int putBytes(byte[] buf, int pos, byte[] bytes) {
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    /**
+     * Writes one edge line: "  from -> to;" or "  from -> to [label=weight];",
+     * with "--" instead of "->" for undirected edges.
+     *
+     * @param from      The source node ID.
+     * @param directed  true for a directed edge.
+     * @param to        The target node ID.
+     * @param weight    The weight of the edge.
+     * @param withLabel true to write the weight as a label.
+     * @throws IOException If the underlying output fails.
+     */
+    void writeEdge(int from, boolean directed, int to, int weight, boolean withLabel) throws IOException {
+        if (count + 64 > buffer.length) {
+            flushBuffer();
+        }
+        // Work on locals: this is the per-edge hot path
+        byte[] buf = buffer;
+        int pos = count;
+        buf[pos++] = ' ';
+        buf[pos++] = ' ';
+        pos = putInt(buf, pos, from);
+        pos = putBytes(buf, pos, directed ? ARROW : LINE);
+        pos = putInt(buf, pos, to);
+        if (withLabel) {
+            pos = putBytes(buf, pos, LABEL);
+            pos = putInt(buf, pos, weight);
+            buf[pos++] = ']';
+        }
+        buf[pos++] = ';';
+        buf[pos++] = '\n';
+        count = pos;
+    }
+
+    /**
+     * Writes one isolated node line: "  id;".
+     *
+     * @param id The node ID.
+     * @throws IOException If the underlying output fails.
+     */
+    void writeNode(int id) throws IOException {
+        write("  ");
+        write(id);
+        write(";\n");
+    }
+
+    private void flushBuffer() throws IOException {
+        if (out != null) {
+            out.write(buffer, 0, count);
+        } else {
+            if (chars == null) {
+                chars = new char[buffer.length];
+            }
+            for (int i = 0; i < count; i++) {
+                chars[i] = (char) buffer[i];
+            }
+            appendable.append(CharBuffer.wrap(chars, 0, count));
+        }
+        count = 0;
+    }
+
+    /**
+     * Writes out the buffered bytes and flushes the underlying stream.
+     *
+     * @throws IOException If the underlying output fails.
+     */
+    void flush() throws IOException {
+        flushBuffer();
+        if (out != null) {
+            out.flush();
+        }
+    }
+}
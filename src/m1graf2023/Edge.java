@@ -1,7 +1,5 @@
 package m1graf2023;
 
-import java.util.Objects;
-
 /**
  * Represents an edge in a graph.
  */
@@ -101,9 +99,15 @@ public class Edge implements Comparable<Edge>, edge_interface{
         return from.toString() + "->" + to.toString() ;
     }
 
+    /**
+     * Returns the hash code of the edge, computed from its endpoints and weight as equals() is,
+     * without allocating.
+     *
+     * @return The hash code of the edge.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(toString());
+        return 31 * (31 * from.hashCode() + to.hashCode()) + weight;
     }
 
     /**
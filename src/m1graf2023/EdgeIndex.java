@@ -0,0 +1,140 @@
+package m1graf2023;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of the out-edges of one node by target ID, used by Graf for nodes of high out-degree.
+ * Each target maps to its bucket of parallel edges, kept in out-list order: a single Edge when
+ * the target is reached once, an ArrayList of edges otherwise.
+ */
+class EdgeIndex {
+    private final IntMap<Object> buckets;
+    private int size;
+
+    /**
+     * Constructs the index of an out-edge list.
+     *
+     * @param outEdges The out-edges of the node, in order.
+     */
+    EdgeIndex(List<Edge> outEdges) {
+        buckets = new IntMap<>(outEdges.size());
+        for (int i = 0; i < outEdges.size(); i++) {
+            add(outEdges.get(i));
+        }
+    }
+
+    /**
+     * Returns the number of indexed edges.
+     *
+     * @return The number of edges.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Indexes an edge appended to the out-edge list.
+     *
+     * @param edge The edge.
+     */
+    @SuppressWarnings("unchecked")
+    void add(Edge edge) {
+        int target = edge.getTo().getId();
+        Object bucket = buckets.get(target);
+        if (bucket == null) {
+            buckets.put(target, edge);
+        } else if (bucket instanceof Edge) {
+            List<Edge> edges = new ArrayList<>(2);
+            edges.add((Edge) bucket);
+            edges.add(edge);
+            buckets.put(target, edges);
+        } else {
+            ((List<Edge>) bucket).add(edge);
+        }
+        size++;
+    }
+
+    /**
+     * Returns the first edge to a target, in out-list order.
+     *
+     * @param target The ID of the target node.
+     * @return The edge, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    Edge first(int target) {
+        Object bucket = buckets.get(target);
+        return bucket == null || bucket instanceof Edge ? (Edge) bucket : ((List<Edge>) bucket).get(0);
+    }
+
+    /**
+     * Returns the first edge to a target with a given weight, in out-list order.
+     *
+     * @param target The ID of the target node.
+     * @param weight The weight of the edge.
+     * @return The edge, or null if there is none.
+     */
+    Edge first(int target, int weight) {
+        for (Edge edge : edges(target)) {
+            if (edge.getWeight() == weight) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the edges to a target, in out-list order.
+     *
+     * @param target The ID of the target node.
+     * @return The edges, an empty list if there are none. The list must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    List<Edge> edges(int target) {
+        Object bucket = buckets.get(target);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        return bucket instanceof Edge ? Collections.singletonList((Edge) bucket) : (List<Edge>) bucket;
+    }
+
+    /**
+     * Removes an edge instance from the index.
+     *
+     * @param edge The edge, which must be indexed.
+     */
+    @SuppressWarnings("unchecked")
+    void remove(Edge edge) {
+        int target = edge.getTo().getId();
+        Object bucket = buckets.get(target);
+        if (bucket == edge) {
+            buckets.remove(target);
+        } else {
+            List<Edge> edges = (List<Edge>) bucket;
+            for (int i = 0; i < edges.size(); i++) {
+                if (edges.get(i) == edge) {
+                    edges.remove(i);
+                    break;
+                }
+            }
+            if (edges.size() == 1) {
+                buckets.put(target, edges.get(0));
+            }
+        }
+        size--;
+    }
+
+    /**
+     * Removes all the edges to a target.
+     *
+     * @param target The ID of the target node.
+     */
+    void removeAll(int target) {
+        int count = edges(target).size();
+        if (count > 0) {
+            buckets.remove(target);
+            size -= count;
+        }
+    }
+}
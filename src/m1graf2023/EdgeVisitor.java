@@ -0,0 +1,17 @@
+package m1graf2023;
+
+/**
+ * Receives the edges of a node one at a time as primitive values, so that
+ * neighbour iteration does not have to create Edge or Node objects.
+ */
+@FunctionalInterface
+public interface EdgeVisitor {
+
+    /**
+     * Visits one edge of the node being iterated.
+     *
+     * @param node   The ID of the other end-point of the edge.
+     * @param weight The weight of the edge.
+     */
+    void visit(int node, int weight);
+}
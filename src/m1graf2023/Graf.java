@@ -1,26 +1,48 @@
 package m1graf2023;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 import java.io.*;
-import java.util.regex.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
 /**
  * Represents a directed graph using an adjacency edge list.
  */
 public class Graf implements graf_interface{
     private Map<Node, List<Edge>> adjEdList;
+    private Map<Node, List<Edge>> inEdList;
+    private IntMap<Node> nodeIndex;
+    private IntMap<EdgeIndex> edgeIndexes;
+    private Connectivity connectivity;
+    private GrafStats stats;
+    // Last snapshot, and the nodes whose lists changed since, once snapshot() was called: by
+    // ID, the first out-list and in-list positions changed, and the IDs in order of change
+    private GrafSnapshot snapshot;
+    private IntMap<int[]> changedNodes;
+    private int[] changedIds;
+    private int nbChangedIds;
+
+    // Out-lists at least this long get an index by target on their first edge lookup
+    private static final int EDGE_INDEX_THRESHOLD = 16;
 
     /**
      * Constructs an empty graph.
      */
     public Graf() {
         adjEdList = new HashMap<>();
+        inEdList = new HashMap<>();
+        nodeIndex = new IntMap<>();
+        edgeIndexes = new IntMap<>();
+        stats = new GrafStats(nodeIndex);
     }
 
     /**
      * Constructs a graph from the successor array.
      */
     public Graf(int... values) {
-        adjEdList = new HashMap<>();
+        this();
         int currentNode = 1;
         for(int val : values){
             addNode(currentNode);
@@ -34,6 +56,53 @@ public class Graf implements graf_interface{
             }
         }
     }
+
+    /**
+     * Constructs a graph from prebuilt adjacency lists, as produced by the bulk loaders.
+     *
+     * @param nodes    The nodes of the graph.
+     * @param outLists The outgoing edges of each node.
+     * @param inLists  The incoming edges of each node.
+     */
+    Graf(Node[] nodes, List<Edge>[] outLists, List<Edge>[] inLists) {
+        int capacity = (int) (nodes.length / 0.75f) + 1;
+        adjEdList = new HashMap<>(capacity);
+        inEdList = new HashMap<>(capacity);
+        nodeIndex = new IntMap<>(nodes.length);
+        edgeIndexes = new IntMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            adjEdList.put(nodes[i], outLists[i]);
+            inEdList.put(nodes[i], inLists[i]);
+            nodeIndex.put(nodes[i].getId(), nodes[i]);
+        }
+        stats = new GrafStats(nodeIndex);
+        for (int i = 0; i < nodes.length; i++) {
+            stats.nodeAdded(nodes[i].getId(), outLists[i].size() + inLists[i].size());
+            stats.edgesChanged(outLists[i].size());
+        }
+    }
+
+    /**
+     * Builds a graph from the successor array in parallel, with the same result as {@link #Graf(int...)}.
+     *
+     * @param values The successor array.
+     * @return The graph.
+     */
+    public static Graf fromSuccessorArray(int... values) {
+        return fromSuccessorArray(ForkJoinPool.commonPool(), values);
+    }
+
+    /**
+     * Builds a graph from the successor array in parallel, with the same result as {@link #Graf(int...)}.
+     *
+     * @param pool   The pool running the parallel passes.
+     * @param values The successor array.
+     * @return The graph.
+     */
+    public static Graf fromSuccessorArray(ForkJoinPool pool, int... values) {
+        return new SuccessorArrayLoader(values, pool).toGraf();
+    }
+
     /**
      * Returns the number of nodes in the graph.
      *
@@ -61,12 +130,7 @@ public class Graf implements graf_interface{
      * @return true if a node with the specified ID exists, false otherwise.
      */
     public boolean existsNode(int nodeId) {
-        for (Node node : adjEdList.keySet()) {
-            if (node.getId() == nodeId) {
-                return true;
-            }
-        }
-        return false;
+        return nodeIndex.containsKey(nodeId);
     }
 
     /**
@@ -76,12 +140,7 @@ public class Graf implements graf_interface{
      * @return The node instance or null if no node with the given ID exists.
      */
     public Node getNode(int id) {
-        for (Node node : adjEdList.keySet()) {
-            if (node.getId() == id) {
-                return node;
-            }
-        }
-        return null;
+        return nodeIndex.get(id);
     }
 
     /**
@@ -93,6 +152,13 @@ public class Graf implements graf_interface{
     public boolean addNode(Node n) {
         if (!existsNode(n)) {
             adjEdList.put(n, new ArrayList<>());
+            inEdList.put(n, new ArrayList<>());
+            nodeIndex.put(n.getId(), n);
+            stats.nodeAdded(n.getId(), 0);
+            nodeChanged(n);
+            if (connectivity != null) {
+                connectivity.nodeAdded(n.getId());
+            }
             return true;
         }
         return false;
@@ -105,8 +171,10 @@ public class Graf implements graf_interface{
      * @return true if the node is successfully added, false if a node with the same ID already exists.
      */
     public boolean addNode(int nodeId) {
-        Node newNode = new Node(nodeId);
-        return addNode(newNode);
+        if (existsNode(nodeId)) {
+            return false;
+        }
+        return addNode(new Node(nodeId));
     }
 
     /**
@@ -117,11 +185,49 @@ public class Graf implements graf_interface{
      */
     public boolean removeNode(Node n) {
         if (existsNode(n)) {
-            adjEdList.remove(n);
+            List<Edge> outEdges = adjEdList.remove(n);
+            List<Edge> inEdges = inEdList.remove(n);
+            nodeIndex.remove(n.getId());
+            edgeIndexes.remove(n.getId());
+            stats.nodeRemoved(n.getId(), outEdges.size() + inEdges.size());
+            int selfLoops = 0;
+            for (Edge edge : outEdges) {
+                selfLoops += edge.isSelfLoop() ? 1 : 0;
+            }
+            stats.edgesChanged(selfLoops - outEdges.size() - inEdges.size());
+            if (connectivity != null) {
+                connectivity.invalidate();
+            }
+            nodeChanged(n);
 
-            // Remove all edges incident to the node
-            for (List<Edge> edges : adjEdList.values()) {
-                edges.removeIf(edge -> edge.getTo().equals(n));
+            // Remove the incident edges from the lists of the actual neighbours only
+            Set<Node> neighbours = new HashSet<>();
+            for (Edge edge : outEdges) {
+                if (!edge.isSelfLoop() && neighbours.add(edge.getTo())) {
+                    List<Edge> neighbourEdges = inEdList.get(edge.getTo());
+                    int before = neighbourEdges.size();
+                    int first = firstIndex(neighbourEdges, e -> e.getFrom().equals(n));
+                    neighbourEdges.removeIf(e -> e.getFrom().equals(n));
+                    int degree = degreeOf(edge.getTo());
+                    stats.degreeChanged(degree + before - neighbourEdges.size(), degree);
+                    nodeChanged(edge.getTo(), Integer.MAX_VALUE, first);
+                }
+            }
+            neighbours.clear();
+            for (Edge edge : inEdges) {
+                if (!edge.isSelfLoop() && neighbours.add(edge.getFrom())) {
+                    List<Edge> neighbourEdges = adjEdList.get(edge.getFrom());
+                    int before = neighbourEdges.size();
+                    int first = firstIndex(neighbourEdges, e -> e.getTo().equals(n));
+                    neighbourEdges.removeIf(e -> e.getTo().equals(n));
+                    int degree = degreeOf(edge.getFrom());
+                    stats.degreeChanged(degree + before - neighbourEdges.size(), degree);
+                    nodeChanged(edge.getFrom(), first, Integer.MAX_VALUE);
+                    EdgeIndex index = edgeIndexes.get(edge.getFrom().getId());
+                    if (index != null) {
+                        index.removeAll(n.getId());
+                    }
+                }
             }
 
             return true;
@@ -143,12 +249,28 @@ public class Graf implements graf_interface{
         return false;
     }
 
+    /**
+     * Gets the distinct successors of a node, in the order of its out-edges.
+     *
+     * @param n The node.
+     * @return A list of the successors of the node, each listed once.
+     */
     public List<Node> getSuccessors(Node n) {
-        return null;
+        return new ArrayList<>(new LinkedHashSet<>(getSuccessorsMulti(n)));
     }
 
+    /**
+     * Gets the successors of a node, listing a successor once per edge leading to it.
+     *
+     * @param n The node.
+     * @return A list of the successors of the node, with repetitions for multi-edges.
+     */
     public List<Node> getSuccessorsMulti(Node n) {
-        return null;
+        List<Node> successors = new ArrayList<>();
+        if (n != null) {
+            forEachSuccessor(n.getId(), id -> successors.add(getNode(id)));
+        }
+        return successors;
     }
 
     public boolean adjacent(Node u, Node v) {
@@ -172,14 +294,7 @@ public class Graf implements graf_interface{
      * @return The largest node ID or Integer.MIN_VALUE if no nodes exist.
      */
     public int largestNodeId() {
-        int largestId = Integer.MIN_VALUE;
-        for (Node node : adjEdList.keySet()) {
-            int nodeId = node.getId();
-            if (nodeId > largestId) {
-                largestId = nodeId;
-            }
-        }
-        return largestId;
+        return stats.largestNodeId();
     }
 
     /**
@@ -188,14 +303,7 @@ public class Graf implements graf_interface{
      * @return The smallest node ID or Integer.MAX_VALUE if no nodes exist.
      */
     public int smallestNodeId() {
-        int smallestId = Integer.MAX_VALUE;
-        for (Node node : adjEdList.keySet()) {
-            int nodeId = node.getId();
-            if (nodeId < smallestId) {
-                smallestId = nodeId;
-            }
-        }
-        return smallestId;
+        return stats.smallestNodeId();
     }
 
     /**
@@ -215,17 +323,207 @@ public class Graf implements graf_interface{
             addNode(toNode);
         }
 
-        adjEdList.get(fromNode).add(edge);
+        appendEdge(edge);
+    }
+
+    /**
+     * Appends an edge to the out-list of its source, the in-list of its target and the
+     * index of its source if there is one.
+     *
+     * @param edge The edge, whose endpoints are in the graph.
+     */
+    private void appendEdge(Edge edge) {
+        List<Edge> outEdges = adjEdList.get(edge.getFrom());
+        List<Edge> inEdges = inEdList.get(edge.getTo());
+        outEdges.add(edge);
+        inEdges.add(edge);
+        EdgeIndex index = edgeIndexes.get(edge.getFrom().getId());
+        if (index != null) {
+            index.add(edge);
+        }
+        if (connectivity != null) {
+            connectivity.edgeAdded(edge.getFrom().getId(), edge.getTo().getId());
+        }
+        countEdge(edge, 1);
+        nodeChanged(edge.getFrom(), outEdges.size() - 1, Integer.MAX_VALUE);
+        nodeChanged(edge.getTo(), Integer.MAX_VALUE, inEdges.size() - 1);
+    }
+
+    /**
+     * Reports an edge added or removed to the statistics, with the new degrees of its ends.
+     *
+     * @param edge   The edge, already added to or removed from both lists.
+     * @param change 1 if the edge was added, -1 if it was removed.
+     */
+    private void countEdge(Edge edge, int change) {
+        stats.edgesChanged(change);
+        int degree = degreeOf(edge.getFrom());
+        if (edge.isSelfLoop()) {
+            stats.degreeChanged(degree - 2 * change, degree);
+        } else {
+            stats.degreeChanged(degree - change, degree);
+            degree = degreeOf(edge.getTo());
+            stats.degreeChanged(degree - change, degree);
+        }
+    }
+
+    /**
+     * Returns the in-degree plus out-degree of a node of the graph, from the sizes of its lists.
+     */
+    private int degreeOf(Node n) {
+        return adjEdList.get(n).size() + inEdList.get(n).size();
+    }
+
+    /**
+     * Returns the out-edge list of a node of the graph itself, for the batch updates of
+     * {@link GrafBatch}, which must then call {@link #outEdgesChanged(Node)}.
+     */
+    List<Edge> outEdgeList(Node n) {
+        return adjEdList.get(n);
+    }
+
+    /**
+     * Returns the in-edge list of a node of the graph itself, for the batch updates of {@link GrafBatch}.
+     */
+    List<Edge> inEdgeList(Node n) {
+        return inEdList.get(n);
+    }
+
+    /**
+     * Returns the out-edge lists of all the nodes, for the batch updates of {@link GrafBatch}
+     * touching so many nodes that a scan beats a lookup per node.
+     */
+    Set<Map.Entry<Node, List<Edge>>> outEdgeLists() {
+        return adjEdList.entrySet();
+    }
+
+    /**
+     * Returns the in-edge lists of all the nodes, for the batch updates of {@link GrafBatch}.
+     */
+    Set<Map.Entry<Node, List<Edge>>> inEdgeLists() {
+        return inEdList.entrySet();
+    }
+
+    /**
+     * Drops the index by target of a node whose out-edge list was changed in bulk. It is rebuilt
+     * on the next edge lookup if the list is still long enough.
+     *
+     * @param n The source node.
+     */
+    void outEdgesChanged(Node n) {
+        // Most graphs have no index, and reading the id would cost a cache miss per node
+        if (edgeIndexes.size() > 0) {
+            edgeIndexes.remove(n.getId());
+        }
+    }
+
+    /**
+     * Records that the lists of a node changed, or that it was added or removed, for the next
+     * snapshot.
+     *
+     * @param n The node.
+     */
+    void nodeChanged(Node n) {
+        nodeChanged(n, 0, 0);
+    }
+
+    /**
+     * Records that the lists of a node changed from given positions on, for the next snapshot,
+     * which copies them from there and shares their beginning with the previous one.
+     *
+     * @param n        The node.
+     * @param firstOut The first position changed in the out-edge list, Integer.MAX_VALUE if none.
+     * @param firstIn  The first position changed in the in-edge list, Integer.MAX_VALUE if none.
+     */
+    void nodeChanged(Node n, int firstOut, int firstIn) {
+        if (changedNodes == null) {
+            return;
+        }
+        int[] first = changedNodes.get(n.getId());
+        if (first == null) {
+            changedNodes.put(n.getId(), new int[]{firstOut, firstIn});
+            if (nbChangedIds == changedIds.length) {
+                changedIds = Arrays.copyOf(changedIds, 2 * nbChangedIds);
+            }
+            changedIds[nbChangedIds++] = n.getId();
+        } else {
+            first[0] = Math.min(first[0], firstOut);
+            first[1] = Math.min(first[1], firstIn);
+        }
+    }
+
+    /**
+     * Returns the position of the first edge of a list matching a filter.
+     *
+     * @return The position, or the size of the list if no edge matches.
+     */
+    private static int firstIndex(List<Edge> edges, Predicate<Edge> filter) {
+        int i = 0;
+        while (i < edges.size() && !filter.test(edges.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the connectivity of the graph if it is being kept up to date.
+     *
+     * @return The connectivity, or null if {@link #connectivity()} was never called.
+     */
+    Connectivity trackedConnectivity() {
+        return connectivity;
+    }
+
+    /**
+     * Returns the index by target of an out-edge list, building it if the list is long enough.
+     *
+     * @param from     The source node.
+     * @param outEdges The out-edges of the source node.
+     * @return The index, or null if the list is too short to need one.
+     */
+    private EdgeIndex edgeIndex(Node from, List<Edge> outEdges) {
+        EdgeIndex index = edgeIndexes.get(from.getId());
+        if (outEdges.size() < EDGE_INDEX_THRESHOLD) {
+            if (index != null) {
+                edgeIndexes.remove(from.getId());
+            }
+            return null;
+        }
+        if (index != null) {
+            return index;
+        }
+        index = new EdgeIndex(outEdges);
+        edgeIndexes.put(from.getId(), index);
+        return index;
+    }
+
+    /**
+     * Removes an indexed edge from the out-list, the in-list and the index.
+     *
+     * @param outEdges The out-edges of the source of the edge.
+     * @param index    The index of these out-edges.
+     * @param edge     The edge instance to remove.
+     */
+    private void removeIndexedEdge(List<Edge> outEdges, EdgeIndex index, Edge edge) {
+        index.remove(edge);
+        for (int i = 0; i < outEdges.size(); i++) {
+            if (outEdges.get(i) == edge) {
+                outEdges.remove(i);
+                removeInEdge(edge, i);
+                return;
+            }
+        }
     }
 
     /**
      * Gets the out-edges of a node in the graph.
      *
      * @param node The node for which to retrieve out-edges.
-     * @return A list of out-edges for the given node.
+     * @return A new list of the out-edges of the given node, which can be changed without
+     * affecting the graph.
      */
     public List<Edge> getOutEdges(Node node) {
-        return adjEdList.getOrDefault(node, Collections.emptyList());
+        return new ArrayList<>(adjEdList.getOrDefault(node, Collections.emptyList()));
     }
 
     /**
@@ -235,11 +533,7 @@ public class Graf implements graf_interface{
      */
     @Override
     public int nbEdges() {
-        int count = 0;
-        for (List<Edge> edges : adjEdList.values()) {
-            count += edges.size();
-        }
-        return count;
+        return stats.nbEdges();
     }
 
     /**
@@ -253,6 +547,10 @@ public class Graf implements graf_interface{
     public boolean existsEdge(Node u, Node v) {
         List<Edge> outEdges = adjEdList.get(u);
         if (outEdges != null) {
+            EdgeIndex index = edgeIndex(u, outEdges);
+            if (index != null) {
+                return v != null && index.first(v.getId()) != null;
+            }
             for (Edge edge : outEdges) {
                 if (edge.getTo().equals(v)) {
                     return true;
@@ -314,7 +612,9 @@ public class Graf implements graf_interface{
      */
     @Override
     public void addEdge(Node from, Node to, int weight) {
-        adjEdList.computeIfAbsent(from, k -> new ArrayList<>()).add(new Edge(from, to, weight));
+        addNode(from);
+        addNode(to);
+        appendEdge(new Edge(from, to, weight));
     }
 
     /**
@@ -344,11 +644,19 @@ public class Graf implements graf_interface{
     public boolean removeEdge(Node from, Node to) {
         List<Edge> outEdges = adjEdList.get(from);
         if (outEdges != null) {
-            Iterator<Edge> iterator = outEdges.iterator();
-            while (iterator.hasNext()) {
-                Edge edge = iterator.next();
+            EdgeIndex index = edgeIndex(from, outEdges);
+            if (index != null) {
+                Edge edge = to == null ? null : index.first(to.getId());
+                if (edge != null) {
+                    removeIndexedEdge(outEdges, index, edge);
+                }
+                return edge != null;
+            }
+            for (int i = 0; i < outEdges.size(); i++) {
+                Edge edge = outEdges.get(i);
                 if (edge.getTo().equals(to)) {
-                    iterator.remove();
+                    outEdges.remove(i);
+                    removeInEdge(edge, i);
                     return true;
                 }
             }
@@ -356,6 +664,28 @@ public class Graf implements graf_interface{
         return false;
     }
 
+    /**
+     * Removes an edge instance from the in-edge list of its target.
+     *
+     * @param edge     The edge already removed from the out-edge list of its source.
+     * @param outIndex The position the edge had in that list.
+     */
+    private void removeInEdge(Edge edge, int outIndex) {
+        if (connectivity != null) {
+            connectivity.invalidate();
+        }
+        List<Edge> inEdges = inEdList.get(edge.getTo());
+        for (int i = inEdges.size() - 1; i >= 0; i--) {
+            if (inEdges.get(i) == edge) {
+                inEdges.remove(i);
+                countEdge(edge, -1);
+                nodeChanged(edge.getFrom(), outIndex, Integer.MAX_VALUE);
+                nodeChanged(edge.getTo(), Integer.MAX_VALUE, i);
+                return;
+            }
+        }
+    }
+
     /**
      * Removes an edge between nodes with the given IDs.
      *
@@ -376,11 +706,19 @@ public class Graf implements graf_interface{
     public boolean removeEdge(Node from, Node to, int weight) {
         List<Edge> outEdges = adjEdList.get(from);
         if (outEdges != null) {
-            Iterator<Edge> iterator = outEdges.iterator();
-            while (iterator.hasNext()) {
-                Edge edge = iterator.next();
+            EdgeIndex index = edgeIndex(from, outEdges);
+            if (index != null) {
+                Edge edge = to == null ? null : index.first(to.getId(), weight);
+                if (edge != null) {
+                    removeIndexedEdge(outEdges, index, edge);
+                }
+                return edge != null;
+            }
+            for (int i = 0; i < outEdges.size(); i++) {
+                Edge edge = outEdges.get(i);
                 if (edge.getTo().equals(to) && edge.getWeight() == weight) {
-                    iterator.remove();
+                    outEdges.remove(i);
+                    removeInEdge(edge, i);
                     return true;
                 }
             }
@@ -406,18 +744,7 @@ public class Graf implements graf_interface{
 
     @Override
     public List<Edge> getInEdges(Node n) {
-        List<Edge> inEdges = new ArrayList<>();
-        for (Node node : adjEdList.keySet()) {
-            List<Edge> edges = adjEdList.get(node);
-            if (edges != null) {
-                for (Edge edge : edges) {
-                    if (edge.getTo().equals(n)) {
-                        inEdges.add(edge);
-                    }
-                }
-            }
-        }
-        return inEdges;
+        return new ArrayList<>(inEdList.getOrDefault(n, Collections.emptyList()));
     }
 
     @Override
@@ -445,6 +772,13 @@ public class Graf implements graf_interface{
         List<Edge> edgesFromU = adjEdList.get(u);
         List<Edge> matchingEdges = new ArrayList<>();
         if (edgesFromU != null) {
+            EdgeIndex index = edgeIndex(u, edgesFromU);
+            if (index != null) {
+                if (v != null) {
+                    matchingEdges.addAll(index.edges(v.getId()));
+                }
+                return matchingEdges;
+            }
             for (Edge edge : edgesFromU) {
                 if (edge.getTo().equals(v)) {
                     matchingEdges.add(edge);
@@ -471,15 +805,8 @@ public class Graf implements graf_interface{
     }
     @Override
     public int inDegree(Node n) {
-        int inDegree = 0;
-        for (List<Edge> edges : adjEdList.values()) {
-            for (Edge edge : edges) {
-                if (edge.getTo().equals(n)) {
-                    inDegree++;
-                }
-            }
-        }
-        return inDegree;
+        List<Edge> inEdges = inEdList.get(n);
+        return inEdges != null ? inEdges.size() : 0;
     }
 
     @Override
@@ -519,51 +846,322 @@ public class Graf implements graf_interface{
         }
         return 0;
     }
+
+    /**
+     * Calls an action on the ID of the target of every out-edge of a node, without allocating.
+     *
+     * @param nodeId The ID of the node.
+     * @param action The action receiving the successor IDs.
+     */
+    @Override
+    public void forEachSuccessor(int nodeId, IntConsumer action) {
+        List<Edge> outEdges = adjEdList.get(getNode(nodeId));
+        if (outEdges != null) {
+            for (int i = 0; i < outEdges.size(); i++) {
+                action.accept(outEdges.get(i).getTo().getId());
+            }
+        }
+    }
+
+    /**
+     * Calls an action on the ID of the source of every in-edge of a node, without allocating.
+     *
+     * @param nodeId The ID of the node.
+     * @param action The action receiving the predecessor IDs.
+     */
+    @Override
+    public void forEachPredecessor(int nodeId, IntConsumer action) {
+        List<Edge> inEdges = inEdList.get(getNode(nodeId));
+        if (inEdges != null) {
+            for (int i = 0; i < inEdges.size(); i++) {
+                action.accept(inEdges.get(i).getFrom().getId());
+            }
+        }
+    }
+
+    /**
+     * Visits the target and weight of every out-edge of a node, without allocating.
+     *
+     * @param nodeId  The ID of the node.
+     * @param visitor The visitor receiving each edge.
+     */
+    @Override
+    public void forEachOutEdge(int nodeId, EdgeVisitor visitor) {
+        List<Edge> outEdges = adjEdList.get(getNode(nodeId));
+        if (outEdges != null) {
+            for (int i = 0; i < outEdges.size(); i++) {
+                Edge edge = outEdges.get(i);
+                visitor.visit(edge.getTo().getId(), edge.getWeight());
+            }
+        }
+    }
+
+    /**
+     * Visits the source and weight of every in-edge of a node, without allocating.
+     *
+     * @param nodeId  The ID of the node.
+     * @param visitor The visitor receiving each edge.
+     */
+    @Override
+    public void forEachInEdge(int nodeId, EdgeVisitor visitor) {
+        List<Edge> inEdges = inEdList.get(getNode(nodeId));
+        if (inEdges != null) {
+            for (int i = 0; i < inEdges.size(); i++) {
+                Edge edge = inEdges.get(i);
+                visitor.visit(edge.getFrom().getId(), edge.getWeight());
+            }
+        }
+    }
+    /**
+     * Tells if the edges of the graph are directed.
+     *
+     * @return true for a directed graph.
+     */
+    public boolean isDirected() {
+        return true;
+    }
+
+    /**
+     * Returns the statistics of the graph, kept up to date by its mutations.
+     *
+     * @return The statistics, a live view of the graph.
+     */
+    public GrafStats stats() {
+        return stats;
+    }
+
+    /**
+     * Returns the weakly connected components of the graph, computed on the first call and then
+     * kept up to date by the node and edge insertions.
+     *
+     * @return The connectivity of the graph.
+     */
+    public Connectivity connectivity() {
+        if (connectivity == null) {
+            connectivity = new Connectivity(this);
+        }
+        return connectivity;
+    }
+
+    /**
+     * Returns an immutable view of the graph as it is now, which other threads can read while
+     * this one keeps changing the graph. The first call copies every adjacency list. Then the
+     * graph records the nodes whose lists change, with the first position changed in each list,
+     * and the next snapshot only copies those lists from the chunk holding that position on,
+     * sharing the rest with the previous snapshot. Appending an edge to the list of a node of
+     * high degree thus costs the next snapshot a chunk, not the whole list.
+     *
+     * @return The snapshot, the same one as on the previous call if the graph did not change.
+     */
+    public GrafSnapshot snapshot() {
+        PersistentIntMap.Editor<GrafSnapshot.Adjacency> editor;
+        if (snapshot == null) {
+            editor = PersistentIntMap.<GrafSnapshot.Adjacency>empty().edit();
+            for (Map.Entry<Node, List<Edge>> entry : adjEdList.entrySet()) {
+                Node n = entry.getKey();
+                editor.put(n.getId(), new GrafSnapshot.Adjacency(n, entry.getValue(), inEdList.get(n)));
+            }
+            changedNodes = new IntMap<>();
+            changedIds = new int[16];
+        } else if (nbChangedIds > 0) {
+            editor = snapshot.nodes().edit();
+            for (int i = 0; i < nbChangedIds; i++) {
+                int id = changedIds[i];
+                int[] first = changedNodes.remove(id);
+                Node n = nodeIndex.get(id);
+                if (n == null) {
+                    editor.remove(id);
+                } else {
+                    GrafSnapshot.Adjacency previous = snapshot.nodes().get(id);
+                    editor.put(id, new GrafSnapshot.Adjacency(n, adjEdList.get(n), inEdList.get(n),
+                            previous != null && previous.node == n ? previous : null, first[0], first[1]));
+                }
+            }
+            nbChangedIds = 0;
+        } else {
+            return snapshot;
+        }
+        long version = snapshot == null ? 1 : snapshot.version() + 1;
+        snapshot = new GrafSnapshot(editor.persistent(), nbEdges(), version, isDirected());
+        return snapshot;
+    }
+
+    /**
+     * Builds an immutable compressed sparse row snapshot of the graph.
+     *
+     * @return The CSR form of the graph.
+     */
+    public CsrGraf toCsr() {
+        return new CsrGraf(adjEdList);
+    }
+
         // ... (previous methods)
 
+        // Static method to load a graph from a binary file with default extension ".grf"
+        public static Graf fromBinaryFile(String filename) {
+            return fromBinaryFile(filename, ".grf");
+        }
+
+        // Static method to load a graph from a binary file (see GrafBinaryFormat) with a specified extension
+        public static Graf fromBinaryFile(String filename, String extension) {
+            try {
+                GrafBinaryFormat.Contents contents = GrafBinaryFormat.read(Paths.get(filename + extension));
+                CsrGraf csr = contents.csr;
+                Graf graf = contents.directed ? new Graf() : new UndirectedGraf();
+                for (Node node : csr.nodes) {
+                    graf.addNode(node);
+                }
+                for (int u = 0; u < csr.nodes.length; u++) {
+                    for (int k = csr.offsets[u]; k < csr.offsets[u + 1]; k++) {
+                        graf.addEdge(csr.nodes[u], csr.nodes[csr.targets[k]], csr.weights[k]);
+                    }
+                }
+                return graf;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            return new Graf();
+        }
+
+        // Method to save the graph as a binary file with default extension ".grf"
+        public void toBinaryFile(String fileName) {
+            toBinaryFile(fileName, ".grf");
+        }
+
+        // Method to save the graph as a binary file with a specified extension
+        public void toBinaryFile(String fileName, String extension) {
+            try {
+                GrafBinaryFormat.write(new CsrGraf(adjEdList), isDirected(), Paths.get(fileName + extension));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
         // Static method to import a graph from a DOT file with default extension ".gv"
         public static Graf fromDotFile(String filename) {
             return fromDotFile(filename, ".gv");
         }
 
-        // Static method to import a graph from a DOT file with a specified extension
+        // Static method to import a graph from a DOT file with a specified extension.
+        // The file is streamed through DotReader; a "graph" file gives an UndirectedGraf.
         public static Graf fromDotFile(String filename, String extension) {
-            Graf graf = new Graf();
-
-            try (BufferedReader reader = new BufferedReader(new FileReader(filename + extension))) {
-                String line;
-                Pattern edgePattern = Pattern.compile("(\\d+)\\s*->\\s*(\\d+);");
-
-                while ((line = reader.readLine()) != null) {
-                    Matcher matcher = edgePattern.matcher(line);
-                    if (matcher.find()) {
-                        int fromId = Integer.parseInt(matcher.group(1));
-                        int toId = Integer.parseInt(matcher.group(2));
-                        Node from = new Node(fromId);
-                        Node to = new Node(toId);
-                        graf.addNode(from);
-                        graf.addNode(to);
-                        graf.addEdge(new Edge(from, to));
-                    }
-                }
+            try (FileChannel channel = FileChannel.open(Paths.get(filename + extension))) {
+                return new DotReader(channel).read();
             } catch (IOException e) {
                 e.printStackTrace();
             }
 
-            return graf;
+            return new Graf();
         }
 
         // Method to export the graph as a String in DOT syntax
         public String toDotString() {
-            StringBuilder dotString = new StringBuilder("digraph G {\n");
+            StringBuilder dotString = new StringBuilder();
+            try {
+                writeDot(dotString);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return dotString.toString();
+        }
+
+        // Method to write the graph in DOT syntax to a character sink, edges only, in storage order
+        public void writeDot(Appendable out) throws IOException {
+            writeDot(out, false, false, false);
+        }
 
-            for (Edge edge : getAllEdges()) {
-                dotString.append("  ").append(edge.getFrom().getId()).append(" -> ").append(edge.getTo().getId()).append(";\n");
+        // Method to write the graph in DOT syntax to a character sink.
+        // weights: label weighted edges with their weight; isolatedNodes: declare nodes without edges;
+        // sorted: list nodes and their out-edges by increasing id (then weight)
+        public void writeDot(Appendable out, boolean weights, boolean isolatedNodes, boolean sorted) throws IOException {
+            DotWriter writer = new DotWriter(out);
+            writeDot(writer, weights, isolatedNodes, sorted);
+            writer.flush();
+        }
+
+        // Method to write the graph in DOT syntax to a byte stream, edges only, in storage order
+        public void writeDot(OutputStream out) throws IOException {
+            writeDot(out, false, false, false);
+        }
+
+        // Method to write the graph in DOT syntax to a byte stream, with the same options as above.
+        // The stream is written through a 1 MB buffer, straight from the adjacency lists.
+        public void writeDot(OutputStream out, boolean weights, boolean isolatedNodes, boolean sorted) throws IOException {
+            DotWriter writer = new DotWriter(out);
+            writeDot(writer, weights, isolatedNodes, sorted);
+            writer.flush();
+        }
+
+        private void writeDot(DotWriter writer, boolean weights, boolean isolatedNodes, boolean sorted) throws IOException {
+            // An undirected graph is written as a "graph" with "--" edges, each edge once
+            boolean directed = isDirected();
+            writer.write(directed ? "digraph G {\n" : "graph G {\n");
+            if (sorted) {
+                writeSortedDotBody(writer, directed, weights, isolatedNodes);
+            } else {
+                writeDotBody(writer, directed, weights, isolatedNodes);
             }
+            writer.write("}\n");
+        }
 
-            dotString.append("}\n");
+        private void writeSortedDotBody(DotWriter writer, boolean directed, boolean weights, boolean isolatedNodes) throws IOException {
+            int[] ids = new int[nodeIndex.size()];
+            for (int slot = 0, i = 0; slot < nodeIndex.capacity(); slot++) {
+                if (nodeIndex.valueAt(slot) != null) {
+                    ids[i++] = nodeIndex.keyAt(slot);
+                }
+            }
+            Arrays.sort(ids);
+            long[] row = new long[16];
+            for (int id : ids) {
+                Node n = nodeIndex.get(id);
+                List<Edge> edges = adjEdList.get(n);
+                if (edges.isEmpty()) {
+                    if (isolatedNodes && inDegree(n) == 0) {
+                        writer.writeNode(id);
+                    }
+                    continue;
+                }
+                if (row.length < edges.size()) {
+                    row = new long[Math.max(edges.size(), row.length * 2)];
+                }
+                // Sort (target, weight) pairs packed in longs, without copying the Edge list
+                for (int k = 0; k < edges.size(); k++) {
+                    Edge edge = edges.get(k);
+                    row[k] = ((long) edge.getTo().getId() << 32) | ((edge.getWeight() ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+                }
+                Arrays.sort(row, 0, edges.size());
+                for (int k = 0; k < edges.size(); k++) {
+                    int weight = (int) row[k] ^ Integer.MIN_VALUE;
+                    writer.writeEdge(id, directed, (int) (row[k] >> 32), weight, weights && weight != 0);
+                }
+            }
+        }
 
-            return dotString.toString();
+        private void writeDotBody(DotWriter writer, boolean directed, boolean weights, boolean isolatedNodes) throws IOException {
+            int[] targets = new int[16];
+            int[] edgeWeights = new int[16];
+            for (Map.Entry<Node, List<Edge>> entry : adjEdList.entrySet()) {
+                List<Edge> edges = entry.getValue();
+                int id = entry.getKey().getId();
+                if (edges.isEmpty() && isolatedNodes && inDegree(entry.getKey()) == 0) {
+                    writer.writeNode(id);
+                }
+                if (targets.length < edges.size()) {
+                    targets = new int[Math.max(edges.size(), targets.length * 2)];
+                    edgeWeights = new int[targets.length];
+                }
+                // Gather the row first: the loads of its edges then overlap instead of stalling the formatting
+                for (int k = 0; k < edges.size(); k++) {
+                    Edge edge = edges.get(k);
+                    targets[k] = edge.getTo().getId();
+                    edgeWeights[k] = edge.getWeight();
+                }
+                for (int k = 0; k < edges.size(); k++) {
+                    writer.writeEdge(id, directed, targets[k], edgeWeights[k], weights && edgeWeights[k] != 0);
+                }
+            }
         }
 
         // Method to export the graph as a DOT file with default extension ".gv"
@@ -573,8 +1171,13 @@ public class Graf implements graf_interface{
 
         // Method to export the graph as a DOT file with a specified extension
         public void toDotFile(String fileName, String extension) {
-            try (PrintWriter writer = new PrintWriter(fileName + extension)) {
-                writer.println(toDotString());
+            toDotFile(fileName, extension, false, false, false);
+        }
+
+        // Method to export the graph as a DOT file, with the options of writeDot
+        public void toDotFile(String fileName, String extension, boolean weights, boolean isolatedNodes, boolean sorted) {
+            try (OutputStream out = new FileOutputStream(fileName + extension)) {
+                writeDot(out, weights, isolatedNodes, sorted);
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -0,0 +1,658 @@
+package m1graf2023;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Buffers edge insertions and removals for a {@link Graf} in primitive arrays and applies them
+ * in one pass. The operations are grouped by source, every adjacency list touched is grown once
+ * to its final size, and the statistics, connectivity, snapshot tracking and edge indexes of the
+ * graph are updated once per node instead of once per edge; the edge indexes of the changed sources are dropped
+ * and rebuilt on their next lookup.
+ *
+ * <p>Every endpoint is resolved once to a slot among the distinct endpoints of the batch,
+ * through a table indexed by ID when the IDs are dense enough, by binary search otherwise, and
+ * the operations are grouped by the slot of their source or target with a counting sort.
+ *
+ * <p>{@link #apply()} runs the removals first, then the insertions. As with
+ * {@link Graf#addEdge(int, int, int)}, an insertion between IDs of which one is not a node of
+ * the graph is ignored. A removal removes the first matching out-edge of its source, if any, a
+ * removal with a weight being matched before one without on the same edge; on an UndirectedGraf,
+ * the removals left unmatched are tried again in the other direction. Within a list, the edges
+ * added keep the order of the batch.
+ */
+public class GrafBatch {
+    // Batches touching at least one node in SCAN_FRACTION find their lists by a scan of the graph
+    private static final int SCAN_FRACTION = 8;
+
+    private final Graf graph;
+    // (from, to, weight) triples
+    private int[] additions = new int[48];
+    private int nbAdditions;
+    // (from, to, weight, 1 if the weight must match) quadruples
+    private int[] removals = new int[64];
+    private int nbRemovals;
+
+    // Distinct endpoints of the batch being applied, numbered by slot
+    private int[] ids;
+    private int nbIds;
+    private Node[] nodes;
+    private List<Edge>[] outLists;
+    private List<Edge>[] inLists;
+    private int[] slotTable;
+    private int smallestId;
+    private boolean sortedIds;
+    // Slots of the endpoints: additions first, then removals, two per operation
+    private int[] slots;
+    // First position changed in the out- and in-edge lists of every slot, Integer.MAX_VALUE if none
+    private int[] firstOut;
+    private int[] firstIn;
+
+    /**
+     * Constructs an empty batch for a graph.
+     *
+     * @param graph The graph the batch is applied to.
+     */
+    public GrafBatch(Graf graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Returns the number of operations waiting in the batch.
+     *
+     * @return The number of insertions and removals not applied yet.
+     */
+    public int size() {
+        return nbAdditions + nbRemovals;
+    }
+
+    /**
+     * Queues the insertion of an edge of weight 0.
+     *
+     * @param fromId The ID of the source node.
+     * @param toId   The ID of the target node.
+     * @return This batch.
+     */
+    public GrafBatch addEdge(int fromId, int toId) {
+        return addEdge(fromId, toId, 0);
+    }
+
+    /**
+     * Queues the insertion of a weighted edge.
+     *
+     * @param fromId The ID of the source node.
+     * @param toId   The ID of the target node.
+     * @param weight The weight of the edge.
+     * @return This batch.
+     */
+    public GrafBatch addEdge(int fromId, int toId, int weight) {
+        if (3 * (nbAdditions + 1) > additions.length) {
+            additions = Arrays.copyOf(additions, Math.max(3 * (nbAdditions + 1), additions.length * 2));
+        }
+        additions[3 * nbAdditions] = fromId;
+        additions[3 * nbAdditions + 1] = toId;
+        additions[3 * nbAdditions + 2] = weight;
+        nbAdditions++;
+        return this;
+    }
+
+    /**
+     * Queues the insertion of edges given as parallel arrays.
+     *
+     * @param fromIds The IDs of the source nodes.
+     * @param toIds   The IDs of the target nodes.
+     * @param weights The weights of the edges, or null for weights 0.
+     * @return This batch.
+     * @throws IllegalArgumentException If the arrays do not have the same length.
+     */
+    public GrafBatch addEdges(int[] fromIds, int[] toIds, int[] weights) {
+        if (fromIds.length != toIds.length || (weights != null && weights.length != fromIds.length)) {
+            throw new IllegalArgumentException("arrays of different lengths");
+        }
+        additions = Arrays.copyOf(additions, Math.max(additions.length, 3 * (nbAdditions + fromIds.length)));
+        for (int i = 0; i < fromIds.length; i++) {
+            addEdge(fromIds[i], toIds[i], weights != null ? weights[i] : 0);
+        }
+        return this;
+    }
+
+    /**
+     * Queues the insertion of the edges read from a buffer of (from, to, weight) triples, up to
+     * its limit.
+     *
+     * @param triples The buffer, whose position is moved to its limit.
+     * @return This batch.
+     * @throws IllegalArgumentException If the number of ints remaining is not a multiple of 3.
+     */
+    public GrafBatch addEdges(IntBuffer triples) {
+        if (triples.remaining() % 3 != 0) {
+            throw new IllegalArgumentException(triples.remaining() + " ints are not (from, to, weight) triples");
+        }
+        int count = triples.remaining() / 3;
+        additions = Arrays.copyOf(additions, Math.max(additions.length, 3 * (nbAdditions + count)));
+        triples.get(additions, 3 * nbAdditions, 3 * count);
+        nbAdditions += count;
+        return this;
+    }
+
+    /**
+     * Queues the removal of an edge of any weight.
+     *
+     * @param fromId The ID of the source node.
+     * @param toId   The ID of the target node.
+     * @return This batch.
+     */
+    public GrafBatch removeEdge(int fromId, int toId) {
+        return queueRemoval(fromId, toId, 0, 0);
+    }
+
+    /**
+     * Queues the removal of an edge of a given weight.
+     *
+     * @param fromId The ID of the source node.
+     * @param toId   The ID of the target node.
+     * @param weight The weight of the edge.
+     * @return This batch.
+     */
+    public GrafBatch removeEdge(int fromId, int toId, int weight) {
+        return queueRemoval(fromId, toId, weight, 1);
+    }
+
+    /**
+     * Queues the removal of edges of any weight given as parallel arrays.
+     *
+     * @param fromIds The IDs of the source nodes.
+     * @param toIds   The IDs of the target nodes.
+     * @return This batch.
+     * @throws IllegalArgumentException If the arrays do not have the same length.
+     */
+    public GrafBatch removeEdges(int[] fromIds, int[] toIds) {
+        if (fromIds.length != toIds.length) {
+            throw new IllegalArgumentException("arrays of different lengths");
+        }
+        removals = Arrays.copyOf(removals, Math.max(removals.length, 4 * (nbRemovals + fromIds.length)));
+        for (int i = 0; i < fromIds.length; i++) {
+            queueRemoval(fromIds[i], toIds[i], 0, 0);
+        }
+        return this;
+    }
+
+    private GrafBatch queueRemoval(int fromId, int toId, int weight, int matchWeight) {
+        if (4 * (nbRemovals + 1) > removals.length) {
+            removals = Arrays.copyOf(removals, Math.max(4 * (nbRemovals + 1), removals.length * 2));
+        }
+        removals[4 * nbRemovals] = fromId;
+        removals[4 * nbRemovals + 1] = toId;
+        removals[4 * nbRemovals + 2] = weight;
+        removals[4 * nbRemovals + 3] = matchWeight;
+        nbRemovals++;
+        return this;
+    }
+
+    /**
+     * Applies the queued removals, then the queued insertions, to the graph, and empties the batch.
+     */
+    public void apply() {
+        if (nbAdditions + nbRemovals == 0) {
+            return;
+        }
+        collectEndpoints();
+        int[] degrees = new int[nbIds];
+        for (int slot = 0; slot < nbIds; slot++) {
+            degrees[slot] = nodes[slot] != null ? outLists[slot].size() + inLists[slot].size() : 0;
+        }
+        firstOut = new int[nbIds];
+        firstIn = new int[nbIds];
+        Arrays.fill(firstOut, Integer.MAX_VALUE);
+        Arrays.fill(firstIn, Integer.MAX_VALUE);
+        GrafStats stats = graph.stats();
+        Connectivity connectivity = graph.trackedConnectivity();
+
+        int removed = 0;
+        if (nbRemovals > 0) {
+            List<Edge> removedEdges = new ArrayList<>(nbRemovals);
+            int[] requests = new int[nbRemovals];
+            for (int r = 0; r < nbRemovals; r++) {
+                requests[r] = r;
+            }
+            int nbUnmatched = removeEdges(requests, nbRemovals, false, removedEdges);
+            if (!graph.isDirected() && nbUnmatched > 0) {
+                removeEdges(requests, nbUnmatched, true, removedEdges);
+            }
+            removeInEdges(removedEdges);
+            removed = removedEdges.size();
+            if (removed > 0 && connectivity != null) {
+                connectivity.invalidate();
+            }
+        }
+        int added = nbAdditions > 0 ? addEdges(connectivity) : 0;
+        stats.edgesChanged(added - removed);
+        for (int slot = 0; slot < nbIds; slot++) {
+            if (firstOut[slot] != Integer.MAX_VALUE || firstIn[slot] != Integer.MAX_VALUE) {
+                stats.degreeChanged(degrees[slot], outLists[slot].size() + inLists[slot].size());
+                graph.nodeChanged(nodes[slot], firstOut[slot], firstIn[slot]);
+            }
+        }
+
+        nbAdditions = 0;
+        nbRemovals = 0;
+        ids = null;
+        nodes = null;
+        outLists = null;
+        inLists = null;
+        slotTable = null;
+        slots = null;
+        firstOut = null;
+        firstIn = null;
+    }
+
+    /**
+     * Numbers the distinct endpoints of the batch, resolves every endpoint to its slot and looks
+     * up the node and the adjacency lists of every slot. IDs spanning a range at most twice the number of endpoints are
+     * numbered through a table indexed by ID, others are sorted and found by binary search. When
+     * the batch touches a large part of the graph, the nodes and lists are found in one scan of the
+     * graph rather than one lookup per slot.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void collectEndpoints() {
+        int nbEndpoints = 2 * (nbAdditions + nbRemovals);
+        slots = new int[nbEndpoints];
+        smallestId = Integer.MAX_VALUE;
+        int largestId = Integer.MIN_VALUE;
+        for (int e = 0; e < nbEndpoints; e++) {
+            smallestId = Math.min(smallestId, endpoint(e));
+            largestId = Math.max(largestId, endpoint(e));
+        }
+        ids = new int[nbEndpoints];
+        nbIds = 0;
+        sortedIds = (long) largestId - smallestId >= 2L * nbEndpoints;
+        if (sortedIds) {
+            for (int e = 0; e < nbEndpoints; e++) {
+                ids[e] = endpoint(e);
+            }
+            Arrays.sort(ids);
+            for (int i = 0; i < nbEndpoints; i++) {
+                if (i == 0 || ids[i] != ids[i - 1]) {
+                    ids[nbIds++] = ids[i];
+                }
+            }
+        } else {
+            // Mark the IDs seen, then number them in increasing order, as in the sorted case:
+            // a graph built in ID order then has its nodes and lists visited in memory order.
+            // Entries are slot + 1, 0 for the IDs not seen.
+            slotTable = new int[largestId - smallestId + 1];
+            for (int e = 0; e < nbEndpoints; e++) {
+                slotTable[endpoint(e) - smallestId] = 1;
+            }
+            for (int i = 0; i < slotTable.length; i++) {
+                if (slotTable[i] != 0) {
+                    ids[nbIds++] = smallestId + i;
+                    slotTable[i] = nbIds;
+                }
+            }
+        }
+        for (int e = 0; e < nbEndpoints; e++) {
+            slots[e] = slot(endpoint(e));
+        }
+        nodes = new Node[nbIds];
+        outLists = new List[nbIds];
+        inLists = new List[nbIds];
+        if (nbIds < graph.nbNodes() / SCAN_FRACTION) {
+            for (int slot = 0; slot < nbIds; slot++) {
+                nodes[slot] = graph.getNode(ids[slot]);
+                if (nodes[slot] != null) {
+                    outLists[slot] = graph.outEdgeList(nodes[slot]);
+                    inLists[slot] = graph.inEdgeList(nodes[slot]);
+                }
+            }
+        } else {
+            // A scan of the lists of the graph reads them in memory order, with no hashing
+            for (Map.Entry<Node, List<Edge>> entry : graph.outEdgeLists()) {
+                int slot = slotOf(entry.getKey().getId());
+                if (slot >= 0) {
+                    nodes[slot] = entry.getKey();
+                    outLists[slot] = entry.getValue();
+                }
+            }
+            for (Map.Entry<Node, List<Edge>> entry : graph.inEdgeLists()) {
+                int slot = slotOf(entry.getKey().getId());
+                if (slot >= 0) {
+                    inLists[slot] = entry.getValue();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an endpoint of the batch.
+     *
+     * @param e 2i + 1 for the target of addition i, 2(nbAdditions + r) for the source of removal r, etc.
+     * @return The ID of the endpoint.
+     */
+    private int endpoint(int e) {
+        int operation = e >> 1;
+        return operation < nbAdditions
+                ? additions[3 * operation + (e & 1)]
+                : removals[4 * (operation - nbAdditions) + (e & 1)];
+    }
+
+    /**
+     * Returns the slot of an ID, which must be an endpoint of the batch.
+     */
+    private int slot(int id) {
+        return sortedIds ? Arrays.binarySearch(ids, 0, nbIds, id) : slotTable[id - smallestId] - 1;
+    }
+
+    /**
+     * Returns the slot of any ID.
+     *
+     * @return The slot, or a negative value if the ID is not an endpoint of the batch.
+     */
+    private int slotOf(int id) {
+        if (sortedIds) {
+            return Arrays.binarySearch(ids, 0, nbIds, id);
+        }
+        return id >= smallestId && id - smallestId < slotTable.length ? slotTable[id - smallestId] - 1 : -1;
+    }
+
+    /**
+     * Groups operations by the slot of one of their endpoints with a counting sort, keeping the
+     * batch order within a group.
+     *
+     * @param operations The operations, as indices of additions or removals.
+     * @param count      The number of operations.
+     * @param first      The index in slots of the endpoints of the first addition or removal.
+     * @param field      0 to group by source, 1 by target.
+     * @param order      Filled with the operations grouped by slot.
+     * @return The start of the group of every slot in order, and the end of the last group.
+     */
+    private int[] groupBySlot(int[] operations, int count, int first, int field, int[] order) {
+        int[] starts = new int[nbIds + 1];
+        for (int k = 0; k < count; k++) {
+            int op = operations != null ? operations[k] : k;
+            starts[slots[first + 2 * op + field] + 1]++;
+        }
+        for (int slot = 0; slot < nbIds; slot++) {
+            starts[slot + 1] += starts[slot];
+        }
+        int[] next = Arrays.copyOf(starts, nbIds);
+        for (int k = 0; k < count; k++) {
+            int op = operations != null ? operations[k] : k;
+            order[next[slots[first + 2 * op + field]]++] = op;
+        }
+        return starts;
+    }
+
+    /**
+     * Removes the out-edges matching a list of removals, source by source.
+     *
+     * @param requests     The indices of the removals, overwritten with those left unmatched.
+     * @param count        The number of removals.
+     * @param reversed     true to match the removals from their target to their source.
+     * @param removedEdges Collects the edges removed.
+     * @return The number of removals left unmatched.
+     */
+    private int removeEdges(int[] requests, int count, boolean reversed, List<Edge> removedEdges) {
+        int from = reversed ? 1 : 0;
+        int to = 1 - from;
+        int first = 2 * nbAdditions;
+        int[] order = new int[count];
+        int[] starts = groupBySlot(requests, count, first, from, order);
+        // Requests of the current source: by (target, weight) if weighted, by target otherwise
+        long[] weighted = new long[count];
+        int[] weightedCounts = new int[count];
+        int[] anyWeight = new int[count];
+        int[] anyWeightCounts = new int[count];
+        int nbUnmatched = 0;
+        for (int source = 0; source < nbIds; source++) {
+            int start = starts[source];
+            int end = starts[source + 1];
+            if (start == end) {
+                continue;
+            }
+            int nbWeighted = 0;
+            int nbAnyWeight = 0;
+            for (int k = start; k < end; k++) {
+                int r = 4 * order[k];
+                if (removals[r + 3] != 0) {
+                    weighted[nbWeighted++] = weightedKey(removals[r + to], removals[r + 2]);
+                } else {
+                    anyWeight[nbAnyWeight++] = removals[r + to];
+                }
+            }
+            nbWeighted = distinct(weighted, nbWeighted, weightedCounts);
+            nbAnyWeight = distinct(anyWeight, nbAnyWeight, anyWeightCounts);
+
+            Node sourceNode = nodes[source];
+            if (sourceNode != null) {
+                List<Edge> outEdges = outLists[source];
+                int kept = 0;
+                for (int i = 0; i < outEdges.size(); i++) {
+                    Edge edge = outEdges.get(i);
+                    int targetId = edge.getTo().getId();
+                    int k = Arrays.binarySearch(weighted, 0, nbWeighted, weightedKey(targetId, edge.getWeight()));
+                    if (k >= 0 && weightedCounts[k] > 0) {
+                        weightedCounts[k]--;
+                    } else if ((k = Arrays.binarySearch(anyWeight, 0, nbAnyWeight, targetId)) >= 0 && anyWeightCounts[k] > 0) {
+                        anyWeightCounts[k]--;
+                    } else {
+                        outEdges.set(kept++, edge);
+                        continue;
+                    }
+                    if (kept == i) {
+                        firstOut[source] = Math.min(firstOut[source], i);
+                    }
+                    removedEdges.add(edge);
+                }
+                if (kept < outEdges.size()) {
+                    outEdges.subList(kept, outEdges.size()).clear();
+                    graph.outEdgesChanged(sourceNode);
+                }
+            }
+            // Requests of a same key are interchangeable: the first ones are reported unmatched
+            for (int k = start; k < end; k++) {
+                int r = 4 * order[k];
+                int[] counts;
+                int key;
+                if (removals[r + 3] != 0) {
+                    counts = weightedCounts;
+                    key = Arrays.binarySearch(weighted, 0, nbWeighted, weightedKey(removals[r + to], removals[r + 2]));
+                } else {
+                    counts = anyWeightCounts;
+                    key = Arrays.binarySearch(anyWeight, 0, nbAnyWeight, removals[r + to]);
+                }
+                if (counts[key] > 0) {
+                    counts[key]--;
+                    requests[nbUnmatched++] = order[k];
+                }
+            }
+        }
+        return nbUnmatched;
+    }
+
+    /**
+     * Removes edges from the in-edge lists of their targets, target by target.
+     *
+     * @param removedEdges The edges removed from the out-edge lists of their sources.
+     */
+    private void removeInEdges(List<Edge> removedEdges) {
+        int[] edgeSlots = new int[removedEdges.size()];
+        int[] starts = new int[nbIds + 1];
+        for (int i = 0; i < edgeSlots.length; i++) {
+            edgeSlots[i] = slot(removedEdges.get(i).getTo().getId());
+            starts[edgeSlots[i] + 1]++;
+        }
+        for (int slot = 0; slot < nbIds; slot++) {
+            starts[slot + 1] += starts[slot];
+        }
+        Edge[] byTarget = new Edge[edgeSlots.length];
+        int[] next = Arrays.copyOf(starts, nbIds);
+        for (int i = 0; i < edgeSlots.length; i++) {
+            byTarget[next[edgeSlots[i]]++] = removedEdges.get(i);
+        }
+        for (int target = 0; target < nbIds; target++) {
+            int start = starts[target];
+            int end = starts[target + 1];
+            if (start == end) {
+                continue;
+            }
+            // Few edges are looked up by a linear scan, many through an identity set
+            Set<Edge> group = null;
+            if (end - start > 8) {
+                group = Collections.newSetFromMap(new IdentityHashMap<>(2 * (end - start)));
+                group.addAll(Arrays.asList(byTarget).subList(start, end));
+            }
+            List<Edge> inEdges = inLists[target];
+            int kept = 0;
+            for (int i = 0; i < inEdges.size(); i++) {
+                Edge edge = inEdges.get(i);
+                boolean removed = false;
+                if (group != null) {
+                    removed = group.contains(edge);
+                } else {
+                    for (int k = start; k < end && !removed; k++) {
+                        removed = byTarget[k] == edge;
+                    }
+                }
+                if (!removed) {
+                    inEdges.set(kept++, edge);
+                } else if (kept == i) {
+                    firstIn[target] = Math.min(firstIn[target], i);
+                }
+            }
+            inEdges.subList(kept, inEdges.size()).clear();
+        }
+    }
+
+    private static long weightedKey(int targetId, int weight) {
+        return (long) targetId << 32 | (weight & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Sorts the first values of an array and merges the repeats, counting them.
+     *
+     * @return The number of distinct values.
+     */
+    private static int distinct(long[] values, int count, int[] counts) {
+        Arrays.sort(values, 0, count);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size > 0 && values[size - 1] == values[i]) {
+                counts[size - 1]++;
+            } else {
+                values[size] = values[i];
+                counts[size++] = 1;
+            }
+        }
+        return size;
+    }
+
+    private static int distinct(int[] values, int count, int[] counts) {
+        Arrays.sort(values, 0, count);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size > 0 && values[size - 1] == values[i]) {
+                counts[size - 1]++;
+            } else {
+                values[size] = values[i];
+                counts[size++] = 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Appends the insertions to the out-lists grouped by source, then to the in-lists grouped
+     * by target, each list being grown once. The targets and weights are first moved into
+     * arrays in source order, together with the position each edge takes among the insertions
+     * in target order, so that both passes read their arrays sequentially.
+     *
+     * @return The number of edges added.
+     */
+    private int addEdges(Connectivity connectivity) {
+        int[] starts = new int[nbIds + 1];
+        int[] inStarts = new int[nbIds + 1];
+        for (int i = 0; i < nbAdditions; i++) {
+            starts[slots[2 * i] + 1]++;
+            inStarts[slots[2 * i + 1] + 1]++;
+        }
+        for (int slot = 0; slot < nbIds; slot++) {
+            starts[slot + 1] += starts[slot];
+            inStarts[slot + 1] += inStarts[slot];
+        }
+        int[] targets = new int[nbAdditions];
+        int[] weights = new int[nbAdditions];
+        int[] inPositions = new int[nbAdditions];
+        int[] next = Arrays.copyOf(starts, nbIds);
+        int[] inNext = Arrays.copyOf(inStarts, nbIds);
+        for (int i = 0; i < nbAdditions; i++) {
+            int k = next[slots[2 * i]]++;
+            targets[k] = slots[2 * i + 1];
+            weights[k] = additions[3 * i + 2];
+            inPositions[k] = inNext[slots[2 * i + 1]]++;
+        }
+
+        Edge[] byTarget = new Edge[nbAdditions];
+        int added = 0;
+        for (int source = 0; source < nbIds; source++) {
+            int start = starts[source];
+            int end = starts[source + 1];
+            Node sourceNode = nodes[source];
+            if (start == end || sourceNode == null) {
+                continue;
+            }
+            List<Edge> outEdges = outLists[source];
+            int size = outEdges.size();
+            if (outEdges instanceof ArrayList) {
+                ((ArrayList<Edge>) outEdges).ensureCapacity(size + end - start);
+            }
+            for (int k = start; k < end; k++) {
+                Node target = nodes[targets[k]];
+                if (target != null) {
+                    Edge edge = new Edge(sourceNode, target, weights[k]);
+                    outEdges.add(edge);
+                    byTarget[inPositions[k]] = edge;
+                    added++;
+                }
+            }
+            if (outEdges.size() > size) {
+                firstOut[source] = Math.min(firstOut[source], size);
+                graph.outEdgesChanged(sourceNode);
+            }
+        }
+        for (int target = 0; target < nbIds; target++) {
+            int start = inStarts[target];
+            int end = inStarts[target + 1];
+            if (start == end || nodes[target] == null) {
+                continue;
+            }
+            List<Edge> inEdges = inLists[target];
+            int size = inEdges.size();
+            if (inEdges instanceof ArrayList) {
+                ((ArrayList<Edge>) inEdges).ensureCapacity(size + end - start);
+            }
+            for (int k = start; k < end; k++) {
+                if (byTarget[k] != null) {
+                    inEdges.add(byTarget[k]);
+                }
+            }
+            if (inEdges.size() > size) {
+                firstIn[target] = Math.min(firstIn[target], size);
+            }
+        }
+        if (connectivity != null) {
+            for (Edge edge : byTarget) {
+                if (edge != null) {
+                    connectivity.edgeAdded(edge.getFrom().getId(), edge.getTo().getId());
+                }
+            }
+        }
+        return added;
+    }
+}
@@ -0,0 +1,236 @@
+package m1graf2023;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes graphs in a compact, versioned binary format, little-endian:
+ * <pre>
+ *   int magic 'GRAF', int version, int flags, int nbNodes, long nbEdges
+ *   int ids[nbNodes]              node ids in increasing order
+ *   int offsets[nbNodes + 1]      CSR row offsets
+ *   int targets[nbEdges]          target node indices, sorted within each row
+ *   int weights[nbEdges]          only if FLAG_WEIGHTS
+ *   names                         only if FLAG_NAMES: per node, int byte length (-1 for none) and UTF-8 bytes
+ * </pre>
+ * The arrays are loaded by mapping the file with {@link FileChannel#map}, so loading costs
+ * about as much as paging the file in.
+ */
+class GrafBinaryFormat {
+    static final int MAGIC = 'G' << 24 | 'R' << 16 | 'A' << 8 | 'F';
+    static final int VERSION = 1;
+    static final int FLAG_WEIGHTS = 1;
+    static final int FLAG_NAMES = 2;
+    static final int FLAG_UNDIRECTED = 4;
+
+    private static final int HEADER_SIZE = 24;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_MAPPED_INTS = 1 << 28;
+
+    /**
+     * The contents of a binary graph file.
+     */
+    static class Contents {
+        final CsrGraf csr;
+        final boolean directed;
+
+        Contents(CsrGraf csr, boolean directed) {
+            this.csr = csr;
+            this.directed = directed;
+        }
+    }
+
+    /**
+     * Writes a graph given in CSR form.
+     *
+     * @param csr      The graph.
+     * @param directed false to mark the edges as undirected.
+     * @param path     The file to create or overwrite.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(CsrGraf csr, boolean directed, Path path) throws IOException {
+        int n = csr.nbNodes();
+        boolean weighted = false;
+        for (int weight : csr.weights) {
+            if (weight != 0) {
+                weighted = true;
+                break;
+            }
+        }
+        boolean named = false;
+        for (Node node : csr.nodes) {
+            if (node.getName() != null) {
+                named = true;
+                break;
+            }
+        }
+        int flags = (weighted ? FLAG_WEIGHTS : 0) | (named ? FLAG_NAMES : 0) | (directed ? 0 : FLAG_UNDIRECTED);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(n).putLong(csr.nbEdges());
+            writeInts(channel, buffer, csr.ids);
+            writeInts(channel, buffer, csr.offsets);
+            writeInts(channel, buffer, csr.targets);
+            if (weighted) {
+                writeInts(channel, buffer, csr.weights);
+            }
+            if (named) {
+                for (Node node : csr.nodes) {
+                    byte[] name = node.getName() == null ? null : node.getName().getBytes(StandardCharsets.UTF_8);
+                    if (buffer.remaining() < 4) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putInt(name == null ? -1 : name.length);
+                    for (int done = 0; name != null && done < name.length; ) {
+                        if (!buffer.hasRemaining()) {
+                            drain(channel, buffer);
+                        }
+                        int chunk = Math.min(buffer.remaining(), name.length - done);
+                        buffer.put(name, done, chunk);
+                        done += chunk;
+                    }
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for (int done = 0; done < values.length; ) {
+            if (buffer.remaining() < 4) {
+                drain(channel, buffer);
+            }
+            int chunk = Math.min(buffer.remaining() / 4, values.length - done);
+            buffer.asIntBuffer().put(values, done, chunk);
+            buffer.position(buffer.position() + chunk * 4);
+            done += chunk;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads a graph file into CSR form.
+     *
+     * @param path The file to read.
+     * @return The graph and its directedness.
+     * @throws IOException If the file cannot be read or is not a valid graph file.
+     */
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(path + ": not a graph file");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + ": not a graph file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(path + ": unsupported graph file version " + version);
+            }
+            int flags = header.getInt();
+            int n = header.getInt();
+            long m = header.getLong();
+            boolean weighted = (flags & FLAG_WEIGHTS) != 0;
+            long arraysEnd = HEADER_SIZE + 4L * (n + 1L + n + m * (weighted ? 2 : 1));
+            if (n < 0 || m < 0 || m > Integer.MAX_VALUE || arraysEnd > size) {
+                throw new IOException(path + ": truncated or corrupted graph file");
+            }
+
+            long position = HEADER_SIZE;
+            int[] ids = readInts(channel, position, n);
+            position += 4L * n;
+            int[] offsets = readInts(channel, position, n + 1);
+            position += 4L * (n + 1);
+            int[] targets = readInts(channel, position, (int) m);
+            position += 4L * m;
+            int[] weights;
+            if (weighted) {
+                weights = readInts(channel, position, (int) m);
+                position += 4L * m;
+            } else {
+                weights = new int[(int) m];
+            }
+            validate(path, ids, offsets, targets);
+
+            Node[] nodes = new Node[n];
+            if ((flags & FLAG_NAMES) != 0) {
+                channel.position(position);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+                for (int i = 0; i < n; i++) {
+                    int length = Integer.reverseBytes(in.readInt());
+                    String name = null;
+                    if (length >= 0) {
+                        byte[] bytes = new byte[length];
+                        in.readFully(bytes);
+                        name = new String(bytes, StandardCharsets.UTF_8);
+                    }
+                    nodes[i] = new Node(ids[i], name);
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    nodes[i] = new Node(ids[i]);
+                }
+            }
+            return new Contents(new CsrGraf(nodes, offsets, targets, weights), (flags & FLAG_UNDIRECTED) == 0);
+        }
+    }
+
+    private static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+        int[] values = new int[count];
+        for (int done = 0; done < count; ) {
+            int chunk = Math.min(count - done, MAX_MAPPED_INTS);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * done, 4L * chunk);
+            map.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, done, chunk);
+            done += chunk;
+        }
+        return values;
+    }
+
+    private static void validate(Path path, int[] ids, int[] offsets, int[] targets) throws IOException {
+        int n = ids.length;
+        for (int i = 1; i < n; i++) {
+            if (ids[i - 1] >= ids[i]) {
+                throw new IOException(path + ": node ids are not strictly increasing");
+            }
+        }
+        if (offsets[0] != 0 || offsets[n] != targets.length) {
+            throw new IOException(path + ": inconsistent offsets");
+        }
+        for (int i = 0; i < n; i++) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new IOException(path + ": inconsistent offsets");
+            }
+        }
+        for (int target : targets) {
+            if (target < 0 || target >= n) {
+                throw new IOException(path + ": edge target out of range");
+            }
+        }
+        // Lookups binary search the rows, which must therefore be sorted
+        for (int i = 0; i < n; i++) {
+            for (int e = offsets[i] + 1; e < offsets[i + 1]; e++) {
+                if (targets[e - 1] > targets[e]) {
+                    throw new IOException(path + ": edge targets of node " + ids[i] + " are not sorted");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package m1graf2023;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable point-in-time view of a {@link Graf}, returned by {@link Graf#snapshot()}. It can be
+ * read from any number of threads while the graph keeps changing.
+ *
+ * <p>The view maps every node ID to an immutable copy of the out-edges and in-edges of the node,
+ * in a {@link PersistentIntMap}. Each copy is cut in chunks of {@link Edges#CHUNK} edges. The
+ * next snapshot of the graph only copies the nodes whose lists changed in between, from the
+ * first chunk changed on, and shares the rest of the map and the chunks before with this one.
+ * Snapshots of an UndirectedGraf answer like the graph did, each edge being seen from both of
+ * its ends.
+ */
+public class GrafSnapshot implements graf_interface {
+    private final PersistentIntMap<Adjacency> nodes;
+    private final int nbEdges;
+    private final long version;
+    private final boolean directed;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param nodes    The adjacency of every node, by ID.
+     * @param nbEdges  The number of edges.
+     * @param version  The number of the snapshot among those of its graph.
+     * @param directed false for the snapshot of an UndirectedGraf.
+     */
+    GrafSnapshot(PersistentIntMap<Adjacency> nodes, int nbEdges, long version, boolean directed) {
+        this.nodes = nodes;
+        this.nbEdges = nbEdges;
+        this.version = version;
+        this.directed = directed;
+    }
+
+    /**
+     * A node with copies of its out-edges and in-edges.
+     */
+    static final class Adjacency {
+        final Node node;
+        final Edges out;
+        final Edges in;
+
+        Adjacency(Node node, List<Edge> out, List<Edge> in) {
+            this(node, out, in, null, 0, 0);
+        }
+
+        /**
+         * Copies the lists of a node, sharing the chunks before the first changes with the
+         * previous copy of the node.
+         *
+         * @param previous The previous copy of the node, or null to copy the lists whole.
+         * @param firstOut The first position changed in the out-edges since the previous copy.
+         * @param firstIn  The first position changed in the in-edges since the previous copy.
+         */
+        Adjacency(Node node, List<Edge> out, List<Edge> in, Adjacency previous, int firstOut, int firstIn) {
+            this.node = node;
+            this.out = new Edges(out, previous != null ? previous.out : null, firstOut);
+            this.in = new Edges(in, previous != null ? previous.in : null, firstIn);
+        }
+    }
+
+    /**
+     * Immutable list of edges in chunks of CHUNK edges, all full but the last one.
+     */
+    static final class Edges {
+        static final int CHUNK_SHIFT = 6;
+        static final int CHUNK = 1 << CHUNK_SHIFT;
+        static final Edges EMPTY = new Edges();
+
+        final Edge[][] chunks;
+        final int size;
+
+        /**
+         * Copies a list, sharing the chunks of a previous copy holding no position from
+         * firstChanged on.
+         *
+         * @param edges        The list.
+         * @param previous     The previous copy of the list, or null.
+         * @param firstChanged The first position of the list changed since the previous copy.
+         */
+        Edges(List<Edge> edges, Edges previous, int firstChanged) {
+            size = edges.size();
+            chunks = new Edge[(size + CHUNK - 1) >>> CHUNK_SHIFT][];
+            int shared = 0;
+            if (previous != null) {
+                shared = Math.min(Math.min(firstChanged, previous.size), size) >>> CHUNK_SHIFT;
+                System.arraycopy(previous.chunks, 0, chunks, 0, shared);
+            }
+            for (int c = shared; c < chunks.length; c++) {
+                int from = c << CHUNK_SHIFT;
+                Edge[] chunk = new Edge[Math.min(CHUNK, size - from)];
+                for (int i = 0; i < chunk.length; i++) {
+                    chunk[i] = edges.get(from + i);
+                }
+                chunks[c] = chunk;
+            }
+        }
+
+        private Edges() {
+            chunks = new Edge[0][];
+            size = 0;
+        }
+
+        /**
+         * Appends the edges to a list, each reversed if asked.
+         */
+        void addTo(List<Edge> list, boolean reversed) {
+            for (Edge[] chunk : chunks) {
+                for (Edge edge : chunk) {
+                    list.add(reversed ? edge.getSymmetric() : edge);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the map the next snapshot of the graph is edited from.
+     */
+    PersistentIntMap<Adjacency> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of the snapshot. The snapshots of a graph are numbered from 1 in the
+     * order they were taken, and a graph left unchanged returns its last snapshot again.
+     *
+     * @return The version of the graph this snapshot shows.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Tells if the edges of the graph are directed.
+     *
+     * @return false for the snapshot of an UndirectedGraf.
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public int nbNodes() {
+        return nodes.size();
+    }
+
+    @Override
+    public int nbEdges() {
+        return nbEdges;
+    }
+
+    /**
+     * Checks if a node with a specific ID was in the graph.
+     *
+     * @param nodeId The ID of the node to check.
+     * @return true if the node exists, false otherwise.
+     */
+    public boolean existsNode(int nodeId) {
+        return nodes.get(nodeId) != null;
+    }
+
+    /**
+     * Gets a node by its ID.
+     *
+     * @param id The ID of the node to retrieve.
+     * @return The node with the specified ID, or null if not found.
+     */
+    public Node getNode(int id) {
+        Adjacency adjacency = nodes.get(id);
+        return adjacency != null ? adjacency.node : null;
+    }
+
+    @Override
+    public List<Node> getAllNodes() {
+        List<Node> all = new ArrayList<>(nodes.size());
+        nodes.forEachValue(adjacency -> all.add(adjacency.node));
+        return all;
+    }
+
+    @Override
+    public boolean existsEdge(Node u, Node v) {
+        return u != null && v != null && existsEdge(u.getId(), v.getId());
+    }
+
+    @Override
+    public boolean existsEdge(int uId, int vId) {
+        return storedEdgeExists(uId, vId) || (!directed && storedEdgeExists(vId, uId));
+    }
+
+    private boolean storedEdgeExists(int uId, int vId) {
+        Adjacency adjacency = nodes.get(uId);
+        if (adjacency != null) {
+            for (Edge[] chunk : adjacency.out.chunks) {
+                for (Edge edge : chunk) {
+                    if (edge.getTo().getId() == vId) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void addEdge(Node from, Node to) {
+        throw new UnsupportedOperationException("GrafSnapshot is immutable");
+    }
+
+    @Override
+    public void addEdge(int fromId, int toId) {
+        throw new UnsupportedOperationException("GrafSnapshot is immutable");
+    }
+
+    @Override
+    public void addEdge(Node from, Node to, int weight) {
+        throw new UnsupportedOperationException("GrafSnapshot is immutable");
+    }
+
+    @Override
+    public void addEdge(int fromId, int toId, int weight) {
+        throw new UnsupportedOperationException("GrafSnapshot is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(Node from, Node to) {
+        throw new UnsupportedOperationException("GrafSnapshot is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(int fromId, int toId) {
+        throw new UnsupportedOperationException("GrafSnapshot is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(Node from, Node to, int weight) {
+        throw new UnsupportedOperationException("GrafSnapshot is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(int fromId, int toId, int weight) {
+        throw new UnsupportedOperationException("GrafSnapshot is immutable");
+    }
+
+    /**
+     * Lists the stored edges of a node, then the reversed views of its other stored edges.
+     */
+    private static List<Edge> edges(Edges stored, Edges reversed) {
+        List<Edge> edges = new ArrayList<>(stored.size + reversed.size);
+        stored.addTo(edges, false);
+        reversed.addTo(edges, true);
+        return edges;
+    }
+
+    @Override
+    public List<Edge> getOutEdges(Node n) {
+        return n != null ? getOutEdges(n.getId()) : new ArrayList<>();
+    }
+
+    /**
+     * Gets the out-edges of a node, or for an undirected graph its incident edges oriented from
+     * it, as UndirectedGraf does.
+     *
+     * @param nodeId The ID of the node.
+     * @return A new list of the edges.
+     */
+    @Override
+    public List<Edge> getOutEdges(int nodeId) {
+        Adjacency adjacency = nodes.get(nodeId);
+        if (adjacency == null) {
+            return new ArrayList<>();
+        }
+        return edges(adjacency.out, directed ? Edges.EMPTY : adjacency.in);
+    }
+
+    @Override
+    public List<Edge> getInEdges(Node n) {
+        return n != null ? getInEdges(n.getId()) : new ArrayList<>();
+    }
+
+    /**
+     * Gets the in-edges of a node, or for an undirected graph its incident edges oriented
+     * towards it, as UndirectedGraf does.
+     *
+     * @param nodeId The ID of the node.
+     * @return A new list of the edges.
+     */
+    @Override
+    public List<Edge> getInEdges(int nodeId) {
+        Adjacency adjacency = nodes.get(nodeId);
+        if (adjacency == null) {
+            return new ArrayList<>();
+        }
+        return edges(adjacency.in, directed ? Edges.EMPTY : adjacency.out);
+    }
+
+    @Override
+    public List<Edge> getIncidentEdges(Node n) {
+        return n != null ? getIncidentEdges(n.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getIncidentEdges(int nodeId) {
+        if (!directed) {
+            return getOutEdges(nodeId);
+        }
+        List<Edge> edges = getOutEdges(nodeId);
+        edges.addAll(getInEdges(nodeId));
+        return edges;
+    }
+
+    @Override
+    public List<Edge> getEdges(Node u, Node v) {
+        return u != null && v != null ? getEdges(u.getId(), v.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getEdges(int uId, int vId) {
+        List<Edge> edges = new ArrayList<>();
+        Adjacency adjacency = nodes.get(uId);
+        if (adjacency != null) {
+            for (Edge[] chunk : adjacency.out.chunks) {
+                for (Edge edge : chunk) {
+                    if (edge.getTo().getId() == vId) {
+                        edges.add(edge);
+                    }
+                }
+            }
+        }
+        Adjacency other = nodes.get(vId);
+        if (!directed && other != null && uId != vId) {
+            for (Edge[] chunk : other.out.chunks) {
+                for (Edge edge : chunk) {
+                    if (edge.getTo().getId() == uId) {
+                        edges.add(edge.getSymmetric());
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+
+    @Override
+    public List<Edge> getAllEdges() {
+        List<Edge> all = new ArrayList<>(nbEdges);
+        nodes.forEachValue(adjacency -> adjacency.out.addTo(all, false));
+        return all;
+    }
+
+    @Override
+    public int inDegree(Node n) {
+        return n != null ? inDegree(n.getId()) : 0;
+    }
+
+    @Override
+    public int inDegree(int nodeId) {
+        Adjacency adjacency = nodes.get(nodeId);
+        if (adjacency == null) {
+            return 0;
+        }
+        return adjacency.in.size + (directed ? 0 : adjacency.out.size);
+    }
+
+    @Override
+    public int outDegree(Node n) {
+        return n != null ? outDegree(n.getId()) : 0;
+    }
+
+    @Override
+    public int outDegree(int nodeId) {
+        Adjacency adjacency = nodes.get(nodeId);
+        if (adjacency == null) {
+            return 0;
+        }
+        return adjacency.out.size + (directed ? 0 : adjacency.in.size);
+    }
+
+    @Override
+    public int degree(Node n) {
+        return n != null ? degree(n.getId()) : 0;
+    }
+
+    /**
+     * Returns the in-degree plus out-degree of a node, or for an undirected graph the number of
+     * its incident edges, as UndirectedGraf does.
+     *
+     * @param nodeId The ID of the node.
+     * @return The degree, 0 if no such node exists.
+     */
+    @Override
+    public int degree(int nodeId) {
+        Adjacency adjacency = nodes.get(nodeId);
+        return adjacency != null ? adjacency.out.size + adjacency.in.size : 0;
+    }
+
+    @Override
+    public void forEachSuccessor(int nodeId, IntConsumer action) {
+        Adjacency adjacency = nodes.get(nodeId);
+        if (adjacency != null) {
+            for (Edge[] chunk : adjacency.out.chunks) {
+                for (Edge edge : chunk) {
+                    action.accept(edge.getTo().getId());
+                }
+            }
+            if (!directed) {
+                acceptSources(adjacency, action);
+            }
+        }
+    }
+
+    @Override
+    public void forEachPredecessor(int nodeId, IntConsumer action) {
+        if (!directed) {
+            forEachSuccessor(nodeId, action);
+            return;
+        }
+        Adjacency adjacency = nodes.get(nodeId);
+        if (adjacency != null) {
+            acceptSources(adjacency, action);
+        }
+    }
+
+    @Override
+    public void forEachOutEdge(int nodeId, EdgeVisitor visitor) {
+        Adjacency adjacency = nodes.get(nodeId);
+        if (adjacency != null) {
+            for (Edge[] chunk : adjacency.out.chunks) {
+                for (Edge edge : chunk) {
+                    visitor.visit(edge.getTo().getId(), edge.getWeight());
+                }
+            }
+            if (!directed) {
+                visitIn(adjacency, visitor);
+            }
+        }
+    }
+
+    @Override
+    public void forEachInEdge(int nodeId, EdgeVisitor visitor) {
+        if (!directed) {
+            forEachOutEdge(nodeId, visitor);
+            return;
+        }
+        Adjacency adjacency = nodes.get(nodeId);
+        if (adjacency != null) {
+            visitIn(adjacency, visitor);
+        }
+    }
+
+    private static void visitIn(Adjacency adjacency, EdgeVisitor visitor) {
+        for (Edge[] chunk : adjacency.in.chunks) {
+            for (Edge edge : chunk) {
+                visitor.visit(edge.getFrom().getId(), edge.getWeight());
+            }
+        }
+    }
+
+    private static void acceptSources(Adjacency adjacency, IntConsumer action) {
+        for (Edge[] chunk : adjacency.in.chunks) {
+            for (Edge edge : chunk) {
+                action.accept(edge.getFrom().getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package m1graf2023;
+
+import java.util.Arrays;
+
+/**
+ * Counters of a {@link Graf} kept up to date by its mutations, so that reading them costs O(1):
+ * the number of edges, the smallest and largest node IDs, and the histogram of the node
+ * degrees (in-degree plus out-degree, a self-loop counting twice).
+ *
+ * <p>The ID bounds are updated as nodes are added. Removing the node holding a bound only marks
+ * the bounds stale, and they are found again by a scan of the node table on the next read.
+ */
+public class GrafStats {
+    private final IntMap<Node> nodes;
+    private int nbEdges;
+    private int[] histogram = new int[16];
+    private int maxDegree;
+    private int smallestId = Integer.MAX_VALUE;
+    private int largestId = Integer.MIN_VALUE;
+    private boolean staleBounds;
+
+    /**
+     * Constructs the counters of a graph without edges.
+     *
+     * @param nodes The node table of the graph, scanned when the ID bounds are stale.
+     */
+    GrafStats(IntMap<Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Records a node added with the given degree.
+     *
+     * @param nodeId The ID of the node.
+     * @param degree The degree of the node.
+     */
+    void nodeAdded(int nodeId, int degree) {
+        count(degree, 1);
+        if (!staleBounds) {
+            smallestId = Math.min(smallestId, nodeId);
+            largestId = Math.max(largestId, nodeId);
+        }
+    }
+
+    /**
+     * Records a node removed, its incident edges being reported separately.
+     *
+     * @param nodeId The ID of the node.
+     * @param degree The degree of the node when it was removed.
+     */
+    void nodeRemoved(int nodeId, int degree) {
+        count(degree, -1);
+        if (nodeId == smallestId || nodeId == largestId) {
+            staleBounds = true;
+        }
+    }
+
+    /**
+     * Records edges added or removed.
+     *
+     * @param change The number of edges added, negative for removed edges.
+     */
+    void edgesChanged(int change) {
+        nbEdges += change;
+    }
+
+    /**
+     * Moves a node from a degree to another in the histogram.
+     *
+     * @param oldDegree The previous degree of the node.
+     * @param newDegree The new degree of the node.
+     */
+    void degreeChanged(int oldDegree, int newDegree) {
+        // Count the new degree first, so that the node of maximum degree moving by one does
+        // not send the scan for the next maximum down the whole histogram
+        count(newDegree, 1);
+        count(oldDegree, -1);
+    }
+
+    private void count(int degree, int change) {
+        if (degree >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, Math.max(degree + 1, histogram.length * 2));
+        }
+        histogram[degree] += change;
+        if (change > 0 && degree > maxDegree) {
+            maxDegree = degree;
+        }
+        while (maxDegree > 0 && histogram[maxDegree] == 0) {
+            maxDegree--;
+        }
+    }
+
+    private void refreshBounds() {
+        if (!staleBounds) {
+            return;
+        }
+        smallestId = Integer.MAX_VALUE;
+        largestId = Integer.MIN_VALUE;
+        for (int slot = 0; slot < nodes.capacity(); slot++) {
+            if (nodes.valueAt(slot) != null) {
+                smallestId = Math.min(smallestId, nodes.keyAt(slot));
+                largestId = Math.max(largestId, nodes.keyAt(slot));
+            }
+        }
+        staleBounds = false;
+    }
+
+    /**
+     * Returns the number of nodes in the graph.
+     *
+     * @return The number of nodes in the graph.
+     */
+    public int nbNodes() {
+        return nodes.size();
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     *
+     * @return The number of edges in the graph.
+     */
+    public int nbEdges() {
+        return nbEdges;
+    }
+
+    /**
+     * Returns the smallest node ID.
+     *
+     * @return The smallest ID, or Integer.MAX_VALUE if the graph has no node.
+     */
+    public int smallestNodeId() {
+        refreshBounds();
+        return smallestId;
+    }
+
+    /**
+     * Returns the largest node ID.
+     *
+     * @return The largest ID, or Integer.MIN_VALUE if the graph has no node.
+     */
+    public int largestNodeId() {
+        refreshBounds();
+        return largestId;
+    }
+
+    /**
+     * Returns the largest degree of a node.
+     *
+     * @return The maximum degree, 0 if the graph has no edge.
+     */
+    public int maxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Returns the mean degree of the nodes.
+     *
+     * @return Twice the number of edges over the number of nodes, 0 if the graph has no node.
+     */
+    public double averageDegree() {
+        return nodes.size() == 0 ? 0 : 2.0 * nbEdges / nodes.size();
+    }
+
+    /**
+     * Returns the number of nodes of a given degree.
+     *
+     * @param degree The degree.
+     * @return The number of nodes whose in-degree plus out-degree is degree.
+     */
+    public int nbNodesOfDegree(int degree) {
+        return degree >= 0 && degree < histogram.length ? histogram[degree] : 0;
+    }
+
+    /**
+     * Returns the degree histogram.
+     *
+     * @return A copy of the histogram, whose entry d is the number of nodes of degree d, for d up
+     * to the maximum degree.
+     */
+    public int[] degreeHistogram() {
+        return Arrays.copyOf(histogram, maxDegree + 1);
+    }
+}
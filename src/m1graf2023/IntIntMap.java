@@ -0,0 +1,110 @@
+package m1graf2023;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive int keys to non-negative int values, such as dense
+ * indexes. Neither keys nor values are boxed; an empty slot holds the value -1.
+ */
+class IntIntMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    /**
+     * Constructs an empty map able to hold the given number of entries without resizing.
+     *
+     * @param expectedSize The expected number of entries.
+     */
+    IntIntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, -1);
+        mask = capacity - 1;
+        resizeAt = capacity * 3 / 4;
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return The number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the value mapped to a key.
+     *
+     * @param key The key to look up.
+     * @return The mapped value, or -1 if the key is absent.
+     */
+    int get(int key) {
+        int i = slot(key, mask);
+        while (values[i] >= 0) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous mapping.
+     *
+     * @param key   The key.
+     * @param value The value, which must not be negative.
+     * @return The previous value, or -1 if the key was absent.
+     */
+    int put(int key, int value) {
+        int i = slot(key, mask);
+        while (values[i] >= 0) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] >= 0) {
+                int j = slot(oldKeys[i], mask);
+                while (values[j] >= 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package m1graf2023;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive int keys to non-null values.
+ * Keys are never boxed, and removal uses backward shifting so no tombstones accumulate.
+ *
+ * @param <V> The type of the mapped values.
+ */
+class IntMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    /**
+     * Constructs an empty map.
+     */
+    IntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map able to hold the given number of entries without resizing.
+     *
+     * @param expectedSize The expected number of entries.
+     */
+    IntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity * 3 / 4;
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int find(int key) {
+        int i = slot(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return The number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the map contains a key.
+     *
+     * @param key The key to look up.
+     * @return true if the key is mapped, false otherwise.
+     */
+    boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Gets the value mapped to a key.
+     *
+     * @param key The key to look up.
+     * @return The mapped value, or null if the key is absent.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int i = find(key);
+        return i >= 0 ? (V) values[i] : null;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous mapping.
+     *
+     * @param key   The key.
+     * @param value The value, which must not be null.
+     * @return The previous value, or null if the key was absent.
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        int i = slot(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping of a key.
+     *
+     * @param key The key to remove.
+     * @return The removed value, or null if the key was absent.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int i = find(key);
+        if (i < 0) {
+            return null;
+        }
+        V removed = (V) values[i];
+        // Shift the following entries of the probe run back so lookups never stop early.
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (values[j] != null) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes all entries, keeping the current capacity.
+     */
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of slots of the table, for allocation-free iteration with
+     * {@link #keyAt(int)} and {@link #valueAt(int)}.
+     *
+     * @return The table capacity.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Gets the key stored in a slot. Only meaningful if {@link #valueAt(int)} is not null.
+     *
+     * @param slot The slot index.
+     * @return The key in the slot.
+     */
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Gets the value stored in a slot.
+     *
+     * @param slot The slot index.
+     * @return The value in the slot, or null if the slot is empty.
+     */
+    @SuppressWarnings("unchecked")
+    V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i], mask);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package m1graf2023;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of the ints 0..capacity-1 ordered by long keys, backing the
+ * shortest-path searches. Each item knows its position in the heap, so the key of a queued item
+ * can be decreased in O(log n), and nothing is allocated after construction.
+ */
+class IntMinHeap {
+    private final int[] heap;
+    private final long[] keys;
+    private final int[] positions;
+    private int size;
+
+    /**
+     * Constructs an empty heap.
+     *
+     * @param capacity The number of distinct items, which are 0..capacity-1.
+     */
+    IntMinHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new long[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Checks if the heap is empty.
+     *
+     * @return true if no item is queued.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the smallest key.
+     *
+     * @return The key of the item on top of the heap, which must not be empty.
+     */
+    long minKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Queues an item, or lowers its key if it is already queued with a larger one.
+     *
+     * @param item The item.
+     * @param key  The key of the item.
+     */
+    void insertOrDecrease(int item, long key) {
+        int pos = positions[item];
+        if (pos < 0) {
+            pos = size++;
+        } else if (keys[item] <= key) {
+            return;
+        }
+        keys[item] = key;
+        siftUp(pos, item);
+    }
+
+    /**
+     * Removes the item with the smallest key.
+     *
+     * @return The item, the heap must not be empty.
+     */
+    int pollMin() {
+        int min = heap[0];
+        positions[min] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            siftDown(0, last);
+        }
+        return min;
+    }
+
+    /**
+     * Removes all the items, in O(size).
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int pos, int item) {
+        long key = keys[item];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            int parentItem = heap[parent];
+            if (keys[parentItem] <= key) {
+                break;
+            }
+            heap[pos] = parentItem;
+            positions[parentItem] = pos;
+            pos = parent;
+        }
+        heap[pos] = item;
+        positions[item] = pos;
+    }
+
+    private void siftDown(int pos, int item) {
+        long key = keys[item];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childItem = heap[child];
+            if (key <= keys[childItem]) {
+                break;
+            }
+            heap[pos] = childItem;
+            positions[childItem] = pos;
+            pos = child;
+        }
+        heap[pos] = item;
+        positions[item] = pos;
+    }
+}
@@ -70,8 +70,14 @@ public class Node implements Comparable<Node> {
         return String.valueOf(id);
     }
 
+    /**
+     * Returns the hash code of the node, computed from its ID only as equals() is.
+     * The value is the one Objects.hash(id) gives, without boxing the ID.
+     *
+     * @return The hash code of the node.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return 31 + id;
     }
 }
\ No newline at end of file
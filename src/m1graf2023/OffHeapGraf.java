@@ -0,0 +1,750 @@
+package m1graf2023;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Represents a directed graph stored outside the Java heap, for graphs whose Node and Edge
+ * objects would not fit in it. Nodes and edges are fixed-size int records in pages mapped from
+ * temporary files (see {@link OffHeapInts}), so -XX:MaxDirectMemorySize does not bound them:
+ * <ul>
+ *     <li>a node record holds the ID, the heads and tails of the out-edge and in-edge lists of
+ *     the node, and its out-degree and in-degree;</li>
+ *     <li>an edge record holds the IDs of its ends, its weight, and the next edge in the
+ *     out-edge list of its source and in the in-edge list of its target.</li>
+ * </ul>
+ * IDs are mapped to node records by an open-addressing hash table, off heap as well. Removed
+ * records are chained in free lists and reused by the next insertions. The heap only holds one
+ * buffer object per page, whatever the size of the graph. {@link #close()} deletes the files
+ * instead of waiting for the graph to be garbage collected.
+ *
+ * <p>Node and Edge objects are views created by the methods returning them, and changing the
+ * graph does not affect the views already returned. Lists are kept in insertion order, as in
+ * {@link Graf}. The graph is not thread-safe, and the forEach methods must not modify it.
+ */
+public class OffHeapGraf implements graf_interface, AutoCloseable {
+    private static final int NIL = -1;
+    // Next field of the edges already unlinked by removeNode from the list of a neighbour
+    private static final int UNLINKED = -2;
+    private static final int PAGE_SHIFT = 20;
+
+    // Node record fields
+    private static final int NODE_INTS = 7;
+    private static final int ID = 0;
+    private static final int OUT_HEAD = 1;
+    private static final int OUT_TAIL = 2;
+    private static final int IN_HEAD = 3;
+    private static final int IN_TAIL = 4;
+    private static final int OUT_DEGREE = 5;
+    private static final int IN_DEGREE = 6;
+
+    // Edge record fields
+    private static final int EDGE_INTS = 5;
+    private static final int FROM = 0;
+    private static final int TO = 1;
+    private static final int WEIGHT = 2;
+    private static final int NEXT_OUT = 3;
+    private static final int NEXT_IN = 4;
+
+    private final OffHeapInts nodes = new OffHeapInts(PAGE_SHIFT);
+    private final OffHeapInts edges = new OffHeapInts(PAGE_SHIFT);
+    private int nodeRecords;
+    private int edgeRecords;
+    // Free records are chained through their OUT_HEAD or NEXT_OUT field
+    private int freeNode = NIL;
+    private int freeEdge = NIL;
+    private int nbNodes;
+    private int nbEdges;
+
+    // Hash table of (ID, node record + 1) pairs, 0 marking an empty slot, allocated with the
+    // first node
+    private OffHeapInts table;
+    private int mask = -1;
+    private int resizeAt;
+
+    /**
+     * Constructs an empty graph. Its files are created as nodes and edges are added.
+     */
+    public OffHeapGraf() {
+    }
+
+    private void allocateTable(int capacity) {
+        table = new OffHeapInts(Math.min(PAGE_SHIFT, Integer.numberOfTrailingZeros(2 * capacity)));
+        table.ensureCapacity(2L * capacity);
+        mask = capacity - 1;
+        resizeAt = capacity * 3 / 4;
+    }
+
+    private static int home(int id, int mask) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Finds the node record of an ID.
+     *
+     * @return The record, or NIL if no such node exists.
+     */
+    private int record(int id) {
+        if (table == null) {
+            return NIL;
+        }
+        for (int i = home(id, mask); ; i = (i + 1) & mask) {
+            int value = table.get(2L * i + 1);
+            if (value == 0) {
+                return NIL;
+            }
+            if (table.get(2L * i) == id) {
+                return value - 1;
+            }
+        }
+    }
+
+    private void putRecord(int id, int record) {
+        int i = home(id, mask);
+        while (table.get(2L * i + 1) != 0) {
+            i = (i + 1) & mask;
+        }
+        table.set(2L * i, id);
+        table.set(2L * i + 1, record + 1);
+    }
+
+    private void removeRecord(int id) {
+        int i = home(id, mask);
+        while (table.get(2L * i) != id || table.get(2L * i + 1) == 0) {
+            i = (i + 1) & mask;
+        }
+        // Shift the following entries of the probe run back so lookups never stop early.
+        int gap = i;
+        for (int j = (i + 1) & mask; table.get(2L * j + 1) != 0; j = (j + 1) & mask) {
+            int key = table.get(2L * j);
+            if (((j - home(key, mask)) & mask) >= ((j - gap) & mask)) {
+                table.set(2L * gap, key);
+                table.set(2L * gap + 1, table.get(2L * j + 1));
+                gap = j;
+            }
+        }
+        table.set(2L * gap + 1, 0);
+    }
+
+    private void rehash(int capacity) {
+        OffHeapInts old = table;
+        int oldCapacity = mask + 1;
+        allocateTable(capacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            int value = old.get(2L * i + 1);
+            if (value != 0) {
+                putRecord(old.get(2L * i), value - 1);
+            }
+        }
+        old.close();
+    }
+
+    private int node(int record, int field) {
+        return nodes.get((long) record * NODE_INTS + field);
+    }
+
+    private void setNode(int record, int field, int value) {
+        nodes.set((long) record * NODE_INTS + field, value);
+    }
+
+    private int edge(int record, int field) {
+        return edges.get((long) record * EDGE_INTS + field);
+    }
+
+    private void setEdge(int record, int field, int value) {
+        edges.set((long) record * EDGE_INTS + field, value);
+    }
+
+    /**
+     * Returns the number of nodes in the graph.
+     *
+     * @return The number of nodes in the graph.
+     */
+    @Override
+    public int nbNodes() {
+        return nbNodes;
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     *
+     * @return The number of edges in the graph.
+     */
+    @Override
+    public int nbEdges() {
+        return nbEdges;
+    }
+
+    /**
+     * Checks if a node with a specific ID exists in the graph.
+     *
+     * @param nodeId The ID of the node to check.
+     * @return true if the node exists, false otherwise.
+     */
+    public boolean existsNode(int nodeId) {
+        return record(nodeId) != NIL;
+    }
+
+    /**
+     * Gets a view of a node by its ID.
+     *
+     * @param id The ID of the node to retrieve.
+     * @return A new Node with the specified ID, or null if no such node exists.
+     */
+    public Node getNode(int id) {
+        return existsNode(id) ? new Node(id) : null;
+    }
+
+    /**
+     * Adds a node with a specific ID to the graph.
+     *
+     * @param nodeId The ID of the node to add.
+     * @return true if the node is successfully added, false if a node with the same ID already exists.
+     */
+    public boolean addNode(int nodeId) {
+        return existsNode(nodeId) ? false : addRecord(nodeId) != NIL;
+    }
+
+    /**
+     * Adds a node to the graph. Only its ID is stored.
+     *
+     * @param n The node to add.
+     * @return true if the node is successfully added, false if it already exists in the graph.
+     */
+    public boolean addNode(Node n) {
+        return addNode(n.getId());
+    }
+
+    /**
+     * Stores a new node without edges, reusing a free record if there is one.
+     *
+     * @return The record of the node.
+     */
+    private int addRecord(int id) {
+        int record = freeNode;
+        if (record != NIL) {
+            freeNode = node(record, OUT_HEAD);
+        } else {
+            record = nodeRecords++;
+            nodes.ensureCapacity((long) nodeRecords * NODE_INTS);
+        }
+        setNode(record, ID, id);
+        setNode(record, OUT_HEAD, NIL);
+        setNode(record, OUT_TAIL, NIL);
+        setNode(record, IN_HEAD, NIL);
+        setNode(record, IN_TAIL, NIL);
+        setNode(record, OUT_DEGREE, 0);
+        setNode(record, IN_DEGREE, 0);
+        if (table == null) {
+            allocateTable(16);
+        }
+        putRecord(id, record);
+        if (++nbNodes > resizeAt) {
+            rehash(2 * (mask + 1));
+        }
+        return record;
+    }
+
+    /**
+     * Removes a node with a specific ID and its edges from the graph.
+     *
+     * @param nodeId The ID of the node to remove.
+     * @return true if the node is successfully removed, false if it does not exist in the graph.
+     */
+    public boolean removeNode(int nodeId) {
+        int record = record(nodeId);
+        if (record == NIL) {
+            return false;
+        }
+        // Each neighbour list is swept once, its edges to or from the node being marked UNLINKED
+        for (int e = node(record, OUT_HEAD), next; e != NIL; e = next) {
+            next = edge(e, NEXT_OUT);
+            int to = edge(e, TO);
+            if (to != nodeId && edge(e, NEXT_IN) != UNLINKED) {
+                unlinkAllIn(record(to), nodeId);
+            }
+            freeEdge(e);
+        }
+        // Self-loops were freed with the out-edges
+        for (int e = node(record, IN_HEAD), next; e != NIL; e = next) {
+            next = edge(e, NEXT_IN);
+            int from = edge(e, FROM);
+            if (from != nodeId) {
+                if (edge(e, NEXT_OUT) != UNLINKED) {
+                    unlinkAllOut(record(from), nodeId);
+                }
+                freeEdge(e);
+            }
+        }
+        removeRecord(nodeId);
+        setNode(record, OUT_HEAD, freeNode);
+        freeNode = record;
+        nbNodes--;
+        return true;
+    }
+
+    /**
+     * Removes every node and edge and deletes the files holding them. The graph can be used
+     * again afterwards, with new files.
+     */
+    @Override
+    public void close() {
+        nodes.close();
+        edges.close();
+        if (table != null) {
+            table.close();
+            table = null;
+        }
+        mask = -1;
+        nodeRecords = 0;
+        edgeRecords = 0;
+        freeNode = NIL;
+        freeEdge = NIL;
+        nbNodes = 0;
+        nbEdges = 0;
+    }
+
+    /**
+     * Removes a node and its edges from the graph.
+     *
+     * @param n The node to remove.
+     * @return true if the node is successfully removed, false if it does not exist in the graph.
+     */
+    public boolean removeNode(Node n) {
+        return removeNode(n.getId());
+    }
+
+    /**
+     * Retrieves views of all the nodes in the graph, in hash table order.
+     *
+     * @return A list of all nodes in the graph.
+     */
+    @Override
+    public List<Node> getAllNodes() {
+        List<Node> all = new ArrayList<>(nbNodes);
+        for (int i = 0; i <= mask; i++) {
+            if (table.get(2L * i + 1) != 0) {
+                all.add(new Node(table.get(2L * i)));
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public boolean existsEdge(Node u, Node v) {
+        return u != null && v != null && existsEdge(u.getId(), v.getId());
+    }
+
+    @Override
+    public boolean existsEdge(int uId, int vId) {
+        int record = record(uId);
+        if (record != NIL) {
+            for (int e = node(record, OUT_HEAD); e != NIL; e = edge(e, NEXT_OUT)) {
+                if (edge(e, TO) == vId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds an edge between two nodes, adding the nodes that are missing.
+     *
+     * @param from The source node.
+     * @param to   The target node.
+     */
+    @Override
+    public void addEdge(Node from, Node to) {
+        addEdge(from, to, 0);
+    }
+
+    /**
+     * Adds an edge between two existing nodes.
+     *
+     * @param fromId The ID of the source node.
+     * @param toId   The ID of the target node.
+     */
+    @Override
+    public void addEdge(int fromId, int toId) {
+        addEdge(fromId, toId, 0);
+    }
+
+    /**
+     * Adds a weighted edge between two nodes, adding the nodes that are missing.
+     *
+     * @param from   The source node.
+     * @param to     The target node.
+     * @param weight The weight of the edge.
+     */
+    @Override
+    public void addEdge(Node from, Node to, int weight) {
+        addNode(from);
+        addNode(to);
+        addEdge(from.getId(), to.getId(), weight);
+    }
+
+    /**
+     * Adds a weighted edge between two existing nodes.
+     *
+     * @param fromId The ID of the source node.
+     * @param toId   The ID of the target node.
+     * @param weight The weight of the edge.
+     */
+    @Override
+    public void addEdge(int fromId, int toId, int weight) {
+        int source = record(fromId);
+        int target = record(toId);
+        if (source == NIL || target == NIL) {
+            return;
+        }
+        int e = freeEdge;
+        if (e != NIL) {
+            freeEdge = edge(e, NEXT_OUT);
+        } else {
+            e = edgeRecords++;
+            edges.ensureCapacity((long) edgeRecords * EDGE_INTS);
+        }
+        setEdge(e, FROM, fromId);
+        setEdge(e, TO, toId);
+        setEdge(e, WEIGHT, weight);
+        setEdge(e, NEXT_OUT, NIL);
+        setEdge(e, NEXT_IN, NIL);
+        int tail = node(source, OUT_TAIL);
+        if (tail == NIL) {
+            setNode(source, OUT_HEAD, e);
+        } else {
+            setEdge(tail, NEXT_OUT, e);
+        }
+        setNode(source, OUT_TAIL, e);
+        setNode(source, OUT_DEGREE, node(source, OUT_DEGREE) + 1);
+        tail = node(target, IN_TAIL);
+        if (tail == NIL) {
+            setNode(target, IN_HEAD, e);
+        } else {
+            setEdge(tail, NEXT_IN, e);
+        }
+        setNode(target, IN_TAIL, e);
+        setNode(target, IN_DEGREE, node(target, IN_DEGREE) + 1);
+        nbEdges++;
+    }
+
+    private void freeEdge(int e) {
+        setEdge(e, NEXT_OUT, freeEdge);
+        freeEdge = e;
+        nbEdges--;
+    }
+
+    /**
+     * Unlinks an edge from the out-edge list of its source.
+     *
+     * @param source   The node record of the source.
+     * @param previous The edge record before it in the list, NIL if it is the first one.
+     * @param e        The edge record.
+     */
+    private void unlinkOut(int source, int previous, int e) {
+        int next = edge(e, NEXT_OUT);
+        if (previous == NIL) {
+            setNode(source, OUT_HEAD, next);
+        } else {
+            setEdge(previous, NEXT_OUT, next);
+        }
+        if (next == NIL) {
+            setNode(source, OUT_TAIL, previous);
+        }
+        setNode(source, OUT_DEGREE, node(source, OUT_DEGREE) - 1);
+    }
+
+    /**
+     * Unlinks an edge from the in-edge list of its target.
+     *
+     * @param target The node record of the target.
+     * @param e      The edge record, which must be in the list.
+     */
+    private void unlinkIn(int target, int e) {
+        int previous = NIL;
+        for (int f = node(target, IN_HEAD); f != e; f = edge(f, NEXT_IN)) {
+            previous = f;
+        }
+        int next = edge(e, NEXT_IN);
+        if (previous == NIL) {
+            setNode(target, IN_HEAD, next);
+        } else {
+            setEdge(previous, NEXT_IN, next);
+        }
+        if (next == NIL) {
+            setNode(target, IN_TAIL, previous);
+        }
+        setNode(target, IN_DEGREE, node(target, IN_DEGREE) - 1);
+    }
+
+    /**
+     * Unlinks all the edges from a node from the in-edge list of a target, marking them UNLINKED.
+     *
+     * @param target The node record of the target.
+     * @param fromId The ID of the source.
+     */
+    private void unlinkAllIn(int target, int fromId) {
+        int previous = NIL;
+        int removed = 0;
+        for (int e = node(target, IN_HEAD), next; e != NIL; e = next) {
+            next = edge(e, NEXT_IN);
+            if (edge(e, FROM) == fromId) {
+                if (previous == NIL) {
+                    setNode(target, IN_HEAD, next);
+                } else {
+                    setEdge(previous, NEXT_IN, next);
+                }
+                setEdge(e, NEXT_IN, UNLINKED);
+                removed++;
+            } else {
+                previous = e;
+            }
+        }
+        setNode(target, IN_TAIL, previous);
+        setNode(target, IN_DEGREE, node(target, IN_DEGREE) - removed);
+    }
+
+    /**
+     * Unlinks all the edges to a node from the out-edge list of a source, marking them UNLINKED.
+     *
+     * @param source The node record of the source.
+     * @param toId   The ID of the target.
+     */
+    private void unlinkAllOut(int source, int toId) {
+        int previous = NIL;
+        int removed = 0;
+        for (int e = node(source, OUT_HEAD), next; e != NIL; e = next) {
+            next = edge(e, NEXT_OUT);
+            if (edge(e, TO) == toId) {
+                if (previous == NIL) {
+                    setNode(source, OUT_HEAD, next);
+                } else {
+                    setEdge(previous, NEXT_OUT, next);
+                }
+                setEdge(e, NEXT_OUT, UNLINKED);
+                removed++;
+            } else {
+                previous = e;
+            }
+        }
+        setNode(source, OUT_TAIL, previous);
+        setNode(source, OUT_DEGREE, node(source, OUT_DEGREE) - removed);
+    }
+
+    @Override
+    public boolean removeEdge(Node from, Node to) {
+        return from != null && to != null && deleteEdge(from.getId(), to.getId(), false, 0);
+    }
+
+    @Override
+    public boolean removeEdge(int fromId, int toId) {
+        return deleteEdge(fromId, toId, false, 0);
+    }
+
+    @Override
+    public boolean removeEdge(Node from, Node to, int weight) {
+        return from != null && to != null && deleteEdge(from.getId(), to.getId(), true, weight);
+    }
+
+    @Override
+    public boolean removeEdge(int fromId, int toId, int weight) {
+        return deleteEdge(fromId, toId, true, weight);
+    }
+
+    /**
+     * Removes the first edge between two nodes, of a given weight if required.
+     */
+    private boolean deleteEdge(int fromId, int toId, boolean matchWeight, int weight) {
+        int source = record(fromId);
+        int target = record(toId);
+        if (source == NIL || target == NIL) {
+            return false;
+        }
+        int previous = NIL;
+        for (int e = node(source, OUT_HEAD); e != NIL; previous = e, e = edge(e, NEXT_OUT)) {
+            if (edge(e, TO) == toId && (!matchWeight || edge(e, WEIGHT) == weight)) {
+                unlinkOut(source, previous, e);
+                unlinkIn(target, e);
+                freeEdge(e);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates views of the out-edges, in-edges or both of a node.
+     */
+    private List<Edge> edgeViews(int nodeId, boolean out, boolean in) {
+        int record = record(nodeId);
+        if (record == NIL) {
+            return new ArrayList<>();
+        }
+        List<Edge> views = new ArrayList<>((out ? node(record, OUT_DEGREE) : 0) + (in ? node(record, IN_DEGREE) : 0));
+        Node node = new Node(nodeId);
+        if (out) {
+            for (int e = node(record, OUT_HEAD); e != NIL; e = edge(e, NEXT_OUT)) {
+                int to = edge(e, TO);
+                views.add(new Edge(node, to == nodeId ? node : new Node(to), edge(e, WEIGHT)));
+            }
+        }
+        if (in) {
+            for (int e = node(record, IN_HEAD); e != NIL; e = edge(e, NEXT_IN)) {
+                int from = edge(e, FROM);
+                views.add(new Edge(from == nodeId ? node : new Node(from), node, edge(e, WEIGHT)));
+            }
+        }
+        return views;
+    }
+
+    @Override
+    public List<Edge> getOutEdges(Node n) {
+        return n != null ? getOutEdges(n.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getOutEdges(int nodeId) {
+        return edgeViews(nodeId, true, false);
+    }
+
+    @Override
+    public List<Edge> getInEdges(Node n) {
+        return n != null ? getInEdges(n.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getInEdges(int nodeId) {
+        return edgeViews(nodeId, false, true);
+    }
+
+    @Override
+    public List<Edge> getIncidentEdges(Node n) {
+        return n != null ? getIncidentEdges(n.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getIncidentEdges(int nodeId) {
+        return edgeViews(nodeId, true, true);
+    }
+
+    @Override
+    public List<Edge> getEdges(Node u, Node v) {
+        return u != null && v != null ? getEdges(u.getId(), v.getId()) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Edge> getEdges(int uId, int vId) {
+        List<Edge> views = new ArrayList<>();
+        int record = record(uId);
+        if (record != NIL) {
+            Node u = new Node(uId);
+            Node v = uId == vId ? u : new Node(vId);
+            for (int e = node(record, OUT_HEAD); e != NIL; e = edge(e, NEXT_OUT)) {
+                if (edge(e, TO) == vId) {
+                    views.add(new Edge(u, v, edge(e, WEIGHT)));
+                }
+            }
+        }
+        return views;
+    }
+
+    /**
+     * Retrieves views of all the edges in the graph, grouped by source in hash table order.
+     *
+     * @return A list of all edges in the graph.
+     */
+    @Override
+    public List<Edge> getAllEdges() {
+        List<Edge> all = new ArrayList<>(nbEdges);
+        for (int i = 0; i <= mask; i++) {
+            if (table.get(2L * i + 1) != 0) {
+                all.addAll(getOutEdges(table.get(2L * i)));
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Returns the out-degree, in-degree or both of a node.
+     */
+    private int degreeOf(int nodeId, boolean out, boolean in) {
+        int record = record(nodeId);
+        if (record == NIL) {
+            return 0;
+        }
+        return (out ? node(record, OUT_DEGREE) : 0) + (in ? node(record, IN_DEGREE) : 0);
+    }
+
+    @Override
+    public int inDegree(Node n) {
+        return n != null ? inDegree(n.getId()) : 0;
+    }
+
+    @Override
+    public int inDegree(int nodeId) {
+        return degreeOf(nodeId, false, true);
+    }
+
+    @Override
+    public int outDegree(Node n) {
+        return n != null ? outDegree(n.getId()) : 0;
+    }
+
+    @Override
+    public int outDegree(int nodeId) {
+        return degreeOf(nodeId, true, false);
+    }
+
+    @Override
+    public int degree(Node n) {
+        return n != null ? degree(n.getId()) : 0;
+    }
+
+    @Override
+    public int degree(int nodeId) {
+        return degreeOf(nodeId, true, true);
+    }
+
+    @Override
+    public void forEachSuccessor(int nodeId, IntConsumer action) {
+        int record = record(nodeId);
+        if (record != NIL) {
+            for (int e = node(record, OUT_HEAD); e != NIL; e = edge(e, NEXT_OUT)) {
+                action.accept(edge(e, TO));
+            }
+        }
+    }
+
+    @Override
+    public void forEachPredecessor(int nodeId, IntConsumer action) {
+        int record = record(nodeId);
+        if (record != NIL) {
+            for (int e = node(record, IN_HEAD); e != NIL; e = edge(e, NEXT_IN)) {
+                action.accept(edge(e, FROM));
+            }
+        }
+    }
+
+    @Override
+    public void forEachOutEdge(int nodeId, EdgeVisitor visitor) {
+        int record = record(nodeId);
+        if (record != NIL) {
+            for (int e = node(record, OUT_HEAD); e != NIL; e = edge(e, NEXT_OUT)) {
+                visitor.visit(edge(e, TO), edge(e, WEIGHT));
+            }
+        }
+    }
+
+    @Override
+    public void forEachInEdge(int nodeId, EdgeVisitor visitor) {
+        int record = record(nodeId);
+        if (record != NIL) {
+            for (int e = node(record, IN_HEAD); e != NIL; e = edge(e, NEXT_IN)) {
+                visitor.visit(edge(e, FROM), edge(e, WEIGHT));
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package m1graf2023;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Growable array of ints, indexed by long, stored outside the Java heap in pages memory-mapped
+ * from a temporary file. Growing maps new pages without copying the old ones, and the heap only
+ * holds one buffer object per page. Mapped memory is not limited by -XX:MaxDirectMemorySize, and
+ * the operating system can write pages back to the file when memory runs short.
+ *
+ * <p>The file is deleted by {@link #close()}. Its pages stay mapped until their buffers are
+ * garbage collected, as Java has no call to unmap them.
+ */
+class OffHeapInts {
+    private final int pageShift;
+    private final int pageMask;
+    private IntBuffer[] pages = new IntBuffer[0];
+    private FileChannel file;
+
+    /**
+     * Constructs an empty array.
+     *
+     * @param pageShift The base 2 logarithm of the number of ints per page.
+     */
+    OffHeapInts(int pageShift) {
+        this.pageShift = pageShift;
+        this.pageMask = (1 << pageShift) - 1;
+    }
+
+    /**
+     * Returns the number of ints that can be stored without growing.
+     *
+     * @return The capacity.
+     */
+    long capacity() {
+        return (long) pages.length << pageShift;
+    }
+
+    /**
+     * Adds the pages needed to store a number of ints. The new ints are 0.
+     *
+     * @param capacity The number of ints wanted.
+     * @throws UncheckedIOException If the temporary file cannot be created or grown.
+     */
+    void ensureCapacity(long capacity) {
+        int nbPages = (int) ((capacity + pageMask) >>> pageShift);
+        if (nbPages > pages.length) {
+            int old = pages.length;
+            long pageBytes = (long) Integer.BYTES << pageShift;
+            try {
+                if (file == null) {
+                    file = FileChannel.open(Files.createTempFile("graf", ".ints"), StandardOpenOption.READ,
+                            StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+                }
+                pages = Arrays.copyOf(pages, Math.max(nbPages, old + (old >> 1)));
+                for (int page = old; page < pages.length; page++) {
+                    // Mapping past the end of the file extends it with zeros
+                    pages[page] = file.map(FileChannel.MapMode.READ_WRITE, page * pageBytes, pageBytes)
+                            .order(ByteOrder.nativeOrder()).asIntBuffer();
+                }
+            } catch (IOException e) {
+                pages = Arrays.copyOf(pages, old);
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads an int.
+     *
+     * @param index The index, below the capacity.
+     * @return The int at that index.
+     */
+    int get(long index) {
+        return pages[(int) (index >>> pageShift)].get((int) index & pageMask);
+    }
+
+    /**
+     * Writes an int.
+     *
+     * @param index The index, below the capacity.
+     * @param value The int to store.
+     */
+    void set(long index, int value) {
+        pages[(int) (index >>> pageShift)].put((int) index & pageMask, value);
+    }
+
+    /**
+     * Empties the array and deletes its file. The array can grow again afterwards.
+     */
+    void close() {
+        pages = new IntBuffer[0];
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                file = null;
+            }
+        }
+    }
+}
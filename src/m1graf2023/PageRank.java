@@ -0,0 +1,247 @@
+package m1graf2023;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * PageRank and personalized PageRank by power iteration, pulling the ranks over the in-edge side
+ * of a CSR snapshot. Every node sums the contributions of its sources, rank over out-degree, so
+ * rows are updated in parallel without synchronization. The rank held by dangling nodes, which
+ * have no out-edge, is spread like the teleportation, so the ranks always sum to 1.
+ *
+ * <p>Ranks and contributions are double-buffered, and the rows are split once into ranges of
+ * about the same number of in-edges, each with a task that is reinitialized at every iteration,
+ * so an iteration allocates nothing. Each range also sums its change and its dangling rank, and
+ * these partial sums are added in range order: results do not depend on the number of threads.
+ * The engine is not thread-safe.
+ */
+public class PageRank {
+    private static final int GRAIN = 4096;
+
+    private final CsrGraf graph;
+    private final ForkJoinPool pool;
+    private final int n;
+    private final double[] inverseOutDegrees;
+    private final double[] teleport;
+    private final double[][] ranks;
+    private final double[][] contributions;
+    private final RangeTask[] leaves;
+    private final RangeTask root;
+    private double damping;
+    private double danglingRank;
+    private int current;
+    private int iterations;
+
+    /**
+     * Constructs a ranking engine over a graph.
+     *
+     * @param graph The graph. Parallel edges count as many times as they appear.
+     * @param pool  The pool running the row updates.
+     */
+    public PageRank(CsrGraf graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+        this.n = graph.nbNodes();
+        inverseOutDegrees = new double[n];
+        for (int u = 0; u < n; u++) {
+            int outDegree = graph.offsets[u + 1] - graph.offsets[u];
+            inverseOutDegrees[u] = outDegree == 0 ? 0 : 1.0 / outDegree;
+        }
+        teleport = new double[n];
+        ranks = new double[][]{new double[n], new double[n]};
+        contributions = new double[][]{new double[n], new double[n]};
+
+        // Cut the rows into ranges of about GRAIN nodes plus in-edges
+        int[] inOffsets = graph.inOffsets();
+        long work = (long) n + inOffsets[n];
+        int nbLeaves = (int) Math.max(1, Math.min(n, (work + GRAIN - 1) / GRAIN));
+        leaves = new RangeTask[nbLeaves];
+        int from = 0;
+        for (int i = 0; i < nbLeaves; i++) {
+            long end = work * (i + 1) / nbLeaves;
+            int to = from;
+            while (to < n && to + (long) inOffsets[to] < end) {
+                to++;
+            }
+            if (i == nbLeaves - 1) {
+                to = n;
+            }
+            leaves[i] = new RangeTask(from, to, null, null);
+            from = to;
+        }
+        root = tree(0, nbLeaves);
+    }
+
+    private RangeTask tree(int from, int to) {
+        if (to - from == 1) {
+            return leaves[from];
+        }
+        int middle = (from + to) >>> 1;
+        return new RangeTask(0, 0, tree(from, middle), tree(middle, to));
+    }
+
+    /**
+     * Returns the dense index of a node id.
+     *
+     * @param nodeId The ID of the node.
+     * @return The index of the node in 0..n-1, or -1 if no such node exists.
+     */
+    public int nodeIndex(int nodeId) {
+        return graph.nodeIndex(nodeId);
+    }
+
+    /**
+     * Returns the node id of a dense index.
+     *
+     * @param index The index of the node in 0..n-1.
+     * @return The ID of the node.
+     */
+    public int nodeId(int index) {
+        return graph.nodeId(index);
+    }
+
+    /**
+     * Returns the number of iterations of the last computation.
+     *
+     * @return The number of iterations run.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Computes the PageRank of every node, teleporting uniformly.
+     *
+     * @param damping       The probability to follow an edge rather than teleport, in (0, 1).
+     * @param tolerance     The L1 change between two iterations under which they stop.
+     * @param maxIterations The maximum number of iterations.
+     * @return The ranks, indexed by dense node index, summing to 1.
+     * @throws IllegalArgumentException If damping is not in (0, 1).
+     */
+    public double[] ranks(double damping, double tolerance, int maxIterations) {
+        Arrays.fill(teleport, 1.0 / n);
+        return iterate(damping, tolerance, maxIterations);
+    }
+
+    /**
+     * Computes the personalized PageRank of every node, teleporting uniformly to a set of sources.
+     *
+     * @param sourceIds     The IDs of the sources.
+     * @param damping       The probability to follow an edge rather than teleport, in (0, 1).
+     * @param tolerance     The L1 change between two iterations under which they stop.
+     * @param maxIterations The maximum number of iterations.
+     * @return The ranks, indexed by dense node index, summing to 1.
+     * @throws IllegalArgumentException If damping is not in (0, 1), there is no source or a
+     *                                  source does not exist.
+     */
+    public double[] personalizedRanks(int[] sourceIds, double damping, double tolerance, int maxIterations) {
+        if (sourceIds.length == 0) {
+            throw new IllegalArgumentException("no source");
+        }
+        Arrays.fill(teleport, 0);
+        for (int sourceId : sourceIds) {
+            int source = graph.nodeIndex(sourceId);
+            if (source < 0) {
+                throw new IllegalArgumentException("no node " + sourceId);
+            }
+            teleport[source] += 1.0 / sourceIds.length;
+        }
+        return iterate(damping, tolerance, maxIterations);
+    }
+
+    private double[] iterate(double damping, double tolerance, int maxIterations) {
+        if (!(damping > 0 && damping < 1)) {
+            throw new IllegalArgumentException("damping " + damping + " is not in (0, 1)");
+        }
+        this.damping = damping;
+        current = 0;
+        danglingRank = 0;
+        double[] rank = ranks[0];
+        double[] contribution = contributions[0];
+        for (int v = 0; v < n; v++) {
+            rank[v] = teleport[v];
+            contribution[v] = rank[v] * inverseOutDegrees[v];
+            if (inverseOutDegrees[v] == 0) {
+                danglingRank += rank[v];
+            }
+        }
+        iterations = 0;
+        while (iterations < maxIterations) {
+            root.reset();
+            pool.invoke(root);
+            iterations++;
+            current ^= 1;
+            double change = 0;
+            danglingRank = 0;
+            for (RangeTask leaf : leaves) {
+                change += leaf.change;
+                danglingRank += leaf.dangling;
+            }
+            if (change < tolerance) {
+                break;
+            }
+        }
+        return ranks[current].clone();
+    }
+
+    /**
+     * Updates the ranks of a range of rows, or of the ranges of its two children.
+     */
+    @SuppressWarnings("serial")
+    private class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final RangeTask left;
+        private final RangeTask right;
+        private double change;
+        private double dangling;
+
+        RangeTask(int from, int to, RangeTask left, RangeTask right) {
+            this.from = from;
+            this.to = to;
+            this.left = left;
+            this.right = right;
+        }
+
+        void reset() {
+            reinitialize();
+            if (left != null) {
+                left.reset();
+                right.reset();
+            }
+        }
+
+        @Override
+        protected void compute() {
+            if (left != null) {
+                invokeAll(left, right);
+                return;
+            }
+            int[] inOffsets = graph.inOffsets();
+            int[] inSources = graph.inSources();
+            double[] rank = ranks[current];
+            double[] contribution = contributions[current];
+            double[] nextRank = ranks[current ^ 1];
+            double[] nextContribution = contributions[current ^ 1];
+            double jump = damping * danglingRank + (1 - damping);
+            double rangeChange = 0;
+            double rangeDangling = 0;
+            for (int v = from; v < to; v++) {
+                double sum = 0;
+                for (int k = inOffsets[v]; k < inOffsets[v + 1]; k++) {
+                    sum += contribution[inSources[k]];
+                }
+                double r = damping * sum + jump * teleport[v];
+                nextRank[v] = r;
+                nextContribution[v] = r * inverseOutDegrees[v];
+                rangeChange += Math.abs(r - rank[v]);
+                if (inverseOutDegrees[v] == 0) {
+                    rangeDangling += r;
+                }
+            }
+            change = rangeChange;
+            dangling = rangeDangling;
+        }
+    }
+}
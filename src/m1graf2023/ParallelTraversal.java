@@ -0,0 +1,247 @@
+package m1graf2023;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Multi-core traversals of any graph, reading neighbours through
+ * {@link graf_interface#forEachSuccessor(int, IntConsumer)}.
+ * Nodes are numbered by dense index in increasing ID order, see {@link #nodeIndex(int)}, and
+ * visited nodes are marked in an atomic bitset: a thread claims a node by setting its bit with a
+ * compare-and-set, so no lock is taken. The graph must not be modified during a traversal.
+ *
+ * <p>The BFS is level-synchronous: each frontier is split into ranges processed by fork/join
+ * tasks, which append the nodes they claim to the next frontier in blocks. The reachability
+ * search is a depth-first search per task, whose stack is split and forked while other threads
+ * are idle.
+ */
+public class ParallelTraversal {
+    private static final int FRONTIER_GRAIN = 256;
+    private static final int BLOCK_SIZE = 256;
+    private static final int SPLIT_STACK_SIZE = 64;
+
+    private final graf_interface graph;
+    private final ForkJoinPool pool;
+    private final DenseIds ids;
+
+    /**
+     * Constructs a traversal of a graph.
+     *
+     * @param graph The graph to traverse.
+     * @param pool  The pool running the traversals.
+     */
+    public ParallelTraversal(graf_interface graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+        this.ids = new DenseIds(graph);
+    }
+
+    /**
+     * Returns the dense index of a node id.
+     *
+     * @param nodeId The ID of the node.
+     * @return The index of the node in 0..nbNodes()-1, or -1 if no such node exists.
+     */
+    public int nodeIndex(int nodeId) {
+        return ids.indexOf(nodeId);
+    }
+
+    /**
+     * Returns the node id of a dense index.
+     *
+     * @param index The index of the node in 0..nbNodes()-1.
+     * @return The ID of the node.
+     */
+    public int nodeId(int index) {
+        return ids.idOf(index);
+    }
+
+    /**
+     * Sets the bit of an index in an atomic bitset.
+     *
+     * @return true if this call set the bit, false if it was already set.
+     */
+    static boolean claim(AtomicLongArray visited, int index) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+        long current;
+        do {
+            current = visited.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+        } while (!visited.compareAndSet(word, current, current | bit));
+        return true;
+    }
+
+    /**
+     * Computes the hop distances from a node with a parallel BFS.
+     *
+     * @param sourceId The ID of the source node.
+     * @return The distances, indexed by dense node index, -1 for the nodes that are not reached.
+     */
+    public int[] bfsDistances(int sourceId) {
+        int n = ids.size();
+        int[] distances = new int[n];
+        Arrays.fill(distances, -1);
+        int source = nodeIndex(sourceId);
+        if (source < 0) {
+            return distances;
+        }
+        AtomicLongArray visited = new AtomicLongArray((n + 63) >>> 6);
+        claim(visited, source);
+        distances[source] = 0;
+        int[] frontier = new int[n];
+        int[] next = new int[n];
+        frontier[0] = source;
+        int size = 1;
+        AtomicInteger nextSize = new AtomicInteger();
+        for (int level = 1; size > 0; level++) {
+            nextSize.set(0);
+            pool.invoke(new FrontierTask(frontier, 0, size, next, nextSize, visited, distances, level));
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+            size = nextSize.get();
+        }
+        return distances;
+    }
+
+    /**
+     * Expands a range of the frontier.
+     */
+    @SuppressWarnings("serial")
+    private class FrontierTask extends RecursiveAction implements IntConsumer {
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final int[] next;
+        private final AtomicInteger nextSize;
+        private final AtomicLongArray visited;
+        private final int[] distances;
+        private final int level;
+        private int[] block;
+        private int blockSize;
+
+        FrontierTask(int[] frontier, int from, int to, int[] next, AtomicInteger nextSize,
+                     AtomicLongArray visited, int[] distances, int level) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.next = next;
+            this.nextSize = nextSize;
+            this.visited = visited;
+            this.distances = distances;
+            this.level = level;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FRONTIER_GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FrontierTask(frontier, from, middle, next, nextSize, visited, distances, level),
+                        new FrontierTask(frontier, middle, to, next, nextSize, visited, distances, level));
+                return;
+            }
+            block = new int[BLOCK_SIZE];
+            for (int i = from; i < to; i++) {
+                graph.forEachSuccessor(ids.idOf(frontier[i]), this);
+            }
+            flush();
+        }
+
+        @Override
+        public void accept(int successorId) {
+            int v = ids.indexOf(successorId);
+            if (v >= 0 && claim(visited, v)) {
+                distances[v] = level;
+                if (blockSize == BLOCK_SIZE) {
+                    flush();
+                }
+                block[blockSize++] = v;
+            }
+        }
+
+        private void flush() {
+            int start = nextSize.getAndAdd(blockSize);
+            System.arraycopy(block, 0, next, start, blockSize);
+            blockSize = 0;
+        }
+    }
+
+    /**
+     * Finds the nodes reachable from a node with a parallel depth-first search.
+     *
+     * @param sourceId The ID of the source node.
+     * @return true for each reachable node, indexed by dense node index.
+     */
+    public boolean[] reachable(int sourceId) {
+        int n = ids.size();
+        boolean[] reached = new boolean[n];
+        int source = nodeIndex(sourceId);
+        if (source < 0) {
+            return reached;
+        }
+        AtomicLongArray visited = new AtomicLongArray((n + 63) >>> 6);
+        claim(visited, source);
+        pool.invoke(new DepthFirstTask(new int[]{source}, 1, visited));
+        for (int i = 0; i < n; i++) {
+            reached[i] = (visited.get(i >>> 6) & (1L << i)) != 0;
+        }
+        return reached;
+    }
+
+    /**
+     * Explores depth-first from a stack of claimed nodes, giving half of its stack to a new
+     * task whenever the pool runs out of queued work.
+     */
+    @SuppressWarnings("serial")
+    private class DepthFirstTask extends RecursiveAction implements IntConsumer {
+        private final AtomicLongArray visited;
+        private int[] stack;
+        private int size;
+
+        DepthFirstTask(int[] stack, int size, AtomicLongArray visited) {
+            this.stack = stack;
+            this.size = size;
+            this.visited = visited;
+        }
+
+        @Override
+        protected void compute() {
+            List<DepthFirstTask> forked = new ArrayList<>();
+            while (size > 0) {
+                if (size >= SPLIT_STACK_SIZE && getSurplusQueuedTaskCount() == 0) {
+                    int half = size / 2;
+                    DepthFirstTask task = new DepthFirstTask(Arrays.copyOf(stack, Math.max(half, 16)), half, visited);
+                    // Give away the bottom of the stack, the nodes found first
+                    System.arraycopy(stack, half, stack, 0, size - half);
+                    size -= half;
+                    task.fork();
+                    forked.add(task);
+                }
+                graph.forEachSuccessor(ids.idOf(stack[--size]), this);
+            }
+            for (DepthFirstTask task : forked) {
+                task.join();
+            }
+        }
+
+        @Override
+        public void accept(int successorId) {
+            int v = ids.indexOf(successorId);
+            if (v >= 0 && claim(visited, v)) {
+                if (size == stack.length) {
+                    stack = Arrays.copyOf(stack, size * 2);
+                }
+                stack[size++] = v;
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package m1graf2023;
+
+import java.util.function.Consumer;
+
+/**
+ * Immutable map from primitive int keys to non-null values, as a 32-way trie on the bits of the
+ * keys, least significant first. A branch only stores its non-empty children, located by a bitmap,
+ * and a key alone in its subtree is stored as a leaf as high in the trie as possible, so a
+ * lookup reads at most seven branches.
+ *
+ * <p>Changes go through an {@link Editor}, which copies the branches on the paths to the keys
+ * changed, once per edit, and shares every other branch with the map it was made from. Both maps
+ * stay valid and can be read from any number of threads.
+ *
+ * @param <V> The type of the mapped values.
+ */
+final class PersistentIntMap<V> {
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(new Branch(0, new Object[0], null), 0);
+
+    private final Branch root;
+    private final int size;
+
+    private PersistentIntMap(Branch root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @param <V> The type of the mapped values.
+     * @return The empty map.
+     */
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    /**
+     * A key and its value.
+     */
+    private static final class Leaf {
+        final int key;
+        final Object value;
+
+        Leaf(int key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The children of a branch, each a Leaf or a Branch, for the bits set in the bitmap. A
+     * branch belongs to the editor that created it, which may change it in place.
+     */
+    private static final class Branch {
+        int bitmap;
+        Object[] children;
+        final Object owner;
+
+        Branch(int bitmap, Object[] children, Object owner) {
+            this.bitmap = bitmap;
+            this.children = children;
+            this.owner = owner;
+        }
+
+        int position(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    private static int bit(int key, int shift) {
+        return 1 << ((key >>> shift) & 31);
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return The number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the value mapped to a key.
+     *
+     * @param key The key to look up.
+     * @return The mapped value, or null if the key is absent.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        return (V) find(root, key, 0);
+    }
+
+    /**
+     * Looks a key up in a branch at a given depth.
+     *
+     * @return The mapped value, or null if the key is absent.
+     */
+    private static Object find(Branch branch, int key, int shift) {
+        for (; ; shift += 5) {
+            int bit = bit(key, shift);
+            if ((branch.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = branch.children[branch.position(bit)];
+            if (child instanceof Leaf) {
+                Leaf leaf = (Leaf) child;
+                return leaf.key == key ? leaf.value : null;
+            }
+            branch = (Branch) child;
+        }
+    }
+
+    /**
+     * Calls an action on every value, in no particular order.
+     *
+     * @param action The action.
+     */
+    void forEachValue(Consumer<? super V> action) {
+        forEachValue(root, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEachValue(Branch branch, Consumer<? super V> action) {
+        for (Object child : branch.children) {
+            if (child instanceof Leaf) {
+                action.accept((V) ((Leaf) child).value);
+            } else {
+                forEachValue((Branch) child, action);
+            }
+        }
+    }
+
+    /**
+     * Starts a set of changes to a copy of this map.
+     *
+     * @return An editor whose changes do not affect this map.
+     */
+    Editor<V> edit() {
+        return new Editor<>(root, size);
+    }
+
+    /**
+     * Mutable copy of a map, sharing the branches it does not change with it.
+     *
+     * @param <V> The type of the mapped values.
+     */
+    static final class Editor<V> {
+        private Branch root;
+        private int size;
+
+        private Editor(Branch root, int size) {
+            this.size = size;
+            this.root = editable(root);
+        }
+
+        private Branch editable(Branch branch) {
+            return branch.owner == this ? branch : new Branch(branch.bitmap, branch.children.clone(), this);
+        }
+
+        /**
+         * Maps a key to a value, replacing any previous mapping.
+         *
+         * @param key   The key.
+         * @param value The value, which must not be null.
+         */
+        void put(int key, V value) {
+            Branch branch = root;
+            for (int shift = 0; ; shift += 5) {
+                int bit = bit(key, shift);
+                int position = branch.position(bit);
+                if ((branch.bitmap & bit) == 0) {
+                    Object[] children = new Object[branch.children.length + 1];
+                    System.arraycopy(branch.children, 0, children, 0, position);
+                    children[position] = new Leaf(key, value);
+                    System.arraycopy(branch.children, position, children, position + 1, branch.children.length - position);
+                    branch.children = children;
+                    branch.bitmap |= bit;
+                    size++;
+                    return;
+                }
+                Object child = branch.children[position];
+                if (child instanceof Leaf) {
+                    Leaf leaf = (Leaf) child;
+                    if (leaf.key == key) {
+                        branch.children[position] = new Leaf(key, value);
+                        return;
+                    }
+                    // Push the leaf down one level, where the next step may still share its slot
+                    int leafBit = bit(leaf.key, shift + 5);
+                    Branch below = new Branch(leafBit, new Object[]{leaf}, this);
+                    branch.children[position] = below;
+                    branch = below;
+                } else {
+                    Branch below = editable((Branch) child);
+                    branch.children[position] = below;
+                    branch = below;
+                }
+            }
+        }
+
+        /**
+         * Removes the mapping of a key, if any.
+         *
+         * @param key The key to remove.
+         */
+        void remove(int key) {
+            if (remove(root, key, 0)) {
+                size--;
+            }
+        }
+
+        /**
+         * Removes a key from an editable branch, then lifts the children of its sub-branches
+         * left with a single leaf.
+         *
+         * @return true if the key was found.
+         */
+        private boolean remove(Branch branch, int key, int shift) {
+            int bit = bit(key, shift);
+            if ((branch.bitmap & bit) == 0) {
+                return false;
+            }
+            int position = branch.position(bit);
+            Object child = branch.children[position];
+            if (child instanceof Leaf) {
+                if (((Leaf) child).key != key) {
+                    return false;
+                }
+                Object[] children = new Object[branch.children.length - 1];
+                System.arraycopy(branch.children, 0, children, 0, position);
+                System.arraycopy(branch.children, position + 1, children, position, children.length - position);
+                branch.children = children;
+                branch.bitmap &= ~bit;
+                return true;
+            }
+            Branch below = (Branch) child;
+            if (find(below, key, shift + 5) == null) {
+                return false;
+            }
+            below = editable(below);
+            branch.children[position] = below;
+            remove(below, key, shift + 5);
+            if (below.children.length == 1 && below.children[0] instanceof Leaf) {
+                branch.children[position] = below.children[0];
+            }
+            return true;
+        }
+
+        /**
+         * Returns the map holding the changes made so far. The editor must not be used after.
+         *
+         * @return The new map.
+         */
+        PersistentIntMap<V> persistent() {
+            PersistentIntMap<V> map = new PersistentIntMap<>(root, size);
+            root = null;
+            return map;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package m1graf2023;
+
+import java.util.Arrays;
+
+/**
+ * Shortest-path engine over the edge weights of a CSR snapshot, meant to answer many queries on
+ * the same graph: Dijkstra from a source, point-to-point Dijkstra stopping at the target,
+ * bidirectional Dijkstra over the in-edge side, and A* with a pluggable heuristic.
+ *
+ * <p>Queues are indexed binary heaps of dense node indices with long keys, and the tentative
+ * distances are stamped with a query number instead of being cleared, so a point-to-point query
+ * costs the nodes it touches, not the size of the graph, and allocates nothing.
+ * Distances are longs, -1 when the target cannot be reached. The engine is not thread-safe.
+ */
+public class ShortestPaths {
+    /**
+     * Lower bound on the distance between two nodes, used to guide A*.
+     */
+    @FunctionalInterface
+    public interface Heuristic {
+        /**
+         * Estimates the distance from a node to the target. The estimate must never exceed the
+         * real distance for A* to return shortest paths.
+         *
+         * @param nodeId   The ID of the node.
+         * @param targetId The ID of the target node.
+         * @return The estimate, at least 0.
+         */
+        long estimate(int nodeId, int targetId);
+    }
+
+    private final CsrGraf graph;
+    private final int n;
+    private final IntMinHeap forward;
+    private final IntMinHeap backward;
+    private final long[] forwardDistances;
+    private final long[] backwardDistances;
+    private final int[] forwardStamps;
+    private final int[] backwardStamps;
+    private final int[] parents;
+    private int query;
+
+    /**
+     * Constructs a shortest-path engine over a graph.
+     *
+     * @param graph The graph, whose edge weights are the lengths.
+     * @throws IllegalArgumentException If an edge has a negative weight.
+     */
+    public ShortestPaths(CsrGraf graph) {
+        for (int weight : graph.weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("negative edge weight " + weight);
+            }
+        }
+        this.graph = graph;
+        this.n = graph.nbNodes();
+        forward = new IntMinHeap(n);
+        backward = new IntMinHeap(n);
+        forwardDistances = new long[n];
+        backwardDistances = new long[n];
+        forwardStamps = new int[n];
+        backwardStamps = new int[n];
+        parents = new int[n];
+    }
+
+    private void newQuery() {
+        if (++query == 0) {
+            // The stamps wrapped around: forget them all once every 2^32 queries
+            Arrays.fill(forwardStamps, 0);
+            Arrays.fill(backwardStamps, 0);
+            query = 1;
+        }
+        forward.clear();
+        backward.clear();
+    }
+
+    /**
+     * Computes the distances from a node to all the nodes.
+     *
+     * @param sourceId The ID of the source node.
+     * @return The distances, indexed by dense node index, -1 for the nodes that are not reached.
+     */
+    public long[] distances(int sourceId) {
+        long[] distances = new long[n];
+        Arrays.fill(distances, -1);
+        int source = graph.nodeIndex(sourceId);
+        if (source >= 0) {
+            search(source, -1, null, 0);
+            for (int v = 0; v < n; v++) {
+                if (forwardStamps[v] == query) {
+                    distances[v] = forwardDistances[v];
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Computes the distance between two nodes, stopping as soon as the target is settled.
+     *
+     * @param sourceId The ID of the source node.
+     * @param targetId The ID of the target node.
+     * @return The distance, -1 if the target cannot be reached.
+     */
+    public long distance(int sourceId, int targetId) {
+        return distance(sourceId, targetId, null);
+    }
+
+    /**
+     * Computes the distance between two nodes with A*.
+     *
+     * @param sourceId  The ID of the source node.
+     * @param targetId  The ID of the target node.
+     * @param heuristic The lower bound on the remaining distance, null for plain Dijkstra.
+     * @return The distance, -1 if the target cannot be reached.
+     */
+    public long distance(int sourceId, int targetId, Heuristic heuristic) {
+        int source = graph.nodeIndex(sourceId);
+        int target = graph.nodeIndex(targetId);
+        if (source < 0 || target < 0) {
+            return -1;
+        }
+        return search(source, target, heuristic, targetId);
+    }
+
+    /**
+     * Computes a shortest path between two nodes.
+     *
+     * @param sourceId The ID of the source node.
+     * @param targetId The ID of the target node.
+     * @return The IDs of the nodes of the path, source and target included, or null if the
+     * target cannot be reached.
+     */
+    public int[] path(int sourceId, int targetId) {
+        int source = graph.nodeIndex(sourceId);
+        int target = graph.nodeIndex(targetId);
+        if (source < 0 || target < 0 || search(source, target, null, targetId) < 0) {
+            return null;
+        }
+        int length = 1;
+        for (int v = target; v != source; v = parents[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = target, i = length - 1; i >= 0; v = parents[v], i--) {
+            path[i] = graph.nodeId(v);
+        }
+        return path;
+    }
+
+    /**
+     * Runs Dijkstra, or A* with a heuristic, from a source until the target is settled or,
+     * without target, until every reachable node is.
+     *
+     * @return The distance to the target, -1 if it is not reached or there is no target.
+     */
+    private long search(int source, int target, Heuristic heuristic, int targetId) {
+        newQuery();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        forwardStamps[source] = query;
+        forwardDistances[source] = 0;
+        parents[source] = source;
+        forward.insertOrDecrease(source, 0);
+        while (!forward.isEmpty()) {
+            int u = forward.pollMin();
+            if (u == target) {
+                return forwardDistances[u];
+            }
+            long du = forwardDistances[u];
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int v = targets[k];
+                long dv = du + weights[k];
+                if (forwardStamps[v] != query || dv < forwardDistances[v]) {
+                    forwardStamps[v] = query;
+                    forwardDistances[v] = dv;
+                    parents[v] = u;
+                    long estimate = heuristic == null ? 0 : heuristic.estimate(graph.nodeId(v), targetId);
+                    forward.insertOrDecrease(v, dv + estimate);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the distance between two nodes with a bidirectional Dijkstra, growing a search
+     * from the source over the out-edges and one from the target over the in-edges until they meet.
+     *
+     * @param sourceId The ID of the source node.
+     * @param targetId The ID of the target node.
+     * @return The distance, -1 if the target cannot be reached.
+     */
+    public long bidirectionalDistance(int sourceId, int targetId) {
+        int source = graph.nodeIndex(sourceId);
+        int target = graph.nodeIndex(targetId);
+        if (source < 0 || target < 0) {
+            return -1;
+        }
+        if (source == target) {
+            return 0;
+        }
+        newQuery();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        int[] inOffsets = graph.inOffsets();
+        int[] inSources = graph.inSources();
+        int[] inWeights = graph.inWeights();
+        forwardStamps[source] = query;
+        forwardDistances[source] = 0;
+        forward.insertOrDecrease(source, 0);
+        backwardStamps[target] = query;
+        backwardDistances[target] = 0;
+        backward.insertOrDecrease(target, 0);
+        long best = Long.MAX_VALUE;
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            // No path through unsettled nodes can be shorter than the two smallest keys together
+            if (forward.minKey() + backward.minKey() >= best) {
+                break;
+            }
+            if (forward.minKey() <= backward.minKey()) {
+                int u = forward.pollMin();
+                long du = forwardDistances[u];
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int v = targets[k];
+                    long dv = du + weights[k];
+                    if (forwardStamps[v] != query || dv < forwardDistances[v]) {
+                        forwardStamps[v] = query;
+                        forwardDistances[v] = dv;
+                        forward.insertOrDecrease(v, dv);
+                    }
+                    if (backwardStamps[v] == query) {
+                        best = Math.min(best, dv + backwardDistances[v]);
+                    }
+                }
+            } else {
+                int u = backward.pollMin();
+                long du = backwardDistances[u];
+                for (int k = inOffsets[u]; k < inOffsets[u + 1]; k++) {
+                    int v = inSources[k];
+                    long dv = du + inWeights[k];
+                    if (backwardStamps[v] != query || dv < backwardDistances[v]) {
+                        backwardStamps[v] = query;
+                        backwardDistances[v] = dv;
+                        backward.insertOrDecrease(v, dv);
+                    }
+                    if (forwardStamps[v] == query) {
+                        best = Math.min(best, dv + forwardDistances[v]);
+                    }
+                }
+            }
+        }
+        return best == Long.MAX_VALUE ? -1 : best;
+    }
+}
@@ -0,0 +1,169 @@
+package m1graf2023;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strongly connected components of a CSR snapshot, found by Tarjan's algorithm in linear time.
+ * The depth-first search is iterative, with its call stack and its node stack in int arrays, so
+ * the depth of the graph is not limited by the thread stack.
+ *
+ * <p>Components are numbered 1..count() in a topological order of the condensation: every edge
+ * between two components goes from a smaller to a larger number.
+ */
+public class StronglyConnectedComponents {
+    private final CsrGraf graph;
+    private final int[] components;
+    private final int count;
+
+    /**
+     * Computes the strongly connected components of a graph.
+     *
+     * @param graph The graph. For the snapshot of an UndirectedGraf, they are its connected components.
+     */
+    public StronglyConnectedComponents(CsrGraf graph) {
+        this.graph = graph;
+        int n = graph.nbNodes();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        components = new int[n];
+        int[] order = new int[n];
+        int[] low = new int[n];
+        int[] cursor = new int[n];
+        int[] calls = new int[n];
+        int[] stack = new int[n];
+        int visited = 0;
+        int found = 0;
+        int stackSize = 0;
+
+        // order[v] is 1 + the visit rank of v, 0 while v is not visited. A visited node without
+        // a component yet is exactly a node on the stack.
+        for (int root = 0; root < n; root++) {
+            if (order[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            calls[depth++] = root;
+            order[root] = low[root] = ++visited;
+            cursor[root] = offsets[root];
+            stack[stackSize++] = root;
+            while (depth > 0) {
+                int u = calls[depth - 1];
+                if (cursor[u] < offsets[u + 1]) {
+                    int v = targets[cursor[u]++];
+                    if (order[v] == 0) {
+                        calls[depth++] = v;
+                        order[v] = low[v] = ++visited;
+                        cursor[v] = offsets[v];
+                        stack[stackSize++] = v;
+                    } else if (components[v] == 0 && order[v] < low[u]) {
+                        low[u] = order[v];
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    int parent = calls[depth - 1];
+                    if (low[u] < low[parent]) {
+                        low[parent] = low[u];
+                    }
+                }
+                if (low[u] == order[u]) {
+                    found++;
+                    int v;
+                    do {
+                        v = stack[--stackSize];
+                        components[v] = found;
+                    } while (v != u);
+                }
+            }
+        }
+        // Tarjan completes the components in reverse topological order
+        count = found;
+        for (int v = 0; v < n; v++) {
+            components[v] = count + 1 - components[v];
+        }
+    }
+
+    /**
+     * Returns the number of strongly connected components.
+     *
+     * @return The number of components.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns the component of every node.
+     *
+     * @return The component numbers in 1..count(), indexed by dense node index. The array is shared, not copied.
+     */
+    public int[] components() {
+        return components;
+    }
+
+    /**
+     * Returns the component of a node.
+     *
+     * @param nodeId The ID of the node.
+     * @return The component number in 1..count(), or 0 if no such node exists.
+     */
+    public int component(int nodeId) {
+        int index = graph.nodeIndex(nodeId);
+        return index >= 0 ? components[index] : 0;
+    }
+
+    /**
+     * Builds the condensation of the graph: one node per component, whose ID is the component
+     * number, and one unweighted edge between two components when at least one edge of the graph
+     * joins them. It is a DAG, built in linear time.
+     *
+     * @return The condensation.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Graf condensation() {
+        int n = components.length;
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        // Group the nodes by component with a counting sort
+        int[] starts = new int[count + 2];
+        for (int c : components) {
+            starts[c + 1]++;
+        }
+        for (int c = 1; c <= count; c++) {
+            starts[c + 1] += starts[c];
+        }
+        int[] members = new int[n];
+        int[] next = starts.clone();
+        for (int v = 0; v < n; v++) {
+            members[next[components[v]]++] = v;
+        }
+
+        Node[] nodes = new Node[count];
+        List<Edge>[] outLists = new List[count];
+        List<Edge>[] inLists = new List[count];
+        for (int c = 1; c <= count; c++) {
+            nodes[c - 1] = new Node(c);
+            outLists[c - 1] = new ArrayList<>();
+            inLists[c - 1] = new ArrayList<>();
+        }
+        // lastSource[d] == c once the edge c -> d has been added
+        int[] lastSource = new int[count + 1];
+        for (int c = 1; c <= count; c++) {
+            for (int i = starts[c]; i < starts[c + 1]; i++) {
+                int u = members[i];
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int d = components[targets[k]];
+                    if (d != c && lastSource[d] != c) {
+                        lastSource[d] = c;
+                        Edge edge = new Edge(nodes[c - 1], nodes[d - 1]);
+                        outLists[c - 1].add(edge);
+                        inLists[d - 1].add(edge);
+                    }
+                }
+            }
+        }
+        return new Graf(nodes, outLists, inLists);
+    }
+}
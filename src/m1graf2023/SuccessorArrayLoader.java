@@ -0,0 +1,293 @@
+package m1graf2023;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk, fork/join builder for graphs given as a successor array: the successors of node 1,
+ * then 0, then the successors of node 2, then 0, and so on, as read by {@link Graf#Graf(int...)}.
+ *
+ * <p>A first parallel pass counts the zeros of each chunk of the array, which gives the
+ * boundaries of every node's successor list after a prefix sum. The ids that only appear
+ * as successors are collected, every id is given a dense index, and the adjacency of each
+ * node is then filled in parallel. The result has exactly the nodes and edges the
+ * sequential constructor would create, in the same out-edge order.
+ */
+class SuccessorArrayLoader {
+    private static final int MIN_CHUNK = 1 << 14;
+    private static final int GRAIN = 1 << 10;
+
+    private final int[] values;
+    private final ForkJoinPool pool;
+
+    private int nbRows;
+    private int[] zeroPositions;
+    private int[] extraIds;
+    private int negativeExtras;
+    private int[] denseTargets;
+
+    /**
+     * Parses the row structure of a successor array.
+     *
+     * @param values The successor array.
+     * @param pool   The pool running the parallel passes.
+     */
+    SuccessorArrayLoader(int[] values, ForkJoinPool pool) {
+        this.values = values;
+        this.pool = pool;
+        findRows();
+        findExtraIds();
+        denseTargets = new int[values.length - zeroPositions.length];
+        parallel(nbRows, (from, to) -> {
+            for (int r = from; r < to; r++) {
+                int edge = rowStart(r) - r;
+                for (int k = rowStart(r); k < rowEnd(r); k++) {
+                    denseTargets[edge++] = index(values[k]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Functional interface for the body of a parallel loop over a range of indices.
+     */
+    interface RangeBody {
+        void run(int from, int to);
+    }
+
+    /**
+     * Fork/join task splitting a range of indices down to the grain size.
+     */
+    @SuppressWarnings("serial")
+    private static class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final RangeBody body;
+
+        RangeTask(int from, int to, int grain, RangeBody body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, grain, body), new RangeTask(middle, to, grain, body));
+            }
+        }
+    }
+
+    private void parallel(int n, RangeBody body) {
+        if (n > 0) {
+            pool.invoke(new RangeTask(0, n, GRAIN, body));
+        }
+    }
+
+    private int nbChunks() {
+        return Math.max(1, Math.min(pool.getParallelism() * 4, values.length / MIN_CHUNK));
+    }
+
+    private int chunkStart(int chunk, int nbChunks) {
+        return (int) ((long) values.length * chunk / nbChunks);
+    }
+
+    private void findRows() {
+        int chunks = nbChunks();
+        int[] zeroBase = new int[chunks + 1];
+        pool.invoke(new RangeTask(0, chunks, 1, (from, to) -> {
+            for (int c = from; c < to; c++) {
+                int count = 0;
+                for (int k = chunkStart(c, chunks); k < chunkStart(c + 1, chunks); k++) {
+                    if (values[k] == 0) {
+                        count++;
+                    }
+                }
+                zeroBase[c + 1] = count;
+            }
+        }));
+        for (int c = 0; c < chunks; c++) {
+            zeroBase[c + 1] += zeroBase[c];
+        }
+        zeroPositions = new int[zeroBase[chunks]];
+        pool.invoke(new RangeTask(0, chunks, 1, (from, to) -> {
+            for (int c = from; c < to; c++) {
+                int z = zeroBase[c];
+                for (int k = chunkStart(c, chunks); k < chunkStart(c + 1, chunks); k++) {
+                    if (values[k] == 0) {
+                        zeroPositions[z++] = k;
+                    }
+                }
+            }
+        }));
+        boolean openLastRow = values.length > 0 && values[values.length - 1] != 0;
+        nbRows = zeroPositions.length + (openLastRow ? 1 : 0);
+    }
+
+    private void findExtraIds() {
+        int chunks = nbChunks();
+        int[][] extras = new int[chunks][];
+        int[] counts = new int[chunks];
+        pool.invoke(new RangeTask(0, chunks, 1, (from, to) -> {
+            for (int c = from; c < to; c++) {
+                int[] found = new int[16];
+                int count = 0;
+                for (int k = chunkStart(c, chunks); k < chunkStart(c + 1, chunks); k++) {
+                    int v = values[k];
+                    if (v != 0 && (v < 1 || v > nbRows)) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = v;
+                    }
+                }
+                extras[c] = found;
+                counts[c] = count;
+            }
+        }));
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        int[] all = new int[total];
+        for (int c = 0, pos = 0; c < chunks; c++) {
+            System.arraycopy(extras[c], 0, all, pos, counts[c]);
+            pos += counts[c];
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[distinct++] = all[i];
+            }
+        }
+        extraIds = Arrays.copyOf(all, distinct);
+        while (negativeExtras < extraIds.length && extraIds[negativeExtras] < 1) {
+            negativeExtras++;
+        }
+    }
+
+    private int rowStart(int row) {
+        return row == 0 ? 0 : zeroPositions[row - 1] + 1;
+    }
+
+    private int rowEnd(int row) {
+        return row < zeroPositions.length ? zeroPositions[row] : values.length;
+    }
+
+    private int nbNodes() {
+        return nbRows + extraIds.length;
+    }
+
+    /**
+     * Returns the dense index of a node id, ordering nodes by increasing id.
+     */
+    private int index(int id) {
+        if (id >= 1 && id <= nbRows) {
+            return negativeExtras + id - 1;
+        }
+        int j = Arrays.binarySearch(extraIds, id);
+        return j < negativeExtras ? j : nbRows + j;
+    }
+
+    private int idOf(int index) {
+        if (index < negativeExtras) {
+            return extraIds[index];
+        }
+        if (index < negativeExtras + nbRows) {
+            return index - negativeExtras + 1;
+        }
+        return extraIds[index - nbRows];
+    }
+
+    /**
+     * Builds the graph as a Graf, with the same nodes, edges and edge order as {@link Graf#Graf(int...)}.
+     *
+     * @return The graph.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Graf toGraf() {
+        int n = nbNodes();
+        Node[] nodes = new Node[n];
+        parallel(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                nodes[i] = new Node(idOf(i));
+            }
+        });
+
+        List<Edge>[] outLists = new List[n];
+        parallel(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int id = idOf(i);
+                if (id < 1 || id > nbRows) {
+                    outLists[i] = new ArrayList<>();
+                    continue;
+                }
+                int row = id - 1;
+                int edge = rowStart(row) - row;
+                List<Edge> edges = new ArrayList<>(rowEnd(row) - rowStart(row));
+                for (int k = rowStart(row); k < rowEnd(row); k++) {
+                    edges.add(new Edge(nodes[i], nodes[denseTargets[edge++]], 0));
+                }
+                outLists[i] = edges;
+            }
+        });
+
+        // In-lists must list edges by source row, then position: a sequential counting pass keeps that order
+        int[] inDegrees = new int[n];
+        for (int target : denseTargets) {
+            inDegrees[target]++;
+        }
+        List<Edge>[] inLists = new List[n];
+        parallel(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                inLists[i] = new ArrayList<>(inDegrees[i]);
+            }
+        });
+        for (int r = 0; r < nbRows; r++) {
+            List<Edge> edges = outLists[negativeExtras + r];
+            for (int k = 0; k < edges.size(); k++) {
+                Edge edge = edges.get(k);
+                inLists[denseTargets[rowStart(r) - r + k]].add(edge);
+            }
+        }
+        return new Graf(nodes, outLists, inLists);
+    }
+
+    /**
+     * Builds the graph directly in CSR form, rows sorted by target.
+     *
+     * @return The graph.
+     */
+    CsrGraf toCsr() {
+        int n = nbNodes();
+        Node[] nodes = new Node[n];
+        parallel(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                nodes[i] = new Node(idOf(i));
+            }
+        });
+        int[] offsets = new int[n + 1];
+        for (int r = 0; r < nbRows; r++) {
+            offsets[negativeExtras + r + 1] = rowEnd(r) - rowStart(r);
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        // Row r of the successor array starts at offsets[negativeExtras + r] in denseTargets already
+        parallel(nbRows, (from, to) -> {
+            for (int r = from; r < to; r++) {
+                Arrays.sort(denseTargets, offsets[negativeExtras + r], offsets[negativeExtras + r + 1]);
+            }
+        });
+        return new CsrGraf(nodes, offsets, denseTargets, new int[denseTargets.length]);
+    }
+}
@@ -0,0 +1,198 @@
+package m1graf2023;
+
+import java.util.Arrays;
+
+/**
+ * Topological order of a CSR snapshot by Kahn's algorithm, with the in-degree of every node
+ * counted once into an int array, so the whole sort is O(V+E) and nothing is recursive. On a
+ * graph with cycles it finds one of them instead, and on a DAG it gives the longest path over
+ * the edge weights. A Graf is sorted through its {@link Graf#toCsr() snapshot}.
+ */
+public class TopologicalSort {
+    private final CsrGraf graph;
+    private final int[] order;
+    private final int sorted;
+    private long[] longest;
+    private int[] longestParents;
+
+    /**
+     * Sorts a graph. The nodes without predecessor come first in increasing ID order, then every
+     * node comes in the order its last predecessor was reached.
+     *
+     * @param graph The graph.
+     */
+    public TopologicalSort(CsrGraf graph) {
+        this.graph = graph;
+        int n = graph.nbNodes();
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] inDegrees = new int[n];
+        for (int target : targets) {
+            inDegrees[target]++;
+        }
+        // The order is its own queue: the nodes before tail are released, before head processed
+        order = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegrees[v] == 0) {
+                order[tail++] = v;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int u = order[head];
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                if (--inDegrees[targets[k]] == 0) {
+                    order[tail++] = targets[k];
+                }
+            }
+        }
+        sorted = tail;
+    }
+
+    /**
+     * Checks if the graph has no cycle.
+     *
+     * @return true if the graph is a DAG.
+     */
+    public boolean isAcyclic() {
+        return sorted == order.length;
+    }
+
+    /**
+     * Returns the nodes in topological order: every edge goes from a node to a later one.
+     *
+     * @return The IDs of the nodes, or null if the graph has a cycle.
+     */
+    public int[] order() {
+        if (!isAcyclic()) {
+            return null;
+        }
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = graph.nodeId(order[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Finds a cycle of the graph. The nodes left by Kahn's algorithm all keep a predecessor among
+     * them, so walking back over those predecessors must come back to a node already seen.
+     *
+     * @return The IDs of the nodes of a cycle, each with an edge to the next and the last with an
+     * edge to the first, or null if the graph is a DAG.
+     */
+    public int[] cycle() {
+        if (isAcyclic()) {
+            return null;
+        }
+        int n = order.length;
+        boolean[] released = new boolean[n];
+        for (int i = 0; i < sorted; i++) {
+            released[order[i]] = true;
+        }
+        int start = 0;
+        while (released[start]) {
+            start++;
+        }
+        int[] inOffsets = graph.inOffsets();
+        int[] inSources = graph.inSources();
+        // seen[v] is 1 + the step at which v was reached, walk[step] the node of that step
+        int[] seen = new int[n];
+        int[] walk = new int[n];
+        int steps = 0;
+        int v = start;
+        while (seen[v] == 0) {
+            walk[steps] = v;
+            seen[v] = ++steps;
+            int k = inOffsets[v];
+            while (released[inSources[k]]) {
+                k++;
+            }
+            v = inSources[k];
+        }
+        // The walk follows the edges backwards: reverse the loop to follow them forwards
+        int length = steps - seen[v] + 1;
+        int[] cycle = new int[length];
+        for (int i = 0; i < length; i++) {
+            cycle[i] = graph.nodeId(walk[steps - 1 - i]);
+        }
+        return cycle;
+    }
+
+    /**
+     * Returns the length of a longest path of the DAG, the sum of the weights of its edges.
+     *
+     * @return The length, at least 0 as a single node is a path, or -1 if the graph has a cycle.
+     */
+    public long longestPathLength() {
+        if (!isAcyclic()) {
+            return -1;
+        }
+        if (order.length == 0) {
+            return 0;
+        }
+        computeLongest();
+        return longest[lastOfLongest()];
+    }
+
+    /**
+     * Returns a longest path of the DAG, the critical path when the weights are durations.
+     *
+     * @return The IDs of the nodes of the path, or null if the graph has a cycle.
+     */
+    public int[] longestPath() {
+        if (!isAcyclic()) {
+            return null;
+        }
+        if (order.length == 0) {
+            return new int[0];
+        }
+        computeLongest();
+        int last = lastOfLongest();
+        int length = 1;
+        for (int v = last; longestParents[v] >= 0; v = longestParents[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = last, i = length - 1; i >= 0; v = longestParents[v], i--) {
+            path[i] = graph.nodeId(v);
+        }
+        return path;
+    }
+
+    /**
+     * Computes, in topological order, the length of the longest path ending at every node.
+     */
+    private void computeLongest() {
+        if (longest != null) {
+            return;
+        }
+        int n = order.length;
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+        longest = new long[n];
+        longestParents = new int[n];
+        Arrays.fill(longestParents, -1);
+        for (int u : order) {
+            long du = longest[u];
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int v = targets[k];
+                if (du + weights[k] > longest[v]) {
+                    longest[v] = du + weights[k];
+                    longestParents[v] = u;
+                }
+            }
+        }
+    }
+
+    private int lastOfLongest() {
+        int last = 0;
+        for (int v = 1; v < longest.length; v++) {
+            if (longest[v] > longest[last]) {
+                last = v;
+            }
+        }
+        return last;
+    }
+}
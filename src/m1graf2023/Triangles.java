@@ -0,0 +1,292 @@
+package m1graf2023;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Triangle counts and local clustering coefficients of a CSR snapshot read as an undirected
+ * simple graph: edge directions are ignored, self-loops dropped and parallel edges merged.
+ *
+ * <p>Nodes are ranked by increasing degree and every edge is oriented from its lower to its
+ * higher ranked end, into sorted int rows of ranks. A triangle is then found exactly once, from
+ * its lowest ranked node, by merging the row of that node with the row of each of its higher
+ * neighbours, and no row is longer than the square root of twice the number of edges. The
+ * rows can be processed in parallel, each triangle crediting its three nodes.
+ */
+public class Triangles {
+    private static final int GRAIN = 256;
+
+    private final CsrGraf graph;
+    private final int[] degrees;
+    private final int[] order;
+    private final int[] offsets;
+    private final int[] higher;
+    private final long[] triangles;
+    private final long count;
+
+    /**
+     * Counts the triangles of a graph in the calling thread.
+     *
+     * @param graph The graph.
+     */
+    public Triangles(CsrGraf graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Counts the triangles of a graph.
+     *
+     * @param graph The graph.
+     * @param pool  The pool counting the rows in parallel, or null to count in the calling thread.
+     */
+    public Triangles(CsrGraf graph, ForkJoinPool pool) {
+        this.graph = graph;
+        int n = graph.nbNodes();
+        // Distinct neighbours of every node: count them, then store them
+        int[] neighbourOffsets = new int[n + 1];
+        mergeNeighbours(neighbourOffsets, null);
+        for (int u = 0; u < n; u++) {
+            neighbourOffsets[u + 1] += neighbourOffsets[u];
+        }
+        int[] neighbours = new int[neighbourOffsets[n]];
+        mergeNeighbours(neighbourOffsets, neighbours);
+        degrees = new int[n];
+        for (int u = 0; u < n; u++) {
+            degrees[u] = neighbourOffsets[u + 1] - neighbourOffsets[u];
+        }
+
+        order = new int[n];
+        int[] ranks = rankByDegree(order);
+        offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            for (int k = neighbourOffsets[u]; k < neighbourOffsets[u + 1]; k++) {
+                if (ranks[neighbours[k]] > ranks[u]) {
+                    offsets[ranks[u] + 1]++;
+                }
+            }
+        }
+        for (int r = 0; r < n; r++) {
+            offsets[r + 1] += offsets[r];
+        }
+        // Rows of higher ranks come out sorted by visiting the nodes in rank order
+        higher = new int[offsets[n]];
+        int[] next = offsets.clone();
+        for (int r = 0; r < n; r++) {
+            int v = order[r];
+            for (int k = neighbourOffsets[v]; k < neighbourOffsets[v + 1]; k++) {
+                int lower = ranks[neighbours[k]];
+                if (lower < r) {
+                    higher[next[lower]++] = r;
+                }
+            }
+        }
+
+        AtomicLongArray counts = new AtomicLongArray(n);
+        CountTask root = new CountTask(0, n, pool == null ? n : GRAIN, counts);
+        if (pool == null) {
+            root.invoke();
+        } else {
+            pool.invoke(root);
+        }
+        count = root.found;
+        triangles = new long[n];
+        for (int r = 0; r < n; r++) {
+            triangles[order[r]] = counts.get(r);
+        }
+    }
+
+    /**
+     * Merges the sorted out-row and in-row of every node, skipping the node itself and repeats.
+     *
+     * @param neighbourOffsets The row offsets to fill with the neighbour counts, at index u + 1
+     *                         for node u, if neighbours is null, else the offsets to fill from.
+     * @param neighbours       The neighbours to fill, or null to count them.
+     */
+    private void mergeNeighbours(int[] neighbourOffsets, int[] neighbours) {
+        int[] outOffsets = graph.offsets;
+        int[] outTargets = graph.targets;
+        int[] inOffsets = graph.inOffsets();
+        int[] inSources = graph.inSources();
+        for (int u = 0; u < outOffsets.length - 1; u++) {
+            int i = outOffsets[u];
+            int j = inOffsets[u];
+            int last = u;
+            int size = 0;
+            while (i < outOffsets[u + 1] || j < inOffsets[u + 1]) {
+                int v;
+                if (j == inOffsets[u + 1] || (i < outOffsets[u + 1] && outTargets[i] <= inSources[j])) {
+                    v = outTargets[i++];
+                } else {
+                    v = inSources[j++];
+                }
+                if (v != last && v != u) {
+                    if (neighbours != null) {
+                        neighbours[neighbourOffsets[u] + size] = v;
+                    }
+                    size++;
+                    last = v;
+                }
+            }
+            if (neighbours == null) {
+                neighbourOffsets[u + 1] = size;
+            }
+        }
+    }
+
+    /**
+     * Sorts the nodes by degree, then index, with a counting sort.
+     *
+     * @param order Filled with the node of every rank.
+     * @return The rank of every node.
+     */
+    private int[] rankByDegree(int[] order) {
+        int n = degrees.length;
+        int maxDegree = 0;
+        for (int degree : degrees) {
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        int[] starts = new int[maxDegree + 2];
+        for (int degree : degrees) {
+            starts[degree + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            starts[d + 1] += starts[d];
+        }
+        int[] ranks = new int[n];
+        for (int u = 0; u < n; u++) {
+            int r = starts[degrees[u]]++;
+            ranks[u] = r;
+            order[r] = u;
+        }
+        return ranks;
+    }
+
+    /**
+     * Returns the number of triangles of the graph.
+     *
+     * @return The number of triangles.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of triangles through a node.
+     *
+     * @param nodeId The ID of the node.
+     * @return The number of triangles, 0 if no such node exists.
+     */
+    public long triangles(int nodeId) {
+        int index = graph.nodeIndex(nodeId);
+        return index >= 0 ? triangles[index] : 0;
+    }
+
+    /**
+     * Returns the number of distinct neighbours of a node, itself excluded.
+     *
+     * @param nodeId The ID of the node.
+     * @return The undirected simple degree, 0 if no such node exists.
+     */
+    public int degree(int nodeId) {
+        int index = graph.nodeIndex(nodeId);
+        return index >= 0 ? degrees[index] : 0;
+    }
+
+    /**
+     * Returns the local clustering coefficient of a node: the fraction of the pairs of its
+     * neighbours that are adjacent.
+     *
+     * @param nodeId The ID of the node.
+     * @return The coefficient in [0, 1], 0 if the node has fewer than two neighbours or does not exist.
+     */
+    public double clusteringCoefficient(int nodeId) {
+        int index = graph.nodeIndex(nodeId);
+        return index >= 0 ? coefficient(index) : 0;
+    }
+
+    private double coefficient(int index) {
+        long degree = degrees[index];
+        return degree < 2 ? 0 : 2.0 * triangles[index] / (degree * (degree - 1));
+    }
+
+    /**
+     * Returns the mean of the local clustering coefficients of all the nodes.
+     *
+     * @return The average clustering coefficient, 0 for an empty graph.
+     */
+    public double averageClusteringCoefficient() {
+        double sum = 0;
+        for (int index = 0; index < degrees.length; index++) {
+            sum += coefficient(index);
+        }
+        return degrees.length == 0 ? 0 : sum / degrees.length;
+    }
+
+    /**
+     * Counts the triangles found from a range of ranks, crediting the three nodes of each.
+     */
+    @SuppressWarnings("serial")
+    private class CountTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final AtomicLongArray counts;
+        private long found;
+
+        CountTask(int from, int to, int grain, AtomicLongArray counts) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.counts = counts;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > grain) {
+                int middle = (from + to) >>> 1;
+                CountTask left = new CountTask(from, middle, grain, counts);
+                CountTask right = new CountTask(middle, to, grain, counts);
+                invokeAll(left, right);
+                found = left.found + right.found;
+                return;
+            }
+            long total = 0;
+            for (int r = from; r < to; r++) {
+                long atR = 0;
+                int end = offsets[r + 1];
+                for (int k = offsets[r]; k < end; k++) {
+                    int s = higher[k];
+                    // Both rows are sorted: the common ranks above s close a triangle
+                    int i = k + 1;
+                    int j = offsets[s];
+                    int sEnd = offsets[s + 1];
+                    long atS = 0;
+                    while (i < end && j < sEnd) {
+                        int a = higher[i];
+                        int b = higher[j];
+                        if (a < b) {
+                            i++;
+                        } else if (a > b) {
+                            j++;
+                        } else {
+                            counts.getAndIncrement(a);
+                            atS++;
+                            i++;
+                            j++;
+                        }
+                    }
+                    if (atS > 0) {
+                        counts.getAndAdd(s, atS);
+                        atR += atS;
+                    }
+                }
+                if (atR > 0) {
+                    counts.getAndAdd(r, atR);
+                }
+                total += atR;
+            }
+            found = total;
+        }
+    }
+}
@@ -1,8 +1,181 @@
 package m1graf2023;
 
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Represents an undirected graph.
+ * Each edge is stored once, as added: in the out-edge list of its first endpoint and in the
+ * in-edge list of its second one, so both endpoints see it without a second Edge being stored.
+ * The methods below combine both lists and present every edge incident to a node as going out
+ * of that node. A self-loop is seen from both of its ends, so it counts twice in the degree.
+ */
 public class UndirectedGraf extends Graf{
+
+    /**
+     * Constructs an undirected graph from the successor array, in the same format as
+     * {@link Graf#Graf(int...)}. Each edge only needs to be listed from one of its endpoints.
+     *
+     * @param values The successor array.
+     */
     public UndirectedGraf(int... values) {
-        return;
+        super(values);
     }
 
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+    /**
+     * Checks if an edge exists between nodes u and v, in either orientation.
+     *
+     * @param u One endpoint.
+     * @param v The other endpoint.
+     * @return true if an edge exists, false otherwise.
+     */
+    @Override
+    public boolean existsEdge(Node u, Node v) {
+        return super.existsEdge(u, v) || super.existsEdge(v, u);
+    }
+
+    /**
+     * Removes one edge between nodes u and v, whichever orientation it was added in.
+     *
+     * @param from One endpoint.
+     * @param to   The other endpoint.
+     * @return true if the removal succeeded, false otherwise.
+     */
+    @Override
+    public boolean removeEdge(Node from, Node to) {
+        return super.removeEdge(from, to) || super.removeEdge(to, from);
+    }
+
+    /**
+     * Removes one edge of the given weight between nodes u and v, whichever orientation it was added in.
+     *
+     * @param from   One endpoint.
+     * @param to     The other endpoint.
+     * @param weight The weight of the edge.
+     * @return true if the removal succeeded, false otherwise.
+     */
+    @Override
+    public boolean removeEdge(Node from, Node to, int weight) {
+        return super.removeEdge(from, to, weight) || super.removeEdge(to, from, weight);
+    }
+
+    /**
+     * Gets the edges between nodes u and v, each oriented from u to v.
+     *
+     * @param u One endpoint.
+     * @param v The other endpoint.
+     * @return The edges between u and v.
+     */
+    @Override
+    public List<Edge> getEdges(Node u, Node v) {
+        List<Edge> edges = super.getEdges(u, v);
+        if (u != null && !u.equals(v)) {
+            for (Edge edge : super.getEdges(v, u)) {
+                edges.add(edge.getSymmetric());
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Gets the edges incident to a node, each oriented from that node.
+     *
+     * @param node The node.
+     * @return The incident edges: the stored ones going out of the node, then the reversed
+     * views of the stored ones coming into it.
+     */
+    @Override
+    public List<Edge> getOutEdges(Node node) {
+        List<Edge> outEdges = super.getOutEdges(node);
+        List<Edge> inEdges = super.getInEdges(node);
+        List<Edge> edges = new ArrayList<>(outEdges.size() + inEdges.size());
+        edges.addAll(outEdges);
+        for (Edge edge : inEdges) {
+            edges.add(edge.getSymmetric());
+        }
+        return edges;
+    }
+
+    /**
+     * Gets the edges incident to a node, each oriented towards that node.
+     *
+     * @param n The node.
+     * @return The incident edges.
+     */
+    @Override
+    public List<Edge> getInEdges(Node n) {
+        List<Edge> edges = super.getInEdges(n);
+        for (Edge edge : super.getOutEdges(n)) {
+            edges.add(edge.getSymmetric());
+        }
+        return edges;
+    }
+
+    /**
+     * Gets the edges incident to a node, each listed once and oriented from that node.
+     *
+     * @param n The node.
+     * @return The incident edges.
+     */
+    @Override
+    public List<Edge> getIncidentEdges(Node n) {
+        return getOutEdges(n);
+    }
+
+    @Override
+    public int inDegree(Node n) {
+        return super.inDegree(n) + super.outDegree(n);
+    }
+
+    @Override
+    public int outDegree(Node n) {
+        return inDegree(n);
+    }
+
+    @Override
+    public int degree(Node n) {
+        return inDegree(n);
+    }
+
+    @Override
+    public void forEachSuccessor(int nodeId, IntConsumer action) {
+        super.forEachSuccessor(nodeId, action);
+        super.forEachPredecessor(nodeId, action);
+    }
+
+    @Override
+    public void forEachPredecessor(int nodeId, IntConsumer action) {
+        forEachSuccessor(nodeId, action);
+    }
+
+    @Override
+    public void forEachOutEdge(int nodeId, EdgeVisitor visitor) {
+        super.forEachOutEdge(nodeId, visitor);
+        super.forEachInEdge(nodeId, visitor);
+    }
+
+    @Override
+    public void forEachInEdge(int nodeId, EdgeVisitor visitor) {
+        forEachOutEdge(nodeId, visitor);
+    }
+
+    /**
+     * Builds the CSR snapshot of the symmetric directed graph: every edge appears in the rows
+     * of both of its endpoints, a self-loop twice in the row of its node.
+     *
+     * @return The CSR form of the graph.
+     */
+    @Override
+    public CsrGraf toCsr() {
+        Map<Node, List<Edge>> adjacency = new HashMap<>();
+        for (Node n : getAllNodes()) {
+            adjacency.put(n, getOutEdges(n));
+        }
+        return new CsrGraf(adjacency);
+    }
 }
@@ -0,0 +1,119 @@
+package m1graf2023;
+
+import java.util.Arrays;
+
+/**
+ * Disjoint sets of the ints 0..size()-1 in int arrays, with union by rank and path compression,
+ * so any sequence of operations runs in near-constant amortized time per operation. Elements can
+ * be added one at a time, which keeps the structure usable while a graph grows.
+ */
+public class UnionFind {
+    private int[] parents;
+    private byte[] ranks;
+    private int size;
+    private int count;
+
+    /**
+     * Constructs singletons.
+     *
+     * @param size The number of elements, each in its own set.
+     */
+    public UnionFind(int size) {
+        parents = new int[Math.max(size, 16)];
+        ranks = new byte[parents.length];
+        for (int i = 0; i < size; i++) {
+            parents[i] = i;
+        }
+        this.size = size;
+        this.count = size;
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return The number of elements.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of disjoint sets.
+     *
+     * @return The number of sets.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Adds an element in its own set.
+     *
+     * @return The new element, the previous size().
+     */
+    public int add() {
+        if (size == parents.length) {
+            parents = Arrays.copyOf(parents, size * 2);
+            ranks = Arrays.copyOf(ranks, size * 2);
+        }
+        parents[size] = size;
+        count++;
+        return size++;
+    }
+
+    /**
+     * Finds the representative of the set of an element, pointing every element on the way
+     * straight to it.
+     *
+     * @param x The element.
+     * @return The representative of its set.
+     */
+    public int find(int x) {
+        int root = x;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        while (parents[x] != root) {
+            int next = parents[x];
+            parents[x] = root;
+            x = next;
+        }
+        return root;
+    }
+
+    /**
+     * Merges the sets of two elements, the one of smaller rank going under the other.
+     *
+     * @param a An element.
+     * @param b An element.
+     * @return true if they were in different sets.
+     */
+    public boolean union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) {
+            return false;
+        }
+        if (ranks[a] < ranks[b]) {
+            parents[a] = b;
+        } else {
+            parents[b] = a;
+            if (ranks[a] == ranks[b]) {
+                ranks[a]++;
+            }
+        }
+        count--;
+        return true;
+    }
+
+    /**
+     * Checks if two elements are in the same set.
+     *
+     * @param a An element.
+     * @param b An element.
+     * @return true if they are in the same set.
+     */
+    public boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+}
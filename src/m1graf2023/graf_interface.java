@@ -1,9 +1,14 @@
 package m1graf2023;
 
 import java.util.List;
+import java.util.function.IntConsumer;
 
 public interface graf_interface {
 
+    int nbNodes();
+
+    List<Node> getAllNodes();
+
     int nbEdges();
 
     boolean existsEdge(Node u, Node v);
@@ -56,4 +61,12 @@ public interface graf_interface {
 
     int degree(int nodeId);
 
+    void forEachSuccessor(int nodeId, IntConsumer action);
+
+    void forEachPredecessor(int nodeId, IntConsumer action);
+
+    void forEachOutEdge(int nodeId, EdgeVisitor visitor);
+
+    void forEachInEdge(int nodeId, EdgeVisitor visitor);
+
 }